@@ -0,0 +1,119 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the automaton and of connecting the rooms. The generator runs without an application, so nothing is
+ * logged.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaveGeneratorBenchmark {
+
+  @State(Scope.Thread)
+  public static class Automaton {
+
+    @Param({ "64", "256", "1024" })
+    public int size;
+
+    @Param({ "false", "true" })
+    public boolean bitPacked;
+
+    private CaveGenerator cave;
+    private final AutomatonRule rule = AutomatonRule.caveTable(5, 2);
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+      cave = create();
+      cave.initialize();
+    }
+
+    CaveGenerator create() {
+      return CaveGenerator.Builder.create()
+          .withSize(size, size)
+          .withRandomSeed(7)
+          .withBitPackedLattice(bitPacked)
+          .addPhase(5, 2, 4)
+          .addPhase(5, -1, 5)
+          .build();
+    }
+  }
+
+  /**
+   * A single round, the map keeps evolving during an iteration of the benchmark.
+   */
+  @Benchmark
+  public void step(Automaton state) {
+    state.cave.step(5, 2);
+  }
+
+  /**
+   * The same rule as {@link #step(Automaton)} run by the lookup table of the general rule engine.
+   */
+  @Benchmark
+  public void stepRuleTable(Automaton state) {
+    state.cave.step(state.rule);
+  }
+
+  /**
+   * All rounds of both phases starting from a new random map.
+   */
+  @Benchmark
+  public void iterate(Automaton state, Blackhole blackhole) {
+    CaveGenerator generator = state.create();
+    generator.initialize();
+    generator.iterate();
+    blackhole.consume(generator);
+  }
+
+  /**
+   * Connecting the rooms modifies the map, so every invocation gets a freshly iterated map.
+   */
+  @State(Scope.Thread)
+  public static class FixRooms {
+
+    @Param({ "64", "256", "1024" })
+    public int size;
+
+    @Param({ "RANDOM_WALK", "CORRIDORS" })
+    public CaveGenerator.RoomConnection roomConnection;
+
+    private CaveGenerator cave;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+      cave = CaveGenerator.Builder.create()
+          .withSize(size, size)
+          .withRandomSeed(7)
+          .withBitPackedLattice(true)
+          .withRoomConnection(roomConnection)
+          .addPhase(5, 2, 4)
+          .addPhase(5, -1, 5)
+          .build();
+      cave.initialize();
+      cave.iterate();
+    }
+  }
+
+  @Benchmark
+  public boolean[][] fixRooms(FixRooms state) {
+    state.cave.fixRooms();
+    return state.cave.getMap();
+  }
+}
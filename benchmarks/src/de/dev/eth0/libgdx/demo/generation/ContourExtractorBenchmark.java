@@ -0,0 +1,54 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of tracing and simplifying the outlines of a whole map with different tolerances.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContourExtractorBenchmark {
+
+  @Param({ "256", "1024" })
+  public int size;
+
+  @Param({ "0", "0.5", "2" })
+  public float tolerance;
+
+  private boolean[][] map;
+  private ContourExtractor extractor;
+
+  @Setup
+  public void setUp() {
+    map = CaveGenerator.Builder.create()
+        .withSize(size, size)
+        .withRandomSeed(7)
+        .withBitPackedLattice(true)
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 5)
+        .build()
+        .generateMap();
+    extractor = ContourExtractor.Builder.create().withTolerance(tolerance).build();
+  }
+
+  @Benchmark
+  public List<float[]> extract() {
+    return extractor.extract(map);
+  }
+}
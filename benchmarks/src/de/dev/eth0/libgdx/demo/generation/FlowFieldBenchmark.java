@@ -0,0 +1,104 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of building a flow field over a cave whose rooms are connected by corridors, of repairing it after a cell
+ * toggles and of moving agents one step along it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlowFieldBenchmark {
+
+  private static final int AGENTS = 10000;
+
+  @Param({ "256", "1024" })
+  public int size;
+
+  private boolean[][] map;
+  private FlowField field;
+  private int[] agents;
+  private int[] toggles;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    map = CaveGenerator.Builder.create()
+        .withSize(size, size)
+        .withRandomSeed(7)
+        .withBitPackedLattice(true)
+        .withRoomConnection(CaveGenerator.RoomConnection.CORRIDORS)
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 5)
+        .build()
+        .generateMap();
+    int width = map[0].length;
+    Random random = new Random(1);
+    agents = new int[AGENTS];
+    for (int i = 0; i < AGENTS; i++) {
+      agents[i] = randomEmptyCell(random);
+    }
+    int goal = randomEmptyCell(random);
+    field = new FlowField(map, goal % width, goal / width);
+    toggles = new int[256];
+    for (int i = 0; i < toggles.length; i++) {
+      toggles[i] = randomEmptyCell(random);
+    }
+  }
+
+  private int randomEmptyCell(Random random) {
+    int width = map[0].length;
+    int cell;
+    do {
+      cell = random.nextInt(width * map.length);
+    }
+    while (map[cell / width][cell % width] == LatticeFns.FILLED);
+    return cell;
+  }
+
+  @Benchmark
+  public FlowField rebuild() {
+    field.rebuild();
+    return field;
+  }
+
+  /**
+   * Closes an empty cell and opens it again.
+   */
+  @Benchmark
+  public FlowField toggleCell() {
+    int width = map[0].length;
+    int cell = toggles[next];
+    next = (next + 1) % toggles.length;
+    map[cell / width][cell % width] = LatticeFns.FILLED;
+    field.cellChanged(cell % width, cell / width);
+    map[cell / width][cell % width] = LatticeFns.EMPTY;
+    field.cellChanged(cell % width, cell / width);
+    return field;
+  }
+
+  @Benchmark
+  public int[] stepAgents() {
+    for (int i = 0; i < AGENTS; i++) {
+      int step = field.getNext(agents[i]);
+      agents[i] = step < 0 ? agents[i] : step;
+    }
+    return agents;
+  }
+}
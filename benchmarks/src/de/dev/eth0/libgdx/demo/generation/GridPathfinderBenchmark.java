@@ -0,0 +1,76 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of path queries between random empty cells of a cave whose rooms are connected by corridors, so almost
+ * every query finds a path. The GC profiler shows that queries don't allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridPathfinderBenchmark {
+
+  private static final int QUERIES = 256;
+
+  @Param({ "256", "1024" })
+  public int size;
+
+  @Param({ "A_STAR", "JUMP_POINT" })
+  public GridPathfinder.Algorithm algorithm;
+
+  private GridPathfinder pathfinder;
+  private int width;
+  private int[] queries;
+  private int[] path;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    boolean[][] map = CaveGenerator.Builder.create()
+        .withSize(size, size)
+        .withRandomSeed(7)
+        .withBitPackedLattice(true)
+        .withRoomConnection(CaveGenerator.RoomConnection.CORRIDORS)
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 5)
+        .build()
+        .generateMap();
+    width = map[0].length;
+    pathfinder = new GridPathfinder(map);
+    path = new int[width * map.length];
+    queries = new int[2 * QUERIES];
+    Random random = new Random(1);
+    for (int i = 0; i < queries.length; i++) {
+      int cell;
+      do {
+        cell = random.nextInt(width * map.length);
+      }
+      while (map[cell / width][cell % width] == LatticeFns.FILLED);
+      queries[i] = cell;
+    }
+  }
+
+  @Benchmark
+  public int findPath() {
+    int start = queries[2 * next];
+    int goal = queries[2 * next + 1];
+    next = (next + 1) % QUERIES;
+    return pathfinder.findPath(algorithm, start % width, start / width, goal % width, goal / width, path);
+  }
+}
@@ -0,0 +1,82 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of finding the rooms of a generated map, with point sets and with labels, and of the distance transforms.
+ * The distance transforms reuse their buffers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatticeFnsBenchmark {
+
+  @Param({ "64", "256", "1024" })
+  public int size;
+
+  private boolean[][] map;
+  private DistanceField distanceField;
+  private float[] distances;
+  private int[] steps;
+  private int[] center;
+
+  @Setup
+  public void setUp() {
+    CaveGenerator cave = CaveGenerator.Builder.create()
+        .withSize(size, size)
+        .withRandomSeed(7)
+        .withBitPackedLattice(true)
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 5)
+        .build();
+    cave.initialize();
+    cave.iterate();
+    map = cave.getMap();
+    int width = map[0].length;
+    distanceField = new DistanceField(width, map.length);
+    distances = new float[width * map.length];
+    steps = new int[width * map.length];
+    center = new int[] { map.length / 2 * width + width / 2 };
+  }
+
+  @Benchmark
+  public List<Set<Point>> getRooms() {
+    return LatticeFns.getRooms(map, LatticeFns.EMPTY);
+  }
+
+  @Benchmark
+  public RoomLabels getRoomLabels() {
+    return LatticeFns.getRoomLabels(map, LatticeFns.EMPTY);
+  }
+
+  @Benchmark
+  public float[] euclidean() {
+    return distanceField.euclidean(map, LatticeFns.FILLED, distances);
+  }
+
+  @Benchmark
+  public int[] chamfer() {
+    return distanceField.chamfer(map, LatticeFns.FILLED, steps);
+  }
+
+  @Benchmark
+  public int[] breadthFirst() {
+    return distanceField.breadthFirst(map, LatticeFns.EMPTY, center, 1, steps);
+  }
+}
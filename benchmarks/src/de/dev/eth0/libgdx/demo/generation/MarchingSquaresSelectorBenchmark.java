@@ -0,0 +1,79 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+
+/**
+ * Benchmarks of selecting the tiles of a whole map. The atlas and its regions are mocked, there is no OpenGL context
+ * to load textures.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarchingSquaresSelectorBenchmark {
+
+  @Param({ "64", "256", "1024" })
+  public int size;
+
+  private boolean[][] map;
+  private BitLattice lattice;
+  private MarchingSquaresSelector selector;
+
+  @Setup
+  public void setUp() {
+    CaveGenerator cave = CaveGenerator.Builder.create()
+        .withSize(size, size)
+        .withRandomSeed(7)
+        .withBitPackedLattice(true)
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 5)
+        .build();
+    cave.initialize();
+    cave.iterate();
+    map = cave.getMap();
+    lattice = BitLattice.fromMap(map);
+
+    TextureAtlas atlas = mock(TextureAtlas.class);
+    for (int i = 0; i < MarchingSquaresSelector.TILE_COUNT; i++) {
+      when(atlas.findRegion(String.valueOf(i))).thenReturn(mock(TextureAtlas.AtlasRegion.class));
+    }
+    selector = new MarchingSquaresSelector(map, atlas);
+  }
+
+  @Benchmark
+  public void getTextureRegion(Blackhole blackhole) {
+    for (int y = 0; y < map.length - 1; y++) {
+      for (int x = 0; x < map[y].length - 1; x++) {
+        blackhole.consume(selector.getTextureRegion(x, y));
+      }
+    }
+  }
+
+  @Benchmark
+  public byte[] getIndices() {
+    return MarchingSquaresSelector.getIndices(map);
+  }
+
+  @Benchmark
+  public byte[] getIndicesBitPacked() {
+    return MarchingSquaresSelector.getIndices(lattice);
+  }
+}
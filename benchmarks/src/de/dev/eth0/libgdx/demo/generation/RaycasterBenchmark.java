@@ -0,0 +1,87 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of casting a batch of rays from empty cells of a cave in random directions, on one and on all cores.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RaycasterBenchmark {
+
+  private static final int RAYS = 65536;
+
+  @Param({ "1024" })
+  public int size;
+
+  @Param({ "16", "128" })
+  public int length;
+
+  @Param({ "1", "0" })
+  public int parallelism;
+
+  private Raycaster raycaster;
+  private float[] rays;
+  private int[] hits;
+  private float[] distances;
+
+  @Setup
+  public void setUp() {
+    boolean[][] map = CaveGenerator.Builder.create()
+        .withSize(size, size)
+        .withRandomSeed(7)
+        .withBitPackedLattice(true)
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 5)
+        .build()
+        .generateMap();
+    int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    raycaster = new Raycaster(BitLattice.fromMap(map), threads);
+    rays = new float[4 * RAYS];
+    Random random = new Random(1);
+    for (int i = 0; i < RAYS; i++) {
+      float x;
+      float y;
+      do {
+        x = 1 + random.nextFloat() * (size - 2);
+        y = 1 + random.nextFloat() * (size - 2);
+      }
+      while (map[(int)y][(int)x] == LatticeFns.FILLED);
+      double angle = random.nextDouble() * 2 * Math.PI;
+      rays[4 * i] = x;
+      rays[4 * i + 1] = y;
+      rays[4 * i + 2] = Math.max(0f, Math.min(size - 0.5f, x + (float)(Math.cos(angle) * length)));
+      rays[4 * i + 3] = Math.max(0f, Math.min(size - 0.5f, y + (float)(Math.sin(angle) * length)));
+    }
+    hits = new int[RAYS];
+    distances = new float[RAYS];
+  }
+
+  @TearDown
+  public void tearDown() {
+    raycaster.dispose();
+  }
+
+  @Benchmark
+  public int[] raycast() {
+    raycaster.raycast(rays, RAYS, hits, distances);
+    return hits;
+  }
+}
@@ -0,0 +1,95 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the fields of view of many lights in a cave: recomputing all of them, on one or several threads, and
+ * updating the cache after a wall changed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisibilityCacheBenchmark {
+
+  private static final int LIGHTS = 200;
+
+  @Param({ "8", "24" })
+  public int radius;
+
+  @Param({ "1", "4" })
+  public int parallelism;
+
+  private VisibilityCache cache;
+  private int[] toggles;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    boolean[][] map = CaveGenerator.Builder.create()
+        .withSize(1024, 1024)
+        .withRandomSeed(7)
+        .withBitPackedLattice(true)
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 5)
+        .build()
+        .generateMap();
+    BitLattice lattice = BitLattice.fromMap(map);
+    cache = new VisibilityCache(lattice, parallelism);
+    Random random = new Random(1);
+    for (int i = 0; i < LIGHTS; i++) {
+      cache.addLight(random.nextInt(lattice.getWidth()), random.nextInt(lattice.getHeight()), radius);
+    }
+    cache.update();
+    toggles = new int[256];
+    for (int i = 0; i < toggles.length; i++) {
+      int light = random.nextInt(LIGHTS);
+      int x = Math.max(0, Math.min(lattice.getWidth() - 1, cache.getX(light) + random.nextInt(5) - 2));
+      int y = Math.max(0, Math.min(lattice.getHeight() - 1, cache.getY(light) + random.nextInt(5) - 2));
+      toggles[i] = y * lattice.getWidth() + x;
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    cache.dispose();
+  }
+
+  /**
+   * Recomputes every light, like lights without a cache.
+   */
+  @Benchmark
+  public int recomputeAll() {
+    cache.invalidate();
+    return cache.update();
+  }
+
+  /**
+   * Toggles a cell next to a light and updates the lights around it.
+   */
+  @Benchmark
+  public int toggleWall() {
+    int width = cache.getLattice().getWidth();
+    int cell = toggles[next];
+    next = (next + 1) % toggles.length;
+    boolean filled = cache.getLattice().get(cell % width, cell / width);
+    cache.setFilled(cell % width, cell / width, !filled);
+    cache.setFilled(cell % width, cell / width, filled);
+    return cache.update();
+  }
+}
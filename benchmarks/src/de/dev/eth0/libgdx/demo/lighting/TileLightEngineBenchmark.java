@@ -0,0 +1,93 @@
+package de.dev.eth0.libgdx.demo.lighting;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.dev.eth0.libgdx.demo.generation.CaveGenerator;
+
+/**
+ * Benchmarks of moving one of many lights through a cave, of toggling a wall next to the lights and of writing the
+ * levels into a texture buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileLightEngineBenchmark {
+
+  private static final int LIGHTS = 200;
+
+  @Param({ "128", "1024" })
+  public int size;
+
+  private TileLightEngine engine;
+  private ByteBuffer buffer;
+  private int[] positions;
+  private int[] toggles;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    boolean[][] map = CaveGenerator.Builder.create()
+        .withSize(size, size)
+        .withRandomSeed(7)
+        .withBitPackedLattice(true)
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 5)
+        .build()
+        .generateMap();
+    engine = TileLightEngine.Builder.create().withWalls(map).build();
+    int width = engine.getWidth();
+    Random random = new Random(1);
+    for (int i = 0; i < LIGHTS; i++) {
+      int cell = random.nextInt(width * engine.getHeight());
+      engine.addLight(cell % width, cell / width, 255, 200, 120);
+    }
+    positions = new int[256];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = random.nextInt(width * engine.getHeight());
+    }
+    toggles = positions.clone();
+    buffer = ByteBuffer.allocateDirect(width * engine.getHeight() * engine.getChannels());
+  }
+
+  @Benchmark
+  public TileLightEngine moveLight() {
+    int cell = positions[next];
+    next = (next + 1) % positions.length;
+    engine.moveLight(0, cell % engine.getWidth(), cell / engine.getWidth());
+    return engine;
+  }
+
+  /**
+   * Turns a tile into a wall and opens it again.
+   */
+  @Benchmark
+  public TileLightEngine toggleWall() {
+    int cell = toggles[next];
+    next = (next + 1) % toggles.length;
+    engine.setWall(cell % engine.getWidth(), cell / engine.getWidth(), true);
+    engine.setWall(cell % engine.getWidth(), cell / engine.getWidth(), false);
+    return engine;
+  }
+
+  @Benchmark
+  public ByteBuffer writeTo() {
+    engine.writeTo(buffer);
+    return buffer;
+  }
+}
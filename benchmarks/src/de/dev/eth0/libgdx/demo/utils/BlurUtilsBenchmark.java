@@ -0,0 +1,78 @@
+package de.dev.eth0.libgdx.demo.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the blur on square images of random pixels.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlurUtilsBenchmark {
+
+  @State(Scope.Thread)
+  public static class Image {
+
+    @Param({ "64", "256", "1024" })
+    public int imageSize;
+
+    int[] pixels;
+    int[] buffer;
+    ByteBuffer rgba;
+
+    @Setup
+    public void setUp() {
+      Random random = new Random(7);
+      pixels = new int[imageSize * imageSize];
+      for (int i = 0; i < pixels.length; i++) {
+        pixels[i] = random.nextInt();
+      }
+      buffer = new int[pixels.length];
+      rgba = BlurUtils.unpack(pixels);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Radius {
+
+    @Param({ "1", "4", "16" })
+    public int radius;
+  }
+
+  @Benchmark
+  public int[] blurPass(Image image, Radius radius) {
+    BlurUtils.blurPass(image.pixels, image.buffer, image.imageSize, image.imageSize, radius.radius);
+    return image.buffer;
+  }
+
+  @Benchmark
+  public int[] blur(Image image, Radius radius) {
+    return BlurUtils.blur(image.pixels, image.imageSize, image.imageSize, radius.radius, 1);
+  }
+
+  @Benchmark
+  public int[] pack(Image image) {
+    image.rgba.rewind();
+    return BlurUtils.pack(image.rgba);
+  }
+
+  @Benchmark
+  public ByteBuffer unpack(Image image) {
+    return BlurUtils.unpack(image.pixels);
+  }
+}
@@ -0,0 +1,123 @@
+package de.dev.eth0.libgdx.demo;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import de.dev.eth0.libgdx.demo.generation.BatchCaveGenerator;
+import de.dev.eth0.libgdx.demo.generation.CaveGenerator;
+
+/**
+ * Headless command line tool generating a range of seeds with {@link BatchCaveGenerator}. The CSV is written to the
+ * given file or to stdout, the summary to stderr.
+ */
+public class CaveBatchTool {
+
+  private static final String USAGE = String.join("\n",
+      "Options:",
+      "  --seeds=N                number of seeds (default 100)",
+      "  --first-seed=S           first seed (default 0)",
+      "  --size=WxH               size of the maps (default 50x50)",
+      "  --phase=MIN,MAX,ROUNDS   phase of the automaton, repeatable (default 5,2,4 and 5,-1,5)",
+      "  --threads=N              number of threads (default: number of cores)",
+      "  --corridors=true|false   connect rooms with corridors or random walks (default true)",
+      "  --open-ratio=MIN,MAX     accepted ratio of open cells",
+      "  --rooms=MIN,MAX          accepted number of rooms",
+      "  --largest-room=MIN       minimum share of open cells in the largest room",
+      "  --maps=DIR               write the accepted maps to the directory",
+      "  --out=FILE               write the CSV to the file instead of stdout");
+
+  public static void main(String[] args) throws IOException {
+    BatchCaveGenerator.Builder builder = BatchCaveGenerator.Builder.create();
+    boolean phases = false;
+    Path out = null;
+    for (String arg : args) {
+      int idx = arg.indexOf('=');
+      if (!arg.startsWith("--") || idx < 0) {
+        fail("Unknown argument " + arg);
+      }
+      String key = arg.substring(2, idx);
+      String value = arg.substring(idx + 1);
+      String[] values = value.split(",");
+      switch (key) {
+        case "seeds":
+        case "first-seed":
+          // both are applied together below
+          break;
+        case "size":
+          String[] size = value.split("x");
+          builder.withSize(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+          break;
+        case "phase":
+          builder.addPhase(Integer.parseInt(values[0]), Integer.parseInt(values[1]), Integer.parseInt(values[2]));
+          phases = true;
+          break;
+        case "threads":
+          builder.withThreads(Integer.parseInt(value));
+          break;
+        case "corridors":
+          builder.withRoomConnection(Boolean.parseBoolean(value)
+              ? CaveGenerator.RoomConnection.CORRIDORS
+              : CaveGenerator.RoomConnection.RANDOM_WALK);
+          break;
+        case "open-ratio":
+          builder.withOpenRatio(Double.parseDouble(values[0]), Double.parseDouble(values[1]));
+          break;
+        case "rooms":
+          builder.withRoomCount(Integer.parseInt(values[0]), Integer.parseInt(values[1]));
+          break;
+        case "largest-room":
+          builder.withMinLargestRoomShare(Double.parseDouble(value));
+          break;
+        case "maps":
+          Path maps = Paths.get(value);
+          Files.createDirectories(maps);
+          builder.withMapDirectory(maps);
+          break;
+        case "out":
+          out = Paths.get(value);
+          break;
+        default:
+          fail("Unknown option " + key);
+      }
+    }
+    builder.withSeeds(parseLong(args, "first-seed", 0), (int)parseLong(args, "seeds", 100));
+    if (!phases) {
+      builder.addPhase(5, 2, 4).addPhase(5, -1, 5);
+    }
+
+    BatchCaveGenerator batch = builder.build();
+    BatchCaveGenerator.Summary summary;
+    if (out != null) {
+      try (Writer writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+        summary = batch.run(writer);
+      }
+    }
+    else {
+      Writer writer = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+      summary = batch.run(writer);
+      writer.flush();
+    }
+    System.err.println(summary);
+  }
+
+  private static long parseLong(String[] args, String key, long defaultValue) {
+    long ret = defaultValue;
+    for (String arg : args) {
+      if (arg.startsWith("--" + key + "=")) {
+        ret = Long.parseLong(arg.substring(key.length() + 3));
+      }
+    }
+    return ret;
+  }
+
+  private static void fail(String message) {
+    System.err.println(message);
+    System.err.println(USAGE);
+    System.exit(1);
+  }
+}
@@ -1,7 +1,11 @@
 package de.dev.eth0.libgdx.demo;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
 import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
@@ -19,10 +23,13 @@ import com.badlogic.gdx.utils.viewport.FitViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
 
 import de.dev.eth0.libgdx.demo.generation.CaveGenerator;
+import de.dev.eth0.libgdx.demo.generation.CaveHandoff;
+import de.dev.eth0.libgdx.demo.generation.GeneratedCave;
 import de.dev.eth0.libgdx.demo.utils.OrthographicCameraController;
 
 /**
- * Demo showcase for a procedurally generated map
+ * Demo showcase for a procedurally generated map. Press R to generate a new map in the background while the current
+ * one is still shown.
  */
 public class ProcedurallyGeneratedMapDemo extends ApplicationAdapter {
 
@@ -32,6 +39,15 @@ public class ProcedurallyGeneratedMapDemo extends ApplicationAdapter {
 
   private Stage debugStage;
 
+  private AssetManager assetManager;
+  private TextureAtlas atlas;
+  // maps are generated on this thread and handed over to the render thread
+  private ExecutorService generatorExecutor;
+  private final CaveHandoff handoff = new CaveHandoff();
+  private Future<GeneratedCave> generation;
+  private volatile int progress;
+  private int shownProgress = -1;
+
   public static final int WORLD_WIDTH = 50;
   public static final int WORLD_HEIGHT = 50;
   public static final int TILE_SIZE = 32;
@@ -51,18 +67,29 @@ public class ProcedurallyGeneratedMapDemo extends ApplicationAdapter {
 
     OrthographicCameraController cameraController = new OrthographicCameraController(camera);
     Gdx.input.setInputProcessor(cameraController);
-    // generate map
-    TiledMap tiledMap = generateMap();
-    mapRenderer = new OrthogonalTiledMapRenderer(tiledMap, 1f / TILE_SIZE);
-  }
 
-  private TiledMap generateMap() {
-    AssetManager assetManager = new AssetManager();
+    assetManager = new AssetManager();
     assetManager.load("marchingSquares.atlas", TextureAtlas.class);
     assetManager.finishLoading();
+    atlas = assetManager.get("marchingSquares.atlas", TextureAtlas.class);
+
+    generatorExecutor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "cave-generator");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // the map is shown as soon as it was generated
+    mapRenderer = new OrthogonalTiledMapRenderer(new TiledMap(), 1f / TILE_SIZE);
+    generateMap();
+  }
 
-    TextureAtlas atlas = assetManager.get("marchingSquares.atlas", TextureAtlas.class);
-
+  /**
+   * Starts generating a new map in the background, a generation which is still running is cancelled.
+   */
+  private void generateMap() {
+    if (generation != null) {
+      generation.cancel(true);
+    }
     CaveGenerator caveGenerator = CaveGenerator.Builder.create()
         .withSize(WORLD_WIDTH, WORLD_HEIGHT)
         .withRandomSeed(System.currentTimeMillis())
@@ -70,21 +97,42 @@ public class ProcedurallyGeneratedMapDemo extends ApplicationAdapter {
         .addPhase(5, -1, 5)
         .withTileSet(atlas)
         .withTileSize(TILE_SIZE)
+        .withProgressListener((round, rounds) -> progress = 100 * round / rounds)
         .build();
-    TiledMap ret = caveGenerator.generate();
+    progress = 0;
+    generation = caveGenerator.generateAsync(generatorExecutor, handoff);
+  }
+
+  /**
+   * Switches to a generated map, called on the render thread.
+   */
+  private void showMap(GeneratedCave cave) {
+    mapRenderer.setMap(cave.getTiledMap());
 
-    boolean[][] map = caveGenerator.getMap();
+    debugStage.clear();
+    boolean[][] map = cave.getMap();
     for (int y = 0; y < map.length; y++) {
       for (int x = 0; x < map.length; x++) {
         // the generated map is upside down, so we need to shift the y position. We also shift the overlay so the corners match the tiles
         debugStage.addActor(new BlockActor(x - 0.5f, (map.length - 1.5f - y), map[y][x]));
       }
     }
-    return ret;
   }
 
   @Override
   public void render() {
+    if (Gdx.input.isKeyJustPressed(Input.Keys.R)) {
+      generateMap();
+    }
+    GeneratedCave cave = handoff.poll();
+    if (cave != null) {
+      showMap(cave);
+    }
+    if (progress != shownProgress) {
+      shownProgress = progress;
+      Gdx.graphics.setTitle("Procedurally generated map - " + shownProgress + "%");
+    }
+
     camera.update();
 
     Batch batch = mapRenderer.getBatch();
@@ -107,6 +155,14 @@ public class ProcedurallyGeneratedMapDemo extends ApplicationAdapter {
     viewport.update(width, height);
   }
 
+  @Override
+  public void dispose() {
+    generatorExecutor.shutdownNow();
+    mapRenderer.dispose();
+    debugStage.dispose();
+    assetManager.dispose();
+  }
+
   /**
    * Actor used to render an overlay on the map which displays the filled and empty corners
    */
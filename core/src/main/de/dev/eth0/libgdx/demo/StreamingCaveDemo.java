@@ -0,0 +1,105 @@
+package de.dev.eth0.libgdx.demo;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
+import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
+import com.badlogic.gdx.utils.viewport.FitViewport;
+import com.badlogic.gdx.utils.viewport.Viewport;
+
+import de.dev.eth0.libgdx.demo.generation.ChunkedCaveGenerator;
+import de.dev.eth0.libgdx.demo.generation.ChunkedTileLayer;
+import de.dev.eth0.libgdx.demo.utils.OrthographicCameraController;
+
+/**
+ * Demo showcase for a procedurally generated map that is generated in chunks around the camera while dragging it
+ * around
+ */
+public class StreamingCaveDemo extends ApplicationAdapter {
+
+  private OrthogonalTiledMapRenderer mapRenderer;
+  private OrthographicCamera camera;
+  private Viewport viewport;
+  private AssetManager assetManager;
+  private ChunkedTileLayer tileLayer;
+
+  public static final int VIEW_WIDTH = 50;
+  public static final int VIEW_HEIGHT = 50;
+  public static final int TILE_SIZE = 32;
+  // size of the layer in tiles, chunks are only generated when they become visible
+  public static final int LAYER_SIZE = 1 << 16;
+
+  @Override
+  public void create() {
+    super.create();
+
+    camera = new OrthographicCamera();
+    camera.setToOrtho(false, VIEW_WIDTH, VIEW_HEIGHT);
+    viewport = new FitViewport(VIEW_WIDTH, VIEW_HEIGHT, camera);
+    // start in the middle of the layer
+    camera.position.set(LAYER_SIZE / 2f, LAYER_SIZE / 2f, 0f);
+
+    OrthographicCameraController cameraController = new OrthographicCameraController(camera);
+    Gdx.input.setInputProcessor(cameraController);
+
+    assetManager = new AssetManager();
+    assetManager.load("marchingSquares.atlas", TextureAtlas.class);
+    assetManager.finishLoading();
+    TextureAtlas atlas = assetManager.get("marchingSquares.atlas", TextureAtlas.class);
+
+    ChunkedCaveGenerator generator = ChunkedCaveGenerator.Builder.create()
+        .withRandomSeed(System.currentTimeMillis())
+        .withChunkSize(64)
+        .withCacheSize(64)
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 5)
+        .build();
+    tileLayer = new ChunkedTileLayer(generator, atlas, LAYER_SIZE, LAYER_SIZE, TILE_SIZE, -LAYER_SIZE / 2,
+        -LAYER_SIZE / 2, 64);
+
+    TiledMap tiledMap = new TiledMap();
+    tiledMap.getLayers().add(tileLayer);
+    mapRenderer = new OrthogonalTiledMapRenderer(tiledMap, 1f / TILE_SIZE);
+  }
+
+  @Override
+  public void render() {
+    camera.update();
+
+    // clear screen
+    Gdx.gl.glClearColor(0f, 0f, 0f, 1f);
+    Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+    viewport.apply();
+    mapRenderer.setView(camera);
+    // generate the chunks around the view before rendering, the renderer only asks for the visible cells
+    float width = camera.viewportWidth * camera.zoom;
+    float height = camera.viewportHeight * camera.zoom;
+    tileLayer.prefetch(camera.position.x - width, camera.position.y - height, 2 * width, 2 * height);
+    mapRenderer.render();
+  }
+
+  @Override
+  public void resize(int width, int height) {
+    viewport.update(width, height);
+  }
+
+  @Override
+  public void dispose() {
+    mapRenderer.dispose();
+    assetManager.dispose();
+  }
+
+  public static void main(String[] arg) {
+    LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
+    config.width = 1200;
+    config.height = 800;
+    new LwjglApplication(new StreamingCaveDemo(), config);
+  }
+}
@@ -10,27 +10,41 @@ import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapObject;
 import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
 import com.badlogic.gdx.maps.tiled.TmxMapLoader;
 import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.viewport.FitViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
 
+import de.dev.eth0.libgdx.demo.lighting.TileLightEngine;
 import de.dev.eth0.libgdx.demo.utils.OrthographicCameraController;
 
 /**
  * Demo on how to implement a light system for tiledMaps
+ *
+ * The light of every tile is computed by a {@link TileLightEngine}, tiles with collision objects block the light. The
+ * levels are uploaded into a texture with one pixel per tile whenever they change, one light follows the mouse.
  */
 public class TiledMapLightMap extends ApplicationAdapter {
 
+  private TiledMap tiledMap;
   private OrthogonalTiledMapRenderer mapRenderer;
   private OrthographicCamera camera;
   private Viewport viewport;
 
+  private TileLightEngine lightEngine;
+  private int mouseLight;
+  private Pixmap lightPixmap;
   private Texture lightTexture;
   private Matrix4 worldProjectionMatrix;
+  private final Vector3 mouse = new Vector3();
 
   private FrameBuffer frameBuffer;
 
@@ -41,7 +55,7 @@ public class TiledMapLightMap extends ApplicationAdapter {
   @Override
   public void create() {
     super.create();
-    TiledMap tiledMap = new TmxMapLoader().load("forest.tmx");
+    tiledMap = new TmxMapLoader().load("forest.tmx");
     mapRenderer = new OrthogonalTiledMapRenderer(tiledMap, 1 / 32f);
 
     //Configure viewport / camera to show the whole world
@@ -58,12 +72,61 @@ public class TiledMapLightMap extends ApplicationAdapter {
     worldProjectionMatrix = new Matrix4();
     worldProjectionMatrix.setToOrtho2D(0f,0f , WORLD_WIDTH, WORLD_HEIGHT);
 
-    lightTexture=new Texture("light_forest.png");
+    lightEngine = TileLightEngine.Builder.create()
+        .withWalls(getWalls(tiledMap))
+        .withFalloff(24)
+        .build();
+    lightEngine.setAmbient(40, 40, 70);
+    lightEngine.addLight(10, 20, 255, 200, 120);
+    lightEngine.addLight(38, 8, 120, 160, 255);
+    mouseLight = lightEngine.addLight(WORLD_WIDTH / 2, WORLD_HEIGHT / 2, 255, 255, 255);
+
+    // one pixel per tile, stretched over the world with linear filtering
+    lightPixmap = new Pixmap(WORLD_WIDTH, WORLD_HEIGHT, Pixmap.Format.RGB888);
+    lightTexture = new Texture(lightPixmap);
+    lightTexture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+  }
+
+  /**
+   * @return the tiles of all tile layers with collision objects.
+   */
+  private static boolean[][] getWalls(TiledMap tiledMap) {
+    boolean[][] ret = new boolean[WORLD_HEIGHT][WORLD_WIDTH];
+    for (MapLayer layer : tiledMap.getLayers()) {
+      if (!(layer instanceof TiledMapTileLayer)) {
+        continue;
+      }
+      TiledMapTileLayer tileLayer = (TiledMapTileLayer)layer;
+      for (int y = 0; y < WORLD_HEIGHT; y++) {
+        for (int x = 0; x < WORLD_WIDTH; x++) {
+          TiledMapTileLayer.Cell cell = tileLayer.getCell(x, y);
+          if (cell == null || cell.getTile() == null) {
+            continue;
+          }
+          for (MapObject object : cell.getTile().getObjects()) {
+            ret[y][x] |= "COLLISION".equals(object.getProperties().get("TYPE"));
+          }
+        }
+      }
+    }
+    return ret;
+  }
+
+  private void updateLights() {
+    viewport.unproject(mouse.set(Gdx.input.getX(), Gdx.input.getY(), 0f));
+    int x = MathUtils.clamp((int)mouse.x, 0, WORLD_WIDTH - 1);
+    int y = MathUtils.clamp((int)mouse.y, 0, WORLD_HEIGHT - 1);
+    lightEngine.moveLight(mouseLight, x, y);
+    if (lightEngine.isDirty()) {
+      lightEngine.writeTo(lightPixmap.getPixels());
+      lightTexture.draw(lightPixmap, 0, 0);
+    }
   }
 
   @Override
   public void render() {
     camera.update();
+    updateLights();
 
     Batch batch = mapRenderer.getBatch();
 
@@ -121,6 +184,17 @@ public class TiledMapLightMap extends ApplicationAdapter {
     }
   }
 
+  @Override
+  public void dispose() {
+    lightPixmap.dispose();
+    lightTexture.dispose();
+    if (frameBuffer != null) {
+      frameBuffer.dispose();
+    }
+    mapRenderer.dispose();
+    tiledMap.dispose();
+  }
+
   public static void main (String[] arg) {
     LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
     config.width = 2400;
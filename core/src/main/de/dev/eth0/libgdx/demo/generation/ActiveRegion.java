@@ -0,0 +1,155 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.Arrays;
+
+/**
+ * Tracks which cells of the map can change in the next step of the automaton.
+ * <p>
+ * The map is split into blocks of 64 cells of a row, the size of a {@link BitLattice} word. After a step the blocks
+ * which changed are marked and dilated by the radius of the rule: a cell whose neighbourhood didn't change has the
+ * same next value as its current one, so only the active blocks have to be stepped and all other blocks are copied.
+ * Every cell is active after {@link #reset()}, which is needed whenever the rule changes.
+ * </p>
+ * {@link #compare(boolean[][], boolean[][], int, int)} may be called for distinct rows from several threads, all other
+ * methods are single-threaded.
+ */
+class ActiveRegion {
+
+  static final int BLOCK_SHIFT = 6;
+
+  private final int width;
+  private final int height;
+  private final int blocksPerRow;
+
+  private final boolean[] changed;
+  private final boolean[] active;
+  private final boolean[] activeRows;
+  private final int[] rowChanges;
+  // whether every cell is active
+  private boolean all = true;
+
+  ActiveRegion(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.blocksPerRow = (width + (1 << BLOCK_SHIFT) - 1) >>> BLOCK_SHIFT;
+    this.changed = new boolean[blocksPerRow * height];
+    this.active = new boolean[blocksPerRow * height];
+    this.activeRows = new boolean[height];
+    this.rowChanges = new int[height];
+  }
+
+  /**
+   * Marks every cell as active.
+   */
+  void reset() {
+    all = true;
+  }
+
+  /**
+   * @return whether every cell is active.
+   */
+  boolean isAll() {
+    return all;
+  }
+
+  boolean isRowActive(int y) {
+    return all || activeRows[y];
+  }
+
+  /**
+   * @return the activity of the blocks, row after row, or {@code null} if every cell is active.
+   */
+  boolean[] getActiveBlocks() {
+    return all ? null : active;
+  }
+
+  /**
+   * Compares the active blocks of the rows {@code [fromRow, toRow)} after a step with the map before it.
+   */
+  void compare(boolean[][] current, boolean[][] previous, int fromRow, int toRow) {
+    for (int y = fromRow; y < toRow; ++y) {
+      int count = 0;
+      for (int block = 0; block < blocksPerRow; ++block) {
+        int idx = y * blocksPerRow + block;
+        int blockChanges = 0;
+        if (all || active[idx]) {
+          int to = Math.min(width, (block + 1) << BLOCK_SHIFT);
+          for (int x = block << BLOCK_SHIFT; x < to; ++x) {
+            blockChanges += current[y][x] != previous[y][x] ? 1 : 0;
+          }
+        }
+        changed[idx] = blockChanges > 0;
+        count += blockChanges;
+      }
+      rowChanges[y] = count;
+    }
+  }
+
+  /**
+   * Same as {@link #compare(boolean[][], boolean[][], int, int)} for bit-packed lattices.
+   */
+  void compare(BitLattice current, BitLattice previous, int fromRow, int toRow) {
+    long[] currentWords = current.getWords();
+    long[] previousWords = previous.getWords();
+    for (int y = fromRow; y < toRow; ++y) {
+      int count = 0;
+      for (int idx = y * blocksPerRow; idx < (y + 1) * blocksPerRow; ++idx) {
+        int blockChanges = Long.bitCount(currentWords[idx] ^ previousWords[idx]);
+        changed[idx] = blockChanges > 0;
+        count += blockChanges;
+      }
+      rowChanges[y] = count;
+    }
+  }
+
+  /**
+   * Activates the blocks within {@code radius} of a changed block of the last compared rows, every other block is
+   * inactive. Rows which weren't compared count as unchanged.
+   *
+   * @return the number of cells changed by the step.
+   */
+  int update(int radius, int fromRow, int toRow) {
+    int ret = 0;
+    for (int y = fromRow; y < toRow; ++y) {
+      ret += rowChanges[y];
+    }
+    Arrays.fill(changed, 0, fromRow * blocksPerRow, false);
+    Arrays.fill(changed, toRow * blocksPerRow, changed.length, false);
+
+    // horizontally into active, then vertically back into changed
+    int blockRadius = (radius + (1 << BLOCK_SHIFT) - 1) >>> BLOCK_SHIFT;
+    for (int y = 0; y < height; ++y) {
+      int row = y * blocksPerRow;
+      for (int block = 0; block < blocksPerRow; ++block) {
+        boolean any = false;
+        int to = Math.min(blocksPerRow - 1, block + blockRadius);
+        for (int b = Math.max(0, block - blockRadius); b <= to; ++b) {
+          any |= changed[row + b];
+        }
+        active[row + block] = any;
+      }
+    }
+    for (int y = 0; y < height; ++y) {
+      int row = y * blocksPerRow;
+      for (int block = 0; block < blocksPerRow; ++block) {
+        boolean any = false;
+        int to = Math.min(height - 1, y + radius);
+        for (int i = Math.max(0, y - radius); i <= to; ++i) {
+          any |= active[i * blocksPerRow + block];
+        }
+        changed[row + block] = any;
+      }
+    }
+    System.arraycopy(changed, 0, active, 0, active.length);
+
+    for (int y = 0; y < height; ++y) {
+      boolean any = false;
+      for (int idx = y * blocksPerRow; idx < (y + 1) * blocksPerRow; ++idx) {
+        any |= active[idx];
+      }
+      activeRows[y] = any;
+    }
+    all = false;
+    return ret;
+  }
+}
@@ -0,0 +1,370 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static de.dev.eth0.libgdx.demo.generation.LatticeFns.FILLED;
+
+import java.util.Arrays;
+
+/**
+ * A rule of the cellular automaton: the next value of a cell as a function of its current value and the number of
+ * filled cells in one or two neighbourhoods. Neighbourhood counts don't include the cell itself, cells outside of the
+ * map count as empty.
+ * <p>
+ * The rule is compiled into a lookup table indexed by the value and the counts. A step counts the neighbourhoods from
+ * prefix sums of the rows, see {@link RowSums}, so every row of a neighbourhood costs two reads no matter how wide it
+ * is, and the loop over the cells has no branches.
+ * </p>
+ * The rule of the original generator is the {@link #cave(int, int) cave preset}, the {@link CaveGenerator} and
+ * {@link ChunkedCaveGenerator} run it with their specialised kernels.
+ */
+public class AutomatonRule {
+
+  /**
+   * Shapes of a neighbourhood of radius {@code r}.
+   */
+  public enum Shape {
+    /**
+     * The {@code (2r + 1)^2} square.
+     */
+    MOORE,
+    /**
+     * The diamond of cells with {@code |dx| + |dy| <= r}.
+     */
+    VON_NEUMANN,
+    /**
+     * The disc of cells with {@code dx^2 + dy^2 <= r * (r + 1)}. For radius 2 this is the 5x5 square without its
+     * corners.
+     */
+    CIRCLE;
+
+    /**
+     * @return the half width of the row {@code dy} of the neighbourhood.
+     */
+    int halfWidth(int radius, int dy) {
+      switch (this) {
+        case MOORE:
+          return radius;
+        case VON_NEUMANN:
+          return radius - Math.abs(dy);
+        default:
+          int ret = radius;
+          while (ret * ret + dy * dy > radius * (radius + 1)) {
+            ret--;
+          }
+          return ret;
+      }
+    }
+  }
+
+  /**
+   * The next value of a cell.
+   */
+  @FunctionalInterface
+  public interface Transition {
+
+    /**
+     * @param filled - the current value of the cell.
+     * @param count1 - filled cells in the first neighbourhood.
+     * @param count2 - filled cells in the second neighbourhood, 0 if the rule has only one.
+     * @return the next value of the cell.
+     */
+    boolean next(boolean filled, int count1, int count2);
+  }
+
+  private final int radius1;
+  private final int radius2;
+  private final int size1;
+  private final int size2;
+
+  // offsets of the prefix sums relative to the cell, see step
+  private final int[] halfWidths1;
+  private final int[] halfWidths2;
+
+  // next value indexed by (filled * (size1 + 1) + count1) * (size2 + 1) + count2
+  private final boolean[] table;
+
+  // set for the cave preset only
+  private final boolean cave;
+  private final int min;
+  private final int max;
+
+  private AutomatonRule(Shape shape1, int radius1, Shape shape2, int radius2, Transition transition, boolean cave,
+      int min, int max) {
+    if (radius1 < 1 || (shape2 != null && radius2 < 1)) {
+      throw new IllegalArgumentException("Radius must be at least 1");
+    }
+    this.radius1 = radius1;
+    this.radius2 = shape2 != null ? radius2 : 0;
+    this.halfWidths1 = halfWidths(shape1, radius1);
+    this.halfWidths2 = shape2 != null ? halfWidths(shape2, radius2) : new int[0];
+    this.size1 = size(halfWidths1);
+    this.size2 = shape2 != null ? size(halfWidths2) : 0;
+    this.cave = cave;
+    this.min = min;
+    this.max = max;
+
+    table = new boolean[2 * (size1 + 1) * (size2 + 1)];
+    for (int filled = 0; filled < 2; ++filled) {
+      for (int count1 = 0; count1 <= size1; ++count1) {
+        for (int count2 = 0; count2 <= size2; ++count2) {
+          table[(filled * (size1 + 1) + count1) * (size2 + 1) + count2] =
+              transition.next(filled == 1 == FILLED, count1, count2);
+        }
+      }
+    }
+  }
+
+  /**
+   * The rule of the original generator: a cell is filled if at least {@code min} cells of its 3x3 square or at most
+   * {@code max} cells of the 5x5 square without corners are filled, both counting the cell itself.
+   */
+  public static AutomatonRule cave(int min, int max) {
+    return new AutomatonRule(Shape.MOORE, 1, Shape.CIRCLE, 2, caveTransition(min, max), true, min, max);
+  }
+
+  /**
+   * Same as {@link #cave(int, int)} but not marked as the preset, so it is run by the general engine.
+   */
+  static AutomatonRule caveTable(int min, int max) {
+    return new AutomatonRule(Shape.MOORE, 1, Shape.CIRCLE, 2, caveTransition(min, max), false, -1, -1);
+  }
+
+  private static Transition caveTransition(int min, int max) {
+    return (filled, count1, count2) -> {
+      int self = filled == FILLED ? 1 : 0;
+      return count1 + self >= min || count2 + self <= max;
+    };
+  }
+
+  /**
+   * A rule in birth/survive notation over a single neighbourhood: an empty cell becomes filled if its count is one of
+   * {@code birth}, a filled cell stays filled if its count is one of {@code survive}.
+   */
+  public static AutomatonRule birthSurvive(Shape shape, int radius, int[] birth, int[] survive) {
+    int[] sortedBirth = birth.clone();
+    int[] sortedSurvive = survive.clone();
+    Arrays.sort(sortedBirth);
+    Arrays.sort(sortedSurvive);
+    return new AutomatonRule(shape, radius, null, 0, (filled, count, unused) ->
+        Arrays.binarySearch(filled == FILLED ? sortedSurvive : sortedBirth, count) >= 0, false, -1, -1);
+  }
+
+  /**
+   * A rule over one neighbourhood given as a function.
+   */
+  public static AutomatonRule of(Shape shape, int radius, Transition transition) {
+    return new AutomatonRule(shape, radius, null, 0, transition, false, -1, -1);
+  }
+
+  /**
+   * A rule over two neighbourhoods given as a function.
+   */
+  public static AutomatonRule of(Shape shape1, int radius1, Shape shape2, int radius2, Transition transition) {
+    return new AutomatonRule(shape1, radius1, shape2, radius2, transition, false, -1, -1);
+  }
+
+  /**
+   * @return whether this is the {@link #cave(int, int) cave preset}.
+   */
+  public boolean isCave() {
+    return cave;
+  }
+
+  /**
+   * @return {@code min} of the cave preset.
+   */
+  public int getMin() {
+    checkCave();
+    return min;
+  }
+
+  /**
+   * @return {@code max} of the cave preset.
+   */
+  public int getMax() {
+    checkCave();
+    return max;
+  }
+
+  private void checkCave() {
+    if (!cave) {
+      throw new IllegalStateException("Not a cave rule");
+    }
+  }
+
+  /**
+   * @return the largest distance of a cell whose value influences the next value of a cell.
+   */
+  public int getRadius() {
+    return Math.max(radius1, radius2);
+  }
+
+  /**
+   * @return the number of cells of the first neighbourhood.
+   */
+  public int getSize1() {
+    return size1;
+  }
+
+  /**
+   * @return the number of cells of the second neighbourhood, 0 if there is none.
+   */
+  public int getSize2() {
+    return size2;
+  }
+
+  /**
+   * @return the next value of the cell for the given counts.
+   */
+  public boolean next(boolean filled, int count1, int count2) {
+    return table[((filled == FILLED ? size1 + 1 : 0) + count1) * (size2 + 1) + count2];
+  }
+
+  /**
+   * Steps the interior cells of the rows {@code [fromRow, toRow)}, the other cells of {@code dst} are left alone.
+   *
+   * @param sums - the row sums of the current map.
+   * @param dst  - receives the next values.
+   */
+  public void step(RowSums sums, boolean[][] dst, int fromRow, int toRow) {
+    int width = sums.width;
+    for (int y = fromRow; y < toRow; ++y) {
+      boolean[] row = dst[y];
+      int base = sums.index(y, 0);
+      for (int x = 1; x < width - 1; ++x) {
+        row[x] = table[lookup(sums.sums, sums.stride, base + x)];
+      }
+    }
+  }
+
+  /**
+   * Same as {@link #step(RowSums, boolean[][], int, int)} for a bit-packed lattice.
+   */
+  public void step(RowSums sums, BitLattice dst, int fromRow, int toRow) {
+    int width = sums.width;
+    int wordsPerRow = dst.getWordsPerRow();
+    long[] words = dst.getWords();
+    for (int y = fromRow; y < toRow; ++y) {
+      int base = sums.index(y, 0);
+      for (int w = 0; w < wordsPerRow; ++w) {
+        int from = Math.max(1, w << 6);
+        int to = Math.min(width - 1, (w + 1) << 6);
+        if (from >= to) {
+          continue;
+        }
+        long bits = 0;
+        long mask = 0;
+        for (int x = from; x < to; ++x) {
+          long next = table[lookup(sums.sums, sums.stride, base + x)] == FILLED ? 1L : 0L;
+          bits |= next << x;
+          mask |= 1L << x;
+        }
+        int idx = y * wordsPerRow + w;
+        words[idx] = (words[idx] & ~mask) | bits;
+      }
+    }
+  }
+
+  /**
+   * @return the index of the table entry of the cell at {@code idx} of the row sums.
+   */
+  private int lookup(int[] sums, int stride, int idx) {
+    int filled = sums[idx + 1] - sums[idx];
+    int count1 = -filled;
+    for (int i = 0; i < halfWidths1.length; ++i) {
+      int row = idx + (i - radius1) * stride;
+      count1 += sums[row + halfWidths1[i] + 1] - sums[row - halfWidths1[i]];
+    }
+    int count2 = 0;
+    if (halfWidths2.length > 0) {
+      count2 = -filled;
+      for (int i = 0; i < halfWidths2.length; ++i) {
+        int row = idx + (i - radius2) * stride;
+        count2 += sums[row + halfWidths2[i] + 1] - sums[row - halfWidths2[i]];
+      }
+    }
+    return (filled * (size1 + 1) + count1) * (size2 + 1) + count2;
+  }
+
+  private static int[] halfWidths(Shape shape, int radius) {
+    int[] ret = new int[2 * radius + 1];
+    for (int dy = -radius; dy <= radius; ++dy) {
+      ret[dy + radius] = shape.halfWidth(radius, dy);
+    }
+    return ret;
+  }
+
+  private static int size(int[] halfWidths) {
+    int ret = -1;
+    for (int halfWidth : halfWidths) {
+      ret += 2 * halfWidth + 1;
+    }
+    return ret;
+  }
+
+  /**
+   * Prefix sums of the rows of a map, padded by a margin of empty cells so neighbourhoods can be counted without
+   * bounds checks. Entry {@code x + pad} of row {@code y + pad} is the number of filled cells of row {@code y} left
+   * of column {@code x}. Updating the sums is single-threaded, reading them from several threads is safe.
+   */
+  public static class RowSums {
+
+    private final int width;
+    private final int height;
+    private final int pad;
+    private final int stride;
+    private final int[] sums;
+
+    /**
+     * @param radius - the largest radius of the rules the sums are used with.
+     */
+    public RowSums(int width, int height, int radius) {
+      this.width = width;
+      this.height = height;
+      this.pad = radius;
+      this.stride = width + 2 * radius + 1;
+      this.sums = new int[stride * (height + 2 * radius)];
+    }
+
+    public int getRadius() {
+      return pad;
+    }
+
+    public void update(boolean[][] map) {
+      for (int y = 0; y < height; ++y) {
+        boolean[] row = map[y];
+        int idx = index(y, 0);
+        int sum = 0;
+        for (int x = 0; x < width; ++x) {
+          sums[idx + x] = sum;
+          sum += row[x] == FILLED ? 1 : 0;
+        }
+        fillRight(idx + width, sum);
+      }
+    }
+
+    public void update(BitLattice lattice) {
+      long[] words = lattice.getWords();
+      int wordsPerRow = lattice.getWordsPerRow();
+      for (int y = 0; y < height; ++y) {
+        int idx = index(y, 0);
+        int sum = 0;
+        for (int x = 0; x < width; ++x) {
+          sums[idx + x] = sum;
+          sum += (int)(words[y * wordsPerRow + (x >>> 6)] >>> x) & 1;
+        }
+        fillRight(idx + width, sum);
+      }
+    }
+
+    // the sum stays the same across the right margin
+    private void fillRight(int from, int sum) {
+      for (int i = 0; i <= pad; ++i) {
+        sums[from + i] = sum;
+      }
+    }
+
+    private int index(int y, int x) {
+      return (y + pad) * stride + x + pad;
+    }
+  }
+}
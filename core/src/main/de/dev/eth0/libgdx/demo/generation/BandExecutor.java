@@ -0,0 +1,114 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Splits a range of indices into bands which are processed in parallel, for the classes with a parallelism setting.
+ * <p>
+ * The bands run on the given executor or on a {@link ForkJoinPool} with the configured parallelism, which is created
+ * on first use and shut down by {@link #dispose()}. With a parallelism of 1 or a single band everything runs on the
+ * calling thread.
+ * </p>
+ */
+class BandExecutor implements Disposable {
+
+  static final int BANDS_PER_THREAD = 4;
+
+  private final int parallelism;
+  private final boolean owned;
+  private ExecutorService executor;
+
+  /**
+   * @param executor - executor running the bands or {@code null} to create a pool, which isn't shut down by
+   *                 {@link #dispose()} if given.
+   */
+  BandExecutor(int parallelism, ExecutorService executor) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1");
+    }
+    this.parallelism = parallelism;
+    this.owned = executor == null;
+    this.executor = executor;
+  }
+
+  int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * @return the maximum number of bands, so every band can have its own scratch space.
+   */
+  int getMaxBands() {
+    return parallelism * BANDS_PER_THREAD;
+  }
+
+  /**
+   * Splits {@code [0, count)} into bands of at least {@code minBandSize} indices and waits until all of them were
+   * processed.
+   *
+   * @param operation - what the bands do, for the messages of the exceptions.
+   */
+  void run(int count, int minBandSize, Band band, String operation) {
+    int bands = Math.min(count / minBandSize, getMaxBands());
+    if (parallelism <= 1 || bands <= 1) {
+      band.run(0, 0, count);
+      return;
+    }
+    List<Callable<Void>> tasks = new ArrayList<>(bands);
+    for (int b = 0; b < bands; ++b) {
+      int index = b;
+      int from = (int)((long)count * b / bands);
+      int to = (int)((long)count * (b + 1) / bands);
+      tasks.add(() -> {
+        band.run(index, from, to);
+        return null;
+      });
+    }
+    try {
+      for (Future<Void> future : executor().invokeAll(tasks)) {
+        future.get();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GdxRuntimeException("Interrupted while " + operation, e);
+    }
+    catch (ExecutionException e) {
+      throw new GdxRuntimeException("Failed " + operation, e.getCause());
+    }
+  }
+
+  private synchronized ExecutorService executor() {
+    if (executor == null) {
+      executor = new ForkJoinPool(parallelism);
+    }
+    return executor;
+  }
+
+  /**
+   * Shuts down the created pool, a new one is created if bands run again.
+   */
+  @Override
+  public synchronized void dispose() {
+    if (owned && executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  interface Band {
+
+    /**
+     * @param index - index of the band, below {@link #getMaxBands()}.
+     */
+    void run(int index, int from, int to);
+  }
+}
@@ -0,0 +1,358 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static de.dev.eth0.libgdx.demo.generation.LatticeFns.EMPTY;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Generates caves for a range of seeds without an application, e.g. to find seeds for good levels offline.
+ * <p>
+ * Every seed runs through stages: the automaton, the open-cell ratio, labelling the rooms for the room count and the
+ * share of the largest room, and finally connecting the rooms and writing the map if a map directory is set. The
+ * filters are checked as soon as their value is known, a seed failing a filter skips the remaining stages. The
+ * statistics are taken from the map produced by the automaton, before the rooms are connected.
+ * </p>
+ * The seeds are distributed over a fixed number of threads, each seed is generated single-threaded on the bit-packed
+ * lattice.
+ */
+public class BatchCaveGenerator {
+
+  public static final String CSV_HEADER = "seed,open_ratio,rooms,largest_room_share,rejected_by";
+
+  private long firstSeed;
+  private int seeds = 100;
+  private int width = 50;
+  private int height = 50;
+  private final List<CaveGenerator.Phase> phases;
+  private CaveGenerator.RoomConnection roomConnection = CaveGenerator.RoomConnection.CORRIDORS;
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  private double minOpenRatio = 0;
+  private double maxOpenRatio = 1;
+  private int minRooms = 0;
+  private int maxRooms = Integer.MAX_VALUE;
+  private double minLargestRoomShare = 0;
+
+  // accepted maps are written to this directory if it is set
+  private Path mapDirectory;
+
+  private BatchCaveGenerator() {
+    this.phases = new ArrayList<>();
+  }
+
+  /**
+   * Generates all seeds and writes one CSV row per seed in the order of the seeds.
+   *
+   * @param csv - receives the header and the rows.
+   * @return the summary of the run.
+   */
+  public Summary run(Appendable csv) throws IOException {
+    long start = System.nanoTime();
+    Result[] results = new Result[seeds];
+    AtomicInteger next = new AtomicInteger();
+    List<Callable<Void>> workers = new ArrayList<>(threads);
+    for (int t = 0; t < threads; ++t) {
+      workers.add(() -> {
+        for (int i = next.getAndIncrement(); i < seeds; i = next.getAndIncrement()) {
+          results[i] = generate(firstSeed + i);
+        }
+        return null;
+      });
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (Future<Void> future : executor.invokeAll(workers)) {
+        future.get();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GdxRuntimeException("Interrupted while generating", e);
+    }
+    catch (ExecutionException e) {
+      throw new GdxRuntimeException("Generation failed", e.getCause());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    long nanos = System.nanoTime() - start;
+
+    int accepted = 0;
+    csv.append(CSV_HEADER).append('\n');
+    for (Result result : results) {
+      csv.append(result.toCsv()).append('\n');
+      if (result.isAccepted()) {
+        accepted++;
+      }
+    }
+    return new Summary(seeds, accepted, nanos, threads);
+  }
+
+  /**
+   * Generates a single seed, stopping at the first filter it fails.
+   */
+  public Result generate(long seed) {
+    CaveGenerator.Builder builder = CaveGenerator.Builder.create()
+        .withSize(width, height)
+        .withRandomSeed(seed)
+        .withBitPackedLattice(true)
+        .withRoomConnection(roomConnection);
+    for (CaveGenerator.Phase phase : phases) {
+      builder.addPhase(phase.getRule(), phase.getRounds());
+    }
+    CaveGenerator cave = builder.build();
+    cave.initialize();
+    cave.iterate();
+    boolean[][] map = cave.getMap();
+
+    // the border is always filled, only the interior counts
+    int open = 0;
+    for (int y = 1; y < map.length - 1; ++y) {
+      for (int x = 1; x < map[y].length - 1; ++x) {
+        if (map[y][x] == EMPTY) {
+          open++;
+        }
+      }
+    }
+    double openRatio = (double)open / ((map.length - 2) * (map[0].length - 2));
+    if (openRatio < minOpenRatio || openRatio > maxOpenRatio) {
+      return new Result(seed, openRatio, -1, Double.NaN, Filter.OPEN_RATIO);
+    }
+
+    RoomLabels rooms = RoomLabels.label(map, EMPTY);
+    int roomCount = rooms.getRoomCount();
+    double largestRoomShare = roomCount == 0 ? 0 : (double)rooms.getArea(rooms.getRoomsBySize()[0]) / open;
+    if (roomCount < minRooms || roomCount > maxRooms) {
+      return new Result(seed, openRatio, roomCount, largestRoomShare, Filter.ROOM_COUNT);
+    }
+    if (largestRoomShare < minLargestRoomShare) {
+      return new Result(seed, openRatio, roomCount, largestRoomShare, Filter.LARGEST_ROOM_SHARE);
+    }
+
+    if (mapDirectory != null) {
+      cave.fixRooms();
+      Path file = mapDirectory.resolve(seed + ".txt");
+      try {
+        Files.write(file, CaveGenerator.toString(cave.getMap()).getBytes(StandardCharsets.US_ASCII));
+      }
+      catch (IOException e) {
+        throw new GdxRuntimeException("Couldn't write " + file, e);
+      }
+    }
+    return new Result(seed, openRatio, roomCount, largestRoomShare, null);
+  }
+
+  /**
+   * The filters a seed can fail.
+   */
+  public enum Filter {
+    OPEN_RATIO,
+    ROOM_COUNT,
+    LARGEST_ROOM_SHARE
+  }
+
+  /**
+   * Statistics of one seed. Values of stages which were skipped because of a failed filter are {@code -1} or
+   * {@code NaN}.
+   */
+  public static class Result {
+
+    private final long seed;
+    private final double openRatio;
+    private final int rooms;
+    private final double largestRoomShare;
+    private final Filter rejectedBy;
+
+    Result(long seed, double openRatio, int rooms, double largestRoomShare, Filter rejectedBy) {
+      this.seed = seed;
+      this.openRatio = openRatio;
+      this.rooms = rooms;
+      this.largestRoomShare = largestRoomShare;
+      this.rejectedBy = rejectedBy;
+    }
+
+    public long getSeed() {
+      return seed;
+    }
+
+    public double getOpenRatio() {
+      return openRatio;
+    }
+
+    public int getRooms() {
+      return rooms;
+    }
+
+    public double getLargestRoomShare() {
+      return largestRoomShare;
+    }
+
+    /**
+     * @return the filter the seed failed or {@code null} if it was accepted.
+     */
+    public Filter getRejectedBy() {
+      return rejectedBy;
+    }
+
+    public boolean isAccepted() {
+      return rejectedBy == null;
+    }
+
+    /**
+     * @return the CSV row, skipped values are left empty.
+     */
+    public String toCsv() {
+      return seed
+          + "," + String.format(Locale.ROOT, "%.4f", openRatio)
+          + "," + (rooms < 0 ? "" : String.valueOf(rooms))
+          + "," + (Double.isNaN(largestRoomShare) ? "" : String.format(Locale.ROOT, "%.4f", largestRoomShare))
+          + "," + (rejectedBy == null ? "" : rejectedBy.name().toLowerCase(Locale.ROOT));
+    }
+  }
+
+  /**
+   * Counts and throughput of a run.
+   */
+  public static class Summary {
+
+    private final int maps;
+    private final int accepted;
+    private final long nanos;
+    private final int threads;
+
+    Summary(int maps, int accepted, long nanos, int threads) {
+      this.maps = maps;
+      this.accepted = accepted;
+      this.nanos = nanos;
+      this.threads = threads;
+    }
+
+    public int getMaps() {
+      return maps;
+    }
+
+    public int getAccepted() {
+      return accepted;
+    }
+
+    public double getSeconds() {
+      return nanos / 1e9;
+    }
+
+    public double getMapsPerSecond() {
+      return maps / getSeconds();
+    }
+
+    public double getMapsPerSecondPerCore() {
+      return getMapsPerSecond() / threads;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT, "%d maps (%d accepted) in %.2f s on %d threads: %.1f maps/s, %.1f maps/s/core",
+          maps, accepted, getSeconds(), threads, getMapsPerSecond(), getMapsPerSecondPerCore());
+    }
+  }
+
+  public static class Builder {
+
+    private BatchCaveGenerator batch;
+
+    private Builder() {
+      batch = new BatchCaveGenerator();
+    }
+
+    /**
+     * @param firstSeed - the first seed.
+     * @param seeds     - number of consecutive seeds to generate.
+     */
+    public Builder withSeeds(long firstSeed, int seeds) {
+      batch.firstSeed = firstSeed;
+      batch.seeds = seeds;
+      return this;
+    }
+
+    public Builder withSize(int width, int height) {
+      batch.width = width;
+      batch.height = height;
+      return this;
+    }
+
+    public Builder addPhase(int min, int max, int rounds) {
+      batch.phases.add(new CaveGenerator.Phase(min, max, rounds));
+      return this;
+    }
+
+    public Builder addPhase(AutomatonRule rule, int rounds) {
+      batch.phases.add(new CaveGenerator.Phase(rule, rounds));
+      return this;
+    }
+
+    public Builder withRoomConnection(CaveGenerator.RoomConnection roomConnection) {
+      batch.roomConnection = roomConnection;
+      return this;
+    }
+
+    /**
+     * @param threads - number of seeds generated at the same time, defaults to the number of cores.
+     */
+    public Builder withThreads(int threads) {
+      if (threads < 1) {
+        throw new IllegalArgumentException("Threads must be at least 1");
+      }
+      batch.threads = threads;
+      return this;
+    }
+
+    public Builder withOpenRatio(double min, double max) {
+      batch.minOpenRatio = min;
+      batch.maxOpenRatio = max;
+      return this;
+    }
+
+    public Builder withRoomCount(int min, int max) {
+      batch.minRooms = min;
+      batch.maxRooms = max;
+      return this;
+    }
+
+    /**
+     * @param minLargestRoomShare - minimum share of the open cells belonging to the largest room.
+     */
+    public Builder withMinLargestRoomShare(double minLargestRoomShare) {
+      batch.minLargestRoomShare = minLargestRoomShare;
+      return this;
+    }
+
+    /**
+     * Connects the rooms of accepted seeds and writes their maps as {@code <seed>.txt} to the directory.
+     */
+    public Builder withMapDirectory(Path mapDirectory) {
+      batch.mapDirectory = mapDirectory;
+      return this;
+    }
+
+    public BatchCaveGenerator build() {
+      BatchCaveGenerator tmp = batch;
+      batch = null;
+      return tmp;
+    }
+
+    public static Builder create() {
+      return new Builder();
+    }
+  }
+}
@@ -0,0 +1,349 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static de.dev.eth0.libgdx.demo.generation.LatticeFns.EMPTY;
+import static de.dev.eth0.libgdx.demo.generation.LatticeFns.FILLED;
+
+import java.util.Arrays;
+
+/**
+ * Bit-packed version of the {@code boolean[y][x]} lattice used by the {@link CaveGenerator}.
+ * <p>
+ * Every row is stored in {@code long} words holding 64 cells each: cell {@code x} is bit {@code x & 63} of word
+ * {@code x >> 6}. A set bit is {@link LatticeFns#FILLED}. Bits beyond the width of the lattice are always zero, so
+ * they can be shifted into neighbouring cells without further checks.
+ * </p>
+ */
+public class BitLattice {
+
+  private final int width;
+  private final int height;
+  private final int wordsPerRow;
+  private final long[] words;
+
+  public BitLattice(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.wordsPerRow = (width + 63) >>> 6;
+    this.words = new long[wordsPerRow * height];
+  }
+
+  public static BitLattice fromMap(boolean[][] map) {
+    BitLattice ret = new BitLattice(map[0].length, map.length);
+    for (int y = 0; y < ret.height; ++y) {
+      for (int x = 0; x < ret.width; ++x) {
+        if (map[y][x] == FILLED) {
+          ret.words[y * ret.wordsPerRow + (x >>> 6)] |= 1L << x;
+        }
+      }
+    }
+    return ret;
+  }
+
+  public boolean[][] toMap() {
+    boolean[][] ret = new boolean[height][width];
+    for (int y = 0; y < height; ++y) {
+      for (int x = 0; x < width; ++x) {
+        ret[y][x] = get(x, y);
+      }
+    }
+    return ret;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getWordsPerRow() {
+    return wordsPerRow;
+  }
+
+  /**
+   * @return the backing words, row after row with {@link #getWordsPerRow()} words each.
+   */
+  public long[] getWords() {
+    return words;
+  }
+
+  public boolean get(int x, int y) {
+    return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0 ? FILLED : EMPTY;
+  }
+
+  public void set(int x, int y, boolean value) {
+    int idx = y * wordsPerRow + (x >>> 6);
+    if (value == FILLED) {
+      words[idx] |= 1L << x;
+    }
+    else {
+      words[idx] &= ~(1L << x);
+    }
+  }
+
+  /**
+   * Sets all cells of the lattice to the given value.
+   *
+   * @param value - the new value of every cell.
+   */
+  public void fill(boolean value) {
+    if (value == EMPTY) {
+      Arrays.fill(words, 0L);
+      return;
+    }
+    for (int y = 0; y < height; ++y) {
+      for (int w = 0; w < wordsPerRow; ++w) {
+        words[y * wordsPerRow + w] = rowMask(w);
+      }
+    }
+  }
+
+  /**
+   * @return the number of filled cells.
+   */
+  public int cardinality() {
+    int count = 0;
+    for (long word : words) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  /**
+   * Mask of the bits of word {@code w} that belong to the lattice.
+   */
+  long rowMask(int w) {
+    int remaining = width - (w << 6);
+    return remaining >= 64 ? -1L : (1L << remaining) - 1;
+  }
+
+  /**
+   * Mask of the bits of word {@code w} that belong to the interior of the lattice (everything except the first and
+   * the last column).
+   */
+  long interiorMask(int w) {
+    long mask = rowMask(w);
+    if (w == 0) {
+      mask &= ~1L;
+    }
+    int last = width - 1;
+    if (w == last >>> 6) {
+      mask &= ~(1L << last);
+    }
+    return mask;
+  }
+
+  /**
+   * Performs one step of the cave automaton from {@code src} into {@code dst}. This produces exactly the same result
+   * as {@link CaveGenerator#step(int, int)}: an interior cell gets filled if
+   * {@link LatticeFns#getNeighborCount(boolean[][], int, int)} {@code >= minCount} or
+   * {@link LatticeFns#getTwoStepNeighborCount(boolean[][], int, int)} {@code <= maxCount}, the border of {@code dst}
+   * is left untouched.
+   * <p>
+   * The neighbours are counted for 64 cells at once: the cells of a row are shifted against each other and summed up
+   * with bitwise full adders, so every count is kept as a set of bit planes (one {@code long} per bit of the count)
+   * which is finally compared against the thresholds.
+   * </p>
+   *
+   * @param src      - the current lattice.
+   * @param dst      - the lattice receiving the next generation, must have the same size as {@code src}.
+   * @param minCount - minimum number of filled cells in the 3x3 neighbourhood to fill the cell.
+   * @param maxCount - maximum number of filled cells in the two-step neighbourhood to fill the cell.
+   */
+  public static void step(BitLattice src, BitLattice dst, int minCount, int maxCount) {
+    step(src, dst, minCount, maxCount, 1, src.height - 1);
+  }
+
+  /**
+   * Same as {@link #step(BitLattice, BitLattice, int, int)} but only updates the rows {@code [fromRow, toRow)}.
+   * Rows outside of the interior are never written.
+   */
+  public static void step(BitLattice src, BitLattice dst, int minCount, int maxCount, int fromRow, int toRow) {
+    step(src, dst, minCount, maxCount, fromRow, toRow, null);
+  }
+
+  /**
+   * Same as {@link #step(BitLattice, BitLattice, int, int, int, int)} but only steps the active words, the other
+   * words are copied from {@code src}, see {@link ActiveRegion}.
+   *
+   * @param active - activity of the words or {@code null} to step all of them.
+   */
+  static void step(BitLattice src, BitLattice dst, int minCount, int maxCount, int fromRow, int toRow,
+      boolean[] active) {
+    if (src.width != dst.width || src.height != dst.height) {
+      throw new IllegalArgumentException("Lattices must have the same size");
+    }
+    int n = src.wordsPerRow;
+    long[] in = src.words;
+    long[] out = dst.words;
+
+    // horizontal sums of the rows y-2..y+2: x-1..x+1 (two bit planes) and x-2..x+2 (three bit planes)
+    long[] s3lo = new long[5];
+    long[] s3hi = new long[5];
+    long[] s5b0 = new long[5];
+    long[] s5b1 = new long[5];
+    long[] s5b2 = new long[5];
+    long[] count1 = new long[4];
+    long[] count2 = new long[5];
+
+    int from = Math.max(1, fromRow);
+    int to = Math.min(src.height - 1, toRow);
+    for (int y = from; y < to; ++y) {
+      for (int w = 0; w < n; ++w) {
+        if (active != null && !active[y * n + w]) {
+          out[y * n + w] = in[y * n + w];
+          continue;
+        }
+        for (int r = 0; r < 5; ++r) {
+          int row = y - 2 + r;
+          if (row < 0 || row >= src.height) {
+            s3lo[r] = s3hi[r] = s5b0[r] = s5b1[r] = s5b2[r] = 0L;
+            continue;
+          }
+          int base = row * n;
+          long cur = in[base + w];
+          long prev = w > 0 ? in[base + w - 1] : 0L;
+          long next = w < n - 1 ? in[base + w + 1] : 0L;
+
+          long west2 = (cur << 2) | (prev >>> 62);
+          long west1 = (cur << 1) | (prev >>> 63);
+          long east1 = (cur >>> 1) | (next << 63);
+          long east2 = (cur >>> 2) | (next << 62);
+
+          // west1 + cur + east1
+          long t = west1 ^ cur;
+          long lo = t ^ east1;
+          long hi = (west1 & cur) | (t & east1);
+          s3lo[r] = lo;
+          s3hi[r] = hi;
+
+          // (hi, lo) + west2 + east2
+          long o0 = west2 ^ east2;
+          long o1 = west2 & east2;
+          long k0 = lo & o0;
+          long u = hi ^ o1;
+          s5b0[r] = lo ^ o0;
+          s5b1[r] = u ^ k0;
+          s5b2[r] = (hi & o1) | (k0 & u);
+        }
+
+        // 3x3: three two-bit numbers
+        {
+          long a = s3lo[1];
+          long b = s3lo[2];
+          long c = s3lo[3];
+          long t = a ^ b;
+          count1[0] = t ^ c;
+          long carry = (a & b) | (t & c);
+
+          a = s3hi[1];
+          b = s3hi[2];
+          c = s3hi[3];
+          t = a ^ b;
+          long s = t ^ c;
+          long c4 = (a & b) | (t & c);
+          count1[1] = s ^ carry;
+          long d4 = s & carry;
+          count1[2] = c4 ^ d4;
+          count1[3] = c4 & d4;
+        }
+
+        // 5x5 without corners: three three-bit numbers (rows y-1..y+1) and two two-bit numbers (rows y-2, y+2)
+        {
+          // weight 1
+          long a = s5b0[1];
+          long b = s5b0[2];
+          long c = s5b0[3];
+          long t = a ^ b;
+          long x1 = t ^ c;
+          long y2 = (a & b) | (t & c);
+          a = s3lo[0];
+          b = s3lo[4];
+          t = x1 ^ a;
+          count2[0] = t ^ b;
+          long z2 = (x1 & a) | (t & b);
+
+          // weight 2
+          a = s5b1[1];
+          b = s5b1[2];
+          c = s5b1[3];
+          t = a ^ b;
+          long p2 = t ^ c;
+          long q4 = (a & b) | (t & c);
+          a = s3hi[0];
+          b = s3hi[4];
+          t = a ^ b;
+          long r2 = t ^ y2;
+          long t4 = (a & b) | (t & y2);
+          t = p2 ^ r2;
+          count2[1] = t ^ z2;
+          long u4 = (p2 & r2) | (t & z2);
+
+          // weight 4
+          a = s5b2[1];
+          b = s5b2[2];
+          c = s5b2[3];
+          t = a ^ b;
+          long v4 = t ^ c;
+          long w8 = (a & b) | (t & c);
+          t = q4 ^ t4;
+          long x4 = t ^ u4;
+          long y8 = (q4 & t4) | (t & u4);
+          count2[2] = v4 ^ x4;
+          long z8 = v4 & x4;
+
+          // weight 8
+          t = w8 ^ y8;
+          count2[3] = t ^ z8;
+          count2[4] = (w8 & y8) | (t & z8);
+        }
+
+        long filled = greaterOrEqual(count1, minCount) | ~greaterOrEqual(count2, maxCount + 1);
+        long mask = src.interiorMask(w);
+        int idx = y * n + w;
+        out[idx] = (filled & mask) | (out[idx] & ~mask);
+      }
+    }
+  }
+
+  /**
+   * Compares a bit-sliced number against a constant.
+   *
+   * @param planes - the bits of the number, least significant plane first.
+   * @param value  - the constant to compare against.
+   * @return a mask of all lanes that are greater than or equal to {@code value}.
+   */
+  private static long greaterOrEqual(long[] planes, int value) {
+    if (value <= 0) {
+      return -1L;
+    }
+    if (value >= 1 << planes.length) {
+      return 0L;
+    }
+    long greater = 0L;
+    long equal = -1L;
+    for (int i = planes.length - 1; i >= 0; --i) {
+      if ((value >>> i & 1) == 1) {
+        equal &= planes[i];
+      }
+      else {
+        greater |= equal & planes[i];
+        equal &= ~planes[i];
+      }
+    }
+    return greater | equal;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder();
+    for (int y = 0; y < height; ++y) {
+      for (int x = 0; x < width; ++x) {
+        buf.append(get(x, y) == EMPTY ? "." : "#");
+      }
+      buf.append("\n");
+    }
+    return buf.toString();
+  }
+}
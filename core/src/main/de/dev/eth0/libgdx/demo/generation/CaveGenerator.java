@@ -4,16 +4,21 @@ import static de.dev.eth0.libgdx.demo.generation.LatticeFns.EMPTY;
 import static de.dev.eth0.libgdx.demo.generation.LatticeFns.FILLED;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import com.badlogic.gdx.Application;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.MapLayers;
 import com.badlogic.gdx.maps.tiled.TiledMap;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
-import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 
 /**
  * This is a modified version of Wesley Kerr's Code:
@@ -25,24 +30,59 @@ import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
  * <a href="https://web.archive.org/web/20150104062342/http://blog.project-retrograde.com/2013/05/marching-squares/">Squares Made for Marching</a>
  * </p>
  */
-public class CaveGenerator {
+public class CaveGenerator implements Disposable {
 
   private static final String TAG = CaveGenerator.class.getSimpleName();
+  // null if the Vector API isn't available, see StepKernel
+  private static final StepKernel VECTOR_KERNEL = StepKernel.vector();
 
   private long seed;
   private Random random;
+  private RandomMode randomMode = RandomMode.SEQUENTIAL;
 
   private boolean[][] map;
   private boolean[][] bufferMap;
 
+  // bit-packed lattices used instead of map and bufferMap while iterating if bitPacked is set
+  private boolean bitPacked;
+  private BitLattice lattice;
+  private BitLattice bufferLattice;
+  // use the Vector API kernel for the boolean[][] map if it is available
+  private boolean vectorKernel = true;
+  // cells which can change in the next step, only set while iterating
+  private ActiveRegion activeRegion;
+  // cells changed by the rounds of the last iterate
+  private int[] changedCells = new int[0];
+  // row sums of the current map for rules other than the cave preset
+  private AutomatonRule.RowSums rowSums;
+
   private int width;
   private int height;
 
+  // number of threads used by step, 1 runs everything on the calling thread
+  private int parallelism = 1;
+  private ExecutorService executor;
+  private BandExecutor bands;
+
   private final List<Phase> phases;
+  // how rooms that aren't connected to the largest room get connected
+  private RoomConnection roomConnection = RoomConnection.RANDOM_WALK;
   // Size per Tile
   private int tileSize = 16;
   // Texture Atlas used for the tiles
   private TextureAtlas tileSet;
+  // notified after every round of the automaton
+  private ProgressListener progressListener;
+  // durations and counts of the stages
+  private GenerationMetrics metrics = new GenerationMetrics(null);
+  // records every round if set
+  private GenerationTrace trace;
+
+  // layer and shared cells of the last generated map, updated by setCorner
+  private TiledMapTileLayer tileLayer;
+  private TiledMapTileLayer.Cell[] cells;
+  // created on first use after the map was generated
+  private RoomTracker roomTracker;
 
   private CaveGenerator() {
     this.seed = 7;
@@ -50,8 +90,20 @@ public class CaveGenerator {
   }
 
   public void initialize() {
+    metrics.beginStage();
     random = new Random(seed);
 
+    if (bitPacked) {
+      initializeLattice();
+    }
+    else {
+      initializeMap();
+    }
+    trace();
+    metrics.endStage(GenerationListener.Stage.INITIALIZE, width, height, -1);
+  }
+
+  private void initializeMap() {
     map = new boolean[height][width];
     bufferMap = new boolean[height][width];
     for (int i = 0; i < height; ++i) {
@@ -64,26 +116,193 @@ public class CaveGenerator {
           continue;
         }
 
-        if (random.nextDouble() < 0.4) {
+        if (randomMode == RandomMode.SEQUENTIAL && random.nextDouble() < 0.4) {
           map[i][j] = FILLED;
         }
       }
     }
-    Gdx.app.debug(TAG, "Initial");
-    Gdx.app.debug(TAG, toString(map));
+    if (randomMode == RandomMode.COUNTER) {
+      forEachBand((fromRow, toRow) -> {
+        for (int i = fromRow; i < toRow; ++i) {
+          for (int j = 1; j < width - 1; ++j) {
+            if (isInitiallyFilled(j, i)) {
+              map[i][j] = FILLED;
+            }
+          }
+        }
+      });
+    }
+    if (isDebug()) {
+      Gdx.app.debug(TAG, "Initial");
+      Gdx.app.debug(TAG, toString(map));
+    }
+  }
+
+  /**
+   * Same as {@link #initialize()} but fills the bit-packed lattices. The random numbers are drawn in the same order,
+   * so both modes start with the same map for the same seed.
+   */
+  private void initializeLattice() {
+    map = null;
+    bufferMap = null;
+    lattice = new BitLattice(width, height);
+    bufferLattice = new BitLattice(width, height);
+    bufferLattice.fill(FILLED);
+    for (int i = 0; i < height; ++i) {
+      for (int j = 0; j < width; ++j) {
+        if (i == 0 || j == 0 || i == height - 1
+            || j == width - 1) {
+          lattice.set(j, i, FILLED);
+          continue;
+        }
+
+        if (randomMode == RandomMode.SEQUENTIAL && random.nextDouble() < 0.4) {
+          lattice.set(j, i, FILLED);
+        }
+      }
+    }
+    if (randomMode == RandomMode.COUNTER) {
+      // the bands write different rows and therefore different words
+      forEachBand((fromRow, toRow) -> {
+        for (int i = fromRow; i < toRow; ++i) {
+          for (int j = 1; j < width - 1; ++j) {
+            if (isInitiallyFilled(j, i)) {
+              lattice.set(j, i, FILLED);
+            }
+          }
+        }
+      });
+    }
+    if (isDebug()) {
+      Gdx.app.debug(TAG, "Initial");
+      Gdx.app.debug(TAG, lattice.toString());
+    }
+  }
+
+  private boolean isInitiallyFilled(int x, int y) {
+    return CounterRandom.uniform(seed, x, y, CounterRandom.FILL) < 0.4;
   }
 
   public void step(int minCount, int maxCount) {
+    if (bitPacked) {
+      stepLattice(minCount, maxCount);
+      return;
+    }
     // if we haven't called initialize yet
     // go ahead and do it it ourselves.
     if (bufferMap == null) {
       initialize();
     }
-    boolean[][] tmpMap;
-    for (int i = 1; i < height - 1; ++i) {
+    if (vectorKernel && VECTOR_KERNEL != null) {
+      boolean[][] src = map;
+      boolean[][] dst = bufferMap;
+      forEachBand((fromRow, toRow) -> stepActiveRows(fromRow, toRow,
+          (from, to) -> VECTOR_KERNEL.step(src, dst, minCount, maxCount, from, to)));
+    }
+    else {
+      forEachBand((fromRow, toRow) -> stepActiveRows(fromRow, toRow,
+          (from, to) -> stepRows(minCount, maxCount, from, to)));
+    }
+    boolean[][] tmpMap = map;
+    map = bufferMap;
+    bufferMap = tmpMap;
+  }
+
+  /**
+   * Runs one step of the given rule. The cave preset runs on the specialised kernels of
+   * {@link #step(int, int)}, other rules on the lookup table of the rule.
+   */
+  public void step(AutomatonRule rule) {
+    if (rule.isCave()) {
+      step(rule.getMin(), rule.getMax());
+      return;
+    }
+    if (bufferMap == null && bufferLattice == null) {
+      initialize();
+    }
+    if (rowSums == null || rowSums.getRadius() < rule.getRadius()) {
+      rowSums = new AutomatonRule.RowSums(width, height, rule.getRadius());
+    }
+    AutomatonRule.RowSums sums = rowSums;
+    if (bitPacked) {
+      sums.update(lattice);
+      BitLattice dst = bufferLattice;
+      forEachBand((fromRow, toRow) -> stepActiveRows(fromRow, toRow, (from, to) -> rule.step(sums, dst, from, to)));
+      BitLattice tmpLattice = lattice;
+      lattice = bufferLattice;
+      bufferLattice = tmpLattice;
+      return;
+    }
+    sums.update(map);
+    boolean[][] dst = bufferMap;
+    forEachBand((fromRow, toRow) -> stepActiveRows(fromRow, toRow, (from, to) -> rule.step(sums, dst, from, to)));
+    boolean[][] tmpMap = map;
+    map = bufferMap;
+    bufferMap = tmpMap;
+  }
+
+  /**
+   * Runs the band on the runs of active rows of {@code [fromRow, toRow)} and copies the other rows, which don't
+   * change, from the current map to the buffer. Without an {@link ActiveRegion} all rows are active.
+   */
+  private void stepActiveRows(int fromRow, int toRow, RowBand band) {
+    if (activeRegion == null || activeRegion.isAll()) {
+      band.run(fromRow, toRow);
+      return;
+    }
+    int y = fromRow;
+    while (y < toRow) {
+      int start = y;
+      while (y < toRow && activeRegion.isRowActive(y)) {
+        ++y;
+      }
+      if (y > start) {
+        band.run(start, y);
+      }
+      for (; y < toRow && !activeRegion.isRowActive(y); ++y) {
+        if (lattice != null) {
+          int wordsPerRow = lattice.getWordsPerRow();
+          System.arraycopy(lattice.getWords(), y * wordsPerRow, bufferLattice.getWords(), y * wordsPerRow, wordsPerRow);
+        }
+        else {
+          System.arraycopy(map[y], 0, bufferMap[y], 0, width);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return whether the Vector API kernel could be loaded, see {@link Builder#withVectorKernel(boolean)}.
+   */
+  static boolean hasVectorKernel() {
+    return VECTOR_KERNEL != null;
+  }
+
+  /**
+   * Steps the rows {@code [fromRow, toRow)}. The counts are the same as
+   * {@link LatticeFns#getNeighborCount(boolean[][], int, int)} and
+   * {@link LatticeFns#getTwoStepNeighborCount(boolean[][], int, int)} but are taken from sliding windows, the
+   * two-step count is the 5x5 window without its four corners.
+   */
+  private void stepRows(int minCount, int maxCount, int fromRow, int toRow) {
+    NeighborCounter counter1 = new NeighborCounter(1);
+    NeighborCounter counter2 = new NeighborCounter(2);
+    int[] counts1 = new int[width];
+    int[] counts2 = new int[width];
+    for (int i = fromRow; i < toRow; ++i) {
+      if (i == fromRow) {
+        counter1.countRow(map, i, counts1);
+        counter2.countRow(map, i, counts2);
+      }
+      else {
+        counter1.countNextRow(counts1);
+        counter2.countNextRow(counts2);
+      }
+      boolean[] above = i >= 2 ? map[i - 2] : null;
+      boolean[] below = i + 2 < height ? map[i + 2] : null;
       for (int j = 1; j < width - 1; ++j) {
-        int count1 = LatticeFns.getNeighborCount(map, i, j);
-        int count2 = LatticeFns.getTwoStepNeighborCount(map, i, j);
+        int count1 = counts1[j];
+        int count2 = counts2[j] - corners(above, j) - corners(below, j);
         if (count1 >= minCount || count2 <= maxCount) {
           bufferMap[i][j] = FILLED;
         }
@@ -92,69 +311,344 @@ public class CaveGenerator {
         }
       }
     }
-    tmpMap = map;
-    map = bufferMap;
-    bufferMap = tmpMap;
   }
 
+  private static int corners(boolean[] row, int x) {
+    if (row == null) {
+      return 0;
+    }
+    int count = x >= 2 && row[x - 2] == FILLED ? 1 : 0;
+    return x + 2 < row.length && row[x + 2] == FILLED ? count + 1 : count;
+  }
+
+  private void stepLattice(int minCount, int maxCount) {
+    if (bufferLattice == null) {
+      initialize();
+    }
+    BitLattice src = lattice;
+    BitLattice dst = bufferLattice;
+    boolean[] active = activeRegion != null ? activeRegion.getActiveBlocks() : null;
+    forEachBand((fromRow, toRow) -> BitLattice.step(src, dst, minCount, maxCount, fromRow, toRow, active));
+    BitLattice tmpLattice = lattice;
+    lattice = bufferLattice;
+    bufferLattice = tmpLattice;
+  }
+
+  /**
+   * Runs the given operation on the interior rows {@code [1, height - 1)}. If a parallelism above one is configured,
+   * the rows are split into bands which are processed on the executor. Every band only writes its own rows of the
+   * buffer and only reads the current map, so the result doesn't depend on the order the bands are processed in.
+   *
+   * @param band - the operation to run on a range of rows.
+   */
+  private void forEachBand(RowBand band) {
+    bands.run(height - 2, 1, (index, from, to) -> band.run(from + 1, to + 1), "stepping");
+  }
+
+  /**
+   * Runs all rounds of all phases. After the first round of a phase only the cells near the cells changed by the
+   * previous round are stepped, see {@link ActiveRegion}, and the phase ends as soon as a round doesn't change any
+   * cell. The progress listener is notified after every round, the skipped rounds of a phase are reported at once. If
+   * the thread is interrupted, a {@link CancellationException} is thrown before the next round.
+   */
   public void iterate() {
+    metrics.beginStage();
+    int rounds = 0;
     for (Phase p : phases) {
-      for (int i = 0; i < p.getRounds(); ++i) {
-        step(p.getMin(), p.getMax());
-        Gdx.app.debug(TAG, "Round: " + i);
-        Gdx.app.debug(TAG, "\n" + toString(map));
+      rounds += p.getRounds();
+    }
+    activeRegion = new ActiveRegion(width, height);
+    changedCells = new int[rounds];
+    int round = 0;
+    int stepped = 0;
+    try {
+      for (int phase = 0; phase < phases.size(); ++phase) {
+        Phase p = phases.get(phase);
+        activeRegion.reset();
+        for (int i = 0; i < p.getRounds(); ++i) {
+          checkCancelled();
+          boolean measured = metrics.beginRound();
+          step(p.getRule());
+          int changed = trackChanges(p.getRule().getRadius());
+          changedCells[stepped++] = changed;
+          if (measured) {
+            metrics.endRound(phase, i, changed);
+          }
+          trace();
+          if (isDebug()) {
+            Gdx.app.debug(TAG, "Round: " + i + ", changed cells: " + changed);
+            Gdx.app.debug(TAG, "\n" + toString());
+          }
+          ++round;
+          if (changed == 0) {
+            // a fixed point of the rule, the remaining rounds wouldn't change anything
+            round += p.getRounds() - i - 1;
+          }
+          if (progressListener != null) {
+            progressListener.onRound(round, rounds);
+          }
+          if (changed == 0) {
+            break;
+          }
+        }
       }
     }
+    finally {
+      activeRegion = null;
+      changedCells = Arrays.copyOf(changedCells, stepped);
+    }
+    metrics.endStage(GenerationListener.Stage.ITERATE, width, height, -1);
+  }
+
+  /**
+   * Compares the map after a step with the buffer, which still holds the map before it, and updates the active
+   * region.
+   *
+   * @return the number of cells changed by the step.
+   */
+  private int trackChanges(int radius) {
+    if (lattice != null) {
+      BitLattice current = lattice;
+      BitLattice previous = bufferLattice;
+      forEachBand((fromRow, toRow) -> activeRegion.compare(current, previous, fromRow, toRow));
+    }
+    else {
+      boolean[][] current = map;
+      boolean[][] previous = bufferMap;
+      forEachBand((fromRow, toRow) -> activeRegion.compare(current, previous, fromRow, toRow));
+    }
+    return activeRegion.update(radius, 1, height - 1);
+  }
+
+  /**
+   * @return the number of cells changed by every round run by the last {@link #iterate()}, rounds skipped because
+   *         their phase converged aren't included.
+   */
+  public int[] getChangedCells() {
+    return changedCells.clone();
+  }
+
+  private void trace() {
+    if (trace == null) {
+      return;
+    }
+    if (lattice != null) {
+      trace.record(lattice);
+    }
+    else {
+      trace.record(map);
+    }
+  }
+
+  /**
+   * @return whether there is an application to log to, the generator can run without one.
+   */
+  private static boolean hasLog() {
+    return Gdx.app != null;
+  }
+
+  /**
+   * @return whether debug messages are logged. Map dumps are only built if they are.
+   */
+  private static boolean isDebug() {
+    return hasLog() && Gdx.app.getLogLevel() >= Application.LOG_DEBUG;
+  }
+
+  private static void checkCancelled() {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("Generation was cancelled");
+    }
   }
 
   void fixRooms() {
-    List<Set<Point>> rooms = LatticeFns.getRooms(map, EMPTY);
-    rooms.sort((set1, set2) -> Integer.compare(set2.size(), set1.size()));
-    for (int i = 1; i < rooms.size(); ++i) {
-      fixRoom(rooms.get(i));
+    metrics.beginStage();
+    releaseLattice();
+    RoomLabels rooms = LatticeFns.getRoomLabels(map, EMPTY);
+    if (roomConnection == RoomConnection.CORRIDORS) {
+      int carved = CorridorCarver.connect(map, rooms);
+      if (isDebug()) {
+        Gdx.app.debug(TAG, "Connected " + rooms.getRoomCount() + " rooms by carving " + carved + " cells");
+      }
     }
+    else {
+      int[] bySize = rooms.getRoomsBySize();
+      for (int i = 1; i < bySize.length; ++i) {
+        fixRoom(rooms, bySize[i]);
+      }
+    }
+    trace();
+    metrics.endStage(GenerationListener.Stage.FIX_ROOMS, width, height, rooms.getRoomCount());
   }
 
+  /**
+   * @return the current map. In bit-packed mode this is a copy of the lattice while the automaton is running.
+   */
   public boolean[][] getMap() {
+    if (lattice != null) {
+      return lattice.toMap();
+    }
     return map;
   }
 
+  /**
+   * Copies the bit-packed lattice into the map, the steps after the automaton work on the boolean map.
+   */
+  private void releaseLattice() {
+    if (lattice != null) {
+      map = lattice.toMap();
+      lattice = null;
+      bufferLattice = null;
+    }
+    rowSums = null;
+  }
+
   public TiledMap generate() {
+    generateMap();
+    checkCancelled();
+    return createTiledMap();
+  }
+
+  /**
+   * Runs the automaton and connects the rooms like {@link #generate()} but doesn't create a {@link TiledMap}, so no
+   * tileset is needed.
+   *
+   * @return the generated map.
+   */
+  public boolean[][] generateMap() {
+    // the layer of an earlier map doesn't show this one
+    tileLayer = null;
+    cells = null;
     initialize();
     iterate();
 
-    Gdx.app.debug(TAG, "\n" + toString(map));
+    releaseLattice();
+
+    if (isDebug()) {
+      Gdx.app.debug(TAG, "\n" + toString(map));
+    }
     bufferMap = null;
+    roomTracker = null;
+    checkCancelled();
     fixRooms();
+    return map;
+  }
 
-    return createTiledMap();
+  /**
+   * Runs {@link #generate()} on the given executor.
+   * <p>
+   * Cancelling the future with {@code mayInterruptIfRunning} stops the generation before the next round. The progress
+   * listener is called on the executor's thread. The generator must not be used by other threads until the future is
+   * done.
+   * </p>
+   *
+   * @param executor - executor running the generation.
+   * @param handoff  - receives the cave once it is finished, may be {@code null}.
+   * @return the future of the generated cave.
+   */
+  public Future<GeneratedCave> generateAsync(ExecutorService executor, CaveHandoff handoff) {
+    return executor.submit(() -> {
+      TiledMap tiledMap = generate();
+      checkCancelled();
+      GeneratedCave ret = new GeneratedCave(this, map, tiledMap);
+      if (handoff != null) {
+        handoff.publish(ret);
+      }
+      return ret;
+    });
+  }
+
+  /**
+   * Shuts down the pool created for the parallel step. An executor given to the builder and the tile set are left
+   * alone.
+   */
+  @Override
+  public void dispose() {
+    bands.dispose();
   }
 
   private TiledMap createTiledMap() {
+    metrics.beginStage();
     TiledMap ret = new TiledMap();
 
     MapLayers layers = ret.getLayers();
 
-    TiledMapTileLayer tileLayer = new TiledMapTileLayer(width - 1, height - 1, tileSize, tileSize);
-
-    MarchingSquaresSelector tileSelector = new MarchingSquaresSelector(map, tileSet);
+    tileLayer = new TiledMapTileLayer(width - 1, height - 1, tileSize, tileSize);
 
-    for (int y = 0; y < tileLayer.getWidth(); y++) {
-      for (int x = 0; x < tileLayer.getHeight(); x++) {
-        TiledMapTileLayer.Cell cell = new TiledMapTileLayer.Cell();
+    // all cells showing the same tile share one cell instance
+    cells = MarchingSquaresSelector.createCells(tileSet);
+    byte[] indices = MarchingSquaresSelector.getIndices(map);
 
-        TextureRegion texture = tileSelector.getTextureRegion(x, y);
-        cell.setTile(new StaticTiledMapTile(texture));
+    int layerWidth = tileLayer.getWidth();
+    int layerHeight = tileLayer.getHeight();
+    for (int y = 0; y < layerHeight; y++) {
+      for (int x = 0; x < layerWidth; x++) {
         // TiledMap's origin is the bottom-left corner but our map was generated using top-left as origin.
-        tileLayer.setCell(x, tileLayer.getHeight() - 1 - y, cell);
+        tileLayer.setCell(x, layerHeight - 1 - y, cells[indices[y * layerWidth + x]]);
       }
     }
 
     layers.add(tileLayer);
 
+    metrics.endStage(GenerationListener.Stage.CREATE_TILED_MAP, width, height, -1);
     return ret;
   }
 
+  /**
+   * Changes a single corner of the generated map. Only the four tiles touching the corner are updated in the layer of
+   * the map returned by {@link #generate()}, and the rooms of the {@link #getRoomTracker() room tracker} are updated
+   * locally, so this is cheap enough to be called while the map is shown.
+   *
+   * @param x     - x coordinate of the corner.
+   * @param y     - y coordinate of the corner, 0 is the top row.
+   * @param value - {@link LatticeFns#FILLED} or {@link LatticeFns#EMPTY}.
+   */
+  public void setCorner(int x, int y, boolean value) {
+    if (map == null || lattice != null) {
+      throw new IllegalStateException("The map has not been generated yet");
+    }
+    // the border stays filled
+    if (x <= 0 || y <= 0 || x >= width - 1 || y >= height - 1) {
+      throw new IllegalArgumentException("Corner " + x + ", " + y + " is not inside the map");
+    }
+    if (map[y][x] == value) {
+      return;
+    }
+    map[y][x] = value;
+
+    if (tileLayer != null) {
+      int layerHeight = tileLayer.getHeight();
+      for (int cy = y - 1; cy <= y; ++cy) {
+        for (int cx = x - 1; cx <= x; ++cx) {
+          int index = MarchingSquaresSelector.getIndex(map[cy][cx], map[cy][cx + 1], map[cy + 1][cx],
+              map[cy + 1][cx + 1]);
+          tileLayer.setCell(cx, layerHeight - 1 - cy, cells[index]);
+        }
+      }
+    }
+
+    if (roomTracker != null) {
+      if (value == EMPTY) {
+        roomTracker.cellOpened(x, y);
+      }
+      else {
+        roomTracker.cellClosed(x, y);
+      }
+    }
+  }
+
+  /**
+   * @return the rooms of the generated map, kept up to date by {@link #setCorner(int, int, boolean)}.
+   */
+  public RoomTracker getRoomTracker() {
+    if (map == null || lattice != null) {
+      throw new IllegalStateException("The map has not been generated yet");
+    }
+    if (roomTracker == null) {
+      roomTracker = new RoomTracker(map);
+    }
+    return roomTracker;
+  }
+
   /**
    * Choose a random point from the room and walk towards the center of the
    * map until we encounter an empty cell that is not part of this room.
@@ -164,10 +658,11 @@ public class CaveGenerator {
    * algorithm from overwriting a wall, but doesn't address the underlying
    * cause of this problem.
    *
-   * @param room - all of the points in this room.
+   * @param rooms - the labels of all rooms.
+   * @param room  - the label of this room.
    */
-  void fixRoom(Set<Point> room) {
-    Point point = room.iterator().next();
+  void fixRoom(RoomLabels rooms, int room) {
+    Point point = new Point(rooms.getRepresentativeX(room), rooms.getRepresentativeY(room));
 
     Point delta = new Point(
         (int)Math.signum((width / 2) - point.x),
@@ -179,7 +674,7 @@ public class CaveGenerator {
       if (!point.valid(1, width - 1, 1, height - 1))
         break;
 
-      if (map[point.y][point.x] == EMPTY && !room.contains(point)) {
+      if (map[point.y][point.x] == EMPTY && !rooms.contains(room, point.x, point.y)) {
         return;
       }
       if (map[point.y][point.x] == FILLED) {
@@ -188,8 +683,10 @@ public class CaveGenerator {
 
     }
 
-    Gdx.app.error(TAG, "Encountered a boundary before finding an open space!");
-    Gdx.app.error(TAG, ".. last location: " + point.x + ", " + point.y);
+    if (hasLog()) {
+      Gdx.app.error(TAG, "Encountered a boundary before finding an open space!");
+      Gdx.app.error(TAG, ".. last location: " + point.x + ", " + point.y);
+    }
   }
 
   /**
@@ -200,6 +697,13 @@ public class CaveGenerator {
    * @param point
    */
   void move(Point point, Point delta) {
+    if (randomMode == RandomMode.COUNTER) {
+      // a single value per position, moving along an axis without delta wouldn't move at all
+      boolean alongX = delta.y == 0
+          || delta.x != 0 && CounterRandom.uniform(seed, point.x, point.y, CounterRandom.WALK) < 0.5;
+      point.setLocation(alongX ? point.x + delta.x : point.x, alongX ? point.y : point.y + delta.y);
+      return;
+    }
     int x = point.x;
     int y = point.y;
     while (x == point.x && y == point.y) {
@@ -213,6 +717,9 @@ public class CaveGenerator {
 
   @Override
   public String toString() {
+    if (lattice != null) {
+      return lattice.toString();
+    }
     return toString(map);
   }
 
@@ -230,24 +737,84 @@ public class CaveGenerator {
     return buf.toString();
   }
 
+  /**
+   * Listener notified about the progress of the automaton.
+   */
+  @FunctionalInterface
+  public interface ProgressListener {
+
+    /**
+     * Called after every round of every phase, on the thread running the generation.
+     *
+     * @param round  - number of finished rounds.
+     * @param rounds - number of rounds of all phases.
+     */
+    void onRound(int round, int rounds);
+  }
+
+  @FunctionalInterface
+  private interface RowBand {
+
+    void run(int fromRow, int toRow);
+  }
+
+  /**
+   * Sources of the random numbers of the initial fill and of the random walk connecting rooms.
+   */
+  public enum RandomMode {
+    /**
+     * One {@link Random} seeded with the seed, the values depend on the order they are drawn in.
+     */
+    SEQUENTIAL,
+    /**
+     * {@link CounterRandom} values of the seed and the position, the initial fill runs in parallel bands and the map
+     * doesn't depend on the order the cells are visited in.
+     */
+    COUNTER
+  }
+
+  /**
+   * Strategies to connect the rooms after the automaton has finished.
+   */
+  public enum RoomConnection {
+    /**
+     * Walk from every room but the largest one towards the center of the map until another room is reached. This
+     * might fail to connect a room.
+     */
+    RANDOM_WALK,
+    /**
+     * Carve the cheapest corridors connecting all rooms, see {@link CorridorCarver}. This always connects every room.
+     */
+    CORRIDORS
+  }
+
   public static class Phase {
 
-    private final int min;
-    private final int max;
+    private final AutomatonRule rule;
     private final int rounds;
 
+    /**
+     * A phase running the {@link AutomatonRule#cave(int, int) cave rule}.
+     */
     public Phase(int min, int max, int rounds) {
-      this.min = min;
-      this.max = max;
+      this(AutomatonRule.cave(min, max), rounds);
+    }
+
+    public Phase(AutomatonRule rule, int rounds) {
+      this.rule = rule;
       this.rounds = rounds;
     }
 
+    public AutomatonRule getRule() {
+      return rule;
+    }
+
     public int getMin() {
-      return min;
+      return rule.getMin();
     }
 
     public int getMax() {
-      return max;
+      return rule.getMax();
     }
 
     public int getRounds() {
@@ -279,17 +846,95 @@ public class CaveGenerator {
       return this;
     }
 
+    /**
+     * Runs the automaton on a {@link BitLattice} with 64 cells per word instead of the {@code boolean[][]} map. The
+     * resulting map is the same for the same seed and phases.
+     */
+    public Builder withBitPackedLattice(boolean bitPacked) {
+      cave.bitPacked = bitPacked;
+      return this;
+    }
+
+    /**
+     * Whether the {@code boolean[][]} map is stepped by the Vector API kernel if the runtime supports it, on by
+     * default. The results are the same as with the scalar code.
+     */
+    public Builder withVectorKernel(boolean vectorKernel) {
+      cave.vectorKernel = vectorKernel;
+      return this;
+    }
+
+    /**
+     * Splits every step into row bands which are processed by the given number of threads. The resulting map is
+     * the same as with a single thread.
+     *
+     * @param parallelism - number of threads, 1 disables the parallel step.
+     */
+    public Builder withParallelism(int parallelism) {
+      if (parallelism < 1) {
+        throw new IllegalArgumentException("Parallelism must be at least 1");
+      }
+      cave.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Executor used for the parallel step. If none is given, a {@link ForkJoinPool} with the configured parallelism
+     * is created, which is shut down by {@link CaveGenerator#dispose()}.
+     */
+    public Builder withExecutor(ExecutorService executor) {
+      cave.executor = executor;
+      return this;
+    }
+
     public Builder withRandomSeed(long seed) {
       cave.seed = seed;
       return this;
     }
 
+    public Builder withProgressListener(ProgressListener progressListener) {
+      cave.progressListener = progressListener;
+      return this;
+    }
+
+    /**
+     * Reports durations, changed cells, room counts and allocations of the stages to the listener.
+     */
+    public Builder withGenerationListener(GenerationListener listener) {
+      cave.metrics = new GenerationMetrics(listener);
+      return this;
+    }
+
+    /**
+     * Records the initial map, every round and the map after connecting the rooms to the trace.
+     */
+    public Builder withTrace(GenerationTrace trace) {
+      cave.trace = trace;
+      return this;
+    }
+
+    public Builder withRandomMode(RandomMode randomMode) {
+      cave.randomMode = randomMode;
+      return this;
+    }
+
+    public Builder withRoomConnection(RoomConnection roomConnection) {
+      cave.roomConnection = roomConnection;
+      return this;
+    }
+
     public Builder addPhase(int min, int max, int rounds) {
       cave.phases.add(new Phase(min, max, rounds));
       return this;
     }
 
+    public Builder addPhase(AutomatonRule rule, int rounds) {
+      cave.phases.add(new Phase(rule, rounds));
+      return this;
+    }
+
     public CaveGenerator build() {
+      cave.bands = new BandExecutor(cave.parallelism, cave.executor);
       CaveGenerator tmp = cave;
       cave = null;
       return tmp;
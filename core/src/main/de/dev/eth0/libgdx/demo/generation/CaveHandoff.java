@@ -0,0 +1,31 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Passes caves generated in the background to the render thread without locking.
+ * <p>
+ * Generator threads {@link #publish(GeneratedCave) publish} finished caves, the render thread {@link #poll() polls}
+ * once per frame and switches to the new cave if there is one. Only the latest cave is kept, a cave which was
+ * published but not polled yet is replaced. The atomic reference makes everything written while generating the cave
+ * visible to the thread polling it.
+ * </p>
+ */
+public class CaveHandoff {
+
+  private final AtomicReference<GeneratedCave> latest = new AtomicReference<>();
+
+  /**
+   * Publishes a cave, replacing a cave which wasn't polled yet.
+   */
+  public void publish(GeneratedCave cave) {
+    latest.set(cave);
+  }
+
+  /**
+   * @return the latest published cave or {@code null} if no cave was published since the last call.
+   */
+  public GeneratedCave poll() {
+    return latest.getAndSet(null);
+  }
+}
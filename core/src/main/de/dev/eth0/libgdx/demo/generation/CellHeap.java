@@ -0,0 +1,114 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of cell indices with an int key per cell, the open list of the searches over a map. The position of
+ * every cell in the heap is tracked, so keys can be decreased and membership is a lookup. Nothing is allocated after
+ * construction.
+ */
+class CellHeap {
+
+  private static final int ABSENT = -1;
+
+  private final int[] heap;
+  private final int[] keys;
+  private final int[] index;
+  private int size;
+
+  CellHeap(int cells) {
+    heap = new int[cells];
+    keys = new int[cells];
+    index = new int[cells];
+    Arrays.fill(index, ABSENT);
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  boolean contains(int cell) {
+    return index[cell] != ABSENT;
+  }
+
+  /**
+   * Removes all cells, in time proportional to their number.
+   */
+  void clear() {
+    for (int i = 0; i < size; ++i) {
+      index[heap[i]] = ABSENT;
+    }
+    size = 0;
+  }
+
+  /**
+   * Adds the cell or lowers its key if it is already queued with a higher one.
+   */
+  void add(int cell, int key) {
+    if (contains(cell)) {
+      if (key < keys[cell]) {
+        keys[cell] = key;
+        up(index[cell]);
+      }
+      return;
+    }
+    heap[size] = cell;
+    keys[cell] = key;
+    index[cell] = size;
+    up(size++);
+  }
+
+  /**
+   * Removes the cell with the lowest key.
+   */
+  int poll() {
+    int ret = heap[0];
+    index[ret] = ABSENT;
+    if (--size > 0) {
+      heap[0] = heap[size];
+      index[heap[0]] = 0;
+      down(0);
+    }
+    return ret;
+  }
+
+  private void up(int i) {
+    int cell = heap[i];
+    int key = keys[cell];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      int other = heap[parent];
+      if (keys[other] <= key) {
+        break;
+      }
+      heap[i] = other;
+      index[other] = i;
+      i = parent;
+    }
+    heap[i] = cell;
+    index[cell] = i;
+  }
+
+  private void down(int i) {
+    int cell = heap[i];
+    int key = keys[cell];
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+        ++child;
+      }
+      int other = heap[child];
+      if (keys[other] >= key) {
+        break;
+      }
+      heap[i] = other;
+      index[other] = i;
+      i = child;
+    }
+    heap[i] = cell;
+    index[cell] = i;
+  }
+}
@@ -0,0 +1,223 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static de.dev.eth0.libgdx.demo.generation.LatticeFns.FILLED;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates an unbounded cave in fixed-size chunks on demand.
+ * <p>
+ * The initial value of every corner is a {@link CounterRandom counter-based random number} of the seed and its global
+ * position, so it doesn't depend on which chunks were generated before. Every round of the automaton reads the cells
+ * up to the radius of its rule away, so a chunk is generated together with a halo of {@code radius * rounds} cells on
+ * each side, summed over the phases: after all rounds the chunk itself has exactly the values it would have in an
+ * infinitely large map, and chunks fit together without seams.
+ * </p>
+ * Rooms aren't connected, this would require knowing the whole map. Generated chunks are kept in a LRU cache. A
+ * generator isn't thread-safe.
+ */
+public class ChunkedCaveGenerator {
+
+  private long seed;
+  private int chunkSize = 64;
+  private int cacheSize = 256;
+  private final List<CaveGenerator.Phase> phases;
+
+  private Map<Long, BitLattice> cache;
+  // optional store for generated chunks
+  private RegionStore store;
+
+  private ChunkedCaveGenerator() {
+    this.seed = 7;
+    this.phases = new ArrayList<>();
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * @return the number of cells a chunk has to be extended by on every side to get seamless results.
+   */
+  public int getHalo() {
+    int ret = 0;
+    for (CaveGenerator.Phase phase : phases) {
+      ret += phase.getRule().getRadius() * phase.getRounds();
+    }
+    return ret;
+  }
+
+  /**
+   * Returns the corners of the given chunk. If it isn't cached, it is loaded from the store or generated and saved to
+   * the store. Corner {@code (x, y)} of the chunk is the global corner
+   * {@code (chunkX * chunkSize + x, chunkY * chunkSize + y)}.
+   *
+   * @param chunkX - x coordinate of the chunk.
+   * @param chunkY - y coordinate of the chunk.
+   * @return the corners of the chunk, must not be modified.
+   */
+  public BitLattice getChunk(int chunkX, int chunkY) {
+    long key = key(chunkX, chunkY);
+    BitLattice chunk = cache.get(key);
+    if (chunk == null) {
+      chunk = store != null ? store.load(chunkX, chunkY) : null;
+      if (chunk == null) {
+        chunk = generateChunk(chunkX, chunkY);
+        if (store != null) {
+          store.save(chunkX, chunkY, chunk);
+        }
+      }
+      cache.put(key, chunk);
+    }
+    return chunk;
+  }
+
+  /**
+   * @return whether the chunk is currently cached.
+   */
+  public boolean isCached(int chunkX, int chunkY) {
+    return cache.containsKey(key(chunkX, chunkY));
+  }
+
+  /**
+   * @return the value of the global corner.
+   */
+  public boolean getCorner(int x, int y) {
+    BitLattice chunk = getChunk(Math.floorDiv(x, chunkSize), Math.floorDiv(y, chunkSize));
+    return chunk.get(Math.floorMod(x, chunkSize), Math.floorMod(y, chunkSize));
+  }
+
+  /**
+   * Generates the given chunk without using the cache.
+   */
+  public BitLattice generateChunk(int chunkX, int chunkY) {
+    return generateRegion(chunkX * chunkSize, chunkY * chunkSize, chunkSize, chunkSize);
+  }
+
+  /**
+   * Generates an arbitrary region of the map. The region is extended by the halo on each side, the automaton runs on
+   * the extended region and the halo is cut away afterwards.
+   *
+   * @param x      - global x coordinate of the first corner.
+   * @param y      - global y coordinate of the first corner.
+   * @param width  - width of the region.
+   * @param height - height of the region.
+   */
+  BitLattice generateRegion(int x, int y, int width, int height) {
+    int halo = getHalo();
+    int extendedWidth = width + 2 * halo;
+    int extendedHeight = height + 2 * halo;
+
+    BitLattice lattice = new BitLattice(extendedWidth, extendedHeight);
+    for (int i = 0; i < extendedHeight; ++i) {
+      for (int j = 0; j < extendedWidth; ++j) {
+        if (CounterRandom.uniform(seed, x - halo + j, y - halo + i, CounterRandom.FILL) < 0.4) {
+          lattice.set(j, i, FILLED);
+        }
+      }
+    }
+
+    BitLattice buffer = new BitLattice(extendedWidth, extendedHeight);
+    AutomatonRule.RowSums sums = null;
+    for (CaveGenerator.Phase phase : phases) {
+      AutomatonRule rule = phase.getRule();
+      if (!rule.isCave() && (sums == null || sums.getRadius() < rule.getRadius())) {
+        sums = new AutomatonRule.RowSums(extendedWidth, extendedHeight, rule.getRadius());
+      }
+      for (int round = 0; round < phase.getRounds(); ++round) {
+        if (rule.isCave()) {
+          BitLattice.step(lattice, buffer, rule.getMin(), rule.getMax());
+        }
+        else {
+          sums.update(lattice);
+          rule.step(sums, buffer, 1, extendedHeight - 1);
+        }
+        BitLattice tmp = lattice;
+        lattice = buffer;
+        buffer = tmp;
+      }
+    }
+
+    BitLattice ret = new BitLattice(width, height);
+    for (int i = 0; i < height; ++i) {
+      for (int j = 0; j < width; ++j) {
+        ret.set(j, i, lattice.get(j + halo, i + halo));
+      }
+    }
+    return ret;
+  }
+
+  static long key(int chunkX, int chunkY) {
+    return (long)chunkX << 32 | (chunkY & 0xFFFFFFFFL);
+  }
+
+  public static class Builder {
+
+    private ChunkedCaveGenerator cave;
+
+    private Builder() {
+      cave = new ChunkedCaveGenerator();
+    }
+
+    public Builder withChunkSize(int chunkSize) {
+      cave.chunkSize = chunkSize;
+      return this;
+    }
+
+    /**
+     * @param cacheSize - maximum number of chunks kept in memory.
+     */
+    public Builder withCacheSize(int cacheSize) {
+      cave.cacheSize = cacheSize;
+      return this;
+    }
+
+    /**
+     * Loads chunks from the given store instead of generating them, newly generated chunks are saved to it. The
+     * store has to be used with the same seed and phases only. Saving doesn't wait for the disk, the owner of the store
+     * flushes it outside of the render loop.
+     */
+    public Builder withRegionStore(RegionStore store) {
+      cave.store = store;
+      return this;
+    }
+
+    public Builder withRandomSeed(long seed) {
+      cave.seed = seed;
+      return this;
+    }
+
+    public Builder addPhase(int min, int max, int rounds) {
+      cave.phases.add(new CaveGenerator.Phase(min, max, rounds));
+      return this;
+    }
+
+    public Builder addPhase(AutomatonRule rule, int rounds) {
+      cave.phases.add(new CaveGenerator.Phase(rule, rounds));
+      return this;
+    }
+
+    public ChunkedCaveGenerator build() {
+      ChunkedCaveGenerator tmp = cave;
+      if (tmp.store != null && tmp.store.getChunkSize() != tmp.chunkSize) {
+        throw new IllegalArgumentException("Store uses chunk size " + tmp.store.getChunkSize());
+      }
+      int maxSize = tmp.cacheSize;
+      tmp.cache = new LinkedHashMap<Long, BitLattice>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BitLattice> eldest) {
+          return size() > maxSize;
+        }
+      };
+      cave = null;
+      return tmp;
+    }
+
+    public static Builder create() {
+      return new Builder();
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+
+/**
+ * A {@link TiledMapTileLayer} showing a window of the unbounded cave of a {@link ChunkedCaveGenerator}.
+ * <p>
+ * Cells aren't stored in the layer, {@link #getCell(int, int)} looks up the marching squares tile of the requested
+ * cell in the chunk containing it. So only the chunks the renderer asks for, i.e. the ones overlapping the camera,
+ * are ever generated. All cells of the same tile share one {@link Cell} instance. Cells set with
+ * {@link #setCell(int, int, Cell)} replace the generated ones and are kept by their global position, so they stay when
+ * the chunk is evicted and generated again.
+ * </p>
+ */
+public class ChunkedTileLayer extends TiledMapTileLayer {
+
+  private final ChunkedCaveGenerator generator;
+  private final int chunkSize;
+  private final int width;
+  private final int height;
+  private final int originX;
+  private final int originY;
+
+  private final Cell[] cells;
+  // tile indices of each chunk, row by row
+  private final Map<Long, byte[]> tileChunks;
+  private long lastKey;
+  private byte[] lastTiles;
+  // cells set on the layer by their global corner, null values remove the generated cell
+  private final Map<Long, Cell> replacedCells = new HashMap<>();
+
+  /**
+   * @param generator - the generator providing the chunks.
+   * @param tileSet   - the atlas containing the 16 marching squares tiles.
+   * @param width     - width of the layer in tiles.
+   * @param height    - height of the layer in tiles.
+   * @param tileSize  - size per tile.
+   * @param originX   - global x coordinate of the top-left corner of the layer.
+   * @param originY   - global y coordinate of the top-left corner of the layer.
+   * @param cacheSize - maximum number of chunks whose tiles are kept.
+   */
+  public ChunkedTileLayer(ChunkedCaveGenerator generator, TextureAtlas tileSet, int width, int height, int tileSize,
+      int originX, int originY, int cacheSize) {
+    // the cells aren't stored in the layer, so don't let the super class allocate them
+    super(1, 1, tileSize, tileSize);
+    this.generator = generator;
+    this.chunkSize = generator.getChunkSize();
+    this.width = width;
+    this.height = height;
+    this.originX = originX;
+    this.originY = originY;
+    this.cells = MarchingSquaresSelector.createCells(tileSet);
+    this.tileChunks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public Cell getCell(int x, int y) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      return null;
+    }
+    // TiledMap's origin is the bottom-left corner but the cave uses top-left as origin.
+    int cornerX = originX + x;
+    int cornerY = originY + height - 1 - y;
+    if (!replacedCells.isEmpty()) {
+      long key = ChunkedCaveGenerator.key(cornerX, cornerY);
+      Cell cell = replacedCells.get(key);
+      if (cell != null || replacedCells.containsKey(key)) {
+        return cell;
+      }
+    }
+    byte[] tiles = getTiles(Math.floorDiv(cornerX, chunkSize), Math.floorDiv(cornerY, chunkSize));
+    return cells[tiles[Math.floorMod(cornerY, chunkSize) * chunkSize + Math.floorMod(cornerX, chunkSize)]];
+  }
+
+  /**
+   * Replaces the generated cell, {@code null} removes it. Cells outside of the layer are ignored.
+   */
+  @Override
+  public void setCell(int x, int y, Cell cell) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      return;
+    }
+    replacedCells.put(ChunkedCaveGenerator.key(originX + x, originY + height - 1 - y), cell);
+  }
+
+  /**
+   * Shows the generated cell again instead of the one set with {@link #setCell(int, int, Cell)}.
+   */
+  public void resetCell(int x, int y) {
+    replacedCells.remove(ChunkedCaveGenerator.key(originX + x, originY + height - 1 - y));
+  }
+
+  /**
+   * Makes sure all chunks overlapping the given area are generated, e.g. the view bounds of the camera.
+   *
+   * @param x      - left of the area in tiles.
+   * @param y      - bottom of the area in tiles.
+   * @param width  - width of the area in tiles.
+   * @param height - height of the area in tiles.
+   */
+  public void prefetch(float x, float y, float width, float height) {
+    int fromX = Math.max(0, (int)Math.floor(x));
+    int toX = Math.min(this.width - 1, (int)Math.ceil(x + width));
+    int fromY = Math.max(0, (int)Math.floor(y));
+    int toY = Math.min(this.height - 1, (int)Math.ceil(y + height));
+    if (fromX > toX || fromY > toY) {
+      return;
+    }
+    int fromChunkX = Math.floorDiv(originX + fromX, chunkSize);
+    int toChunkX = Math.floorDiv(originX + toX, chunkSize);
+    int fromChunkY = Math.floorDiv(originY + this.height - 1 - toY, chunkSize);
+    int toChunkY = Math.floorDiv(originY + this.height - 1 - fromY, chunkSize);
+    for (int chunkY = fromChunkY; chunkY <= toChunkY; ++chunkY) {
+      for (int chunkX = fromChunkX; chunkX <= toChunkX; ++chunkX) {
+        getTiles(chunkX, chunkY);
+      }
+    }
+  }
+
+  private byte[] getTiles(int chunkX, int chunkY) {
+    long key = ChunkedCaveGenerator.key(chunkX, chunkY);
+    // the renderer asks for the cells row by row, so most lookups hit the same chunk as the previous one
+    if (lastTiles != null && key == lastKey) {
+      return lastTiles;
+    }
+    byte[] tiles = tileChunks.get(key);
+    if (tiles == null) {
+      tiles = createTiles(chunkX, chunkY);
+      tileChunks.put(key, tiles);
+    }
+    lastKey = key;
+    lastTiles = tiles;
+    return tiles;
+  }
+
+  /**
+   * Calculates the tile indices of a chunk. The tiles in the last row and column need the corners of the neighbouring
+   * chunks.
+   */
+  private byte[] createTiles(int chunkX, int chunkY) {
+    BitLattice chunk = generator.getChunk(chunkX, chunkY);
+    BitLattice right = generator.getChunk(chunkX + 1, chunkY);
+    BitLattice below = generator.getChunk(chunkX, chunkY + 1);
+    BitLattice diagonal = generator.getChunk(chunkX + 1, chunkY + 1);
+    byte[] tiles = new byte[chunkSize * chunkSize];
+    for (int y = 0; y < chunkSize; ++y) {
+      for (int x = 0; x < chunkSize; ++x) {
+        boolean topLeft = chunk.get(x, y);
+        boolean topRight = x + 1 < chunkSize ? chunk.get(x + 1, y) : right.get(0, y);
+        boolean bottomLeft;
+        boolean bottomRight;
+        if (y + 1 < chunkSize) {
+          bottomLeft = chunk.get(x, y + 1);
+          bottomRight = x + 1 < chunkSize ? chunk.get(x + 1, y + 1) : right.get(0, y + 1);
+        }
+        else {
+          bottomLeft = below.get(x, 0);
+          bottomRight = x + 1 < chunkSize ? below.get(x + 1, 0) : diagonal.get(0, 0);
+        }
+        tiles[y * chunkSize + x] = (byte)MarchingSquaresSelector.getIndex(topLeft, topRight, bottomLeft, bottomRight);
+      }
+    }
+    return tiles;
+  }
+}
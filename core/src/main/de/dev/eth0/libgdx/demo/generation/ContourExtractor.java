@@ -0,0 +1,342 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Traces the outlines of the walls of a map into closed polylines, e.g. to create one chain collider per outline
+ * instead of one box per filled cell.
+ * <p>
+ * The outlines run through the same corner lattice as the tiles chosen by {@link MarchingSquaresSelector}: every tile
+ * whose corners differ contains a segment between the midpoints of the edges with a filled and an empty corner. The
+ * ambiguous tiles with two diagonal filled corners connect the walls, like paths which never squeeze through a wall
+ * corner. Corners outside the map count as filled, so every outline is closed.
+ * </p>
+ * <p>
+ * The segments of an outline are joined and simplified with the Douglas-Peucker algorithm: points closer than the
+ * tolerance to the simplified outline are dropped. The result is a list of flat {@code x0, y0, x1, y1, ...} chains,
+ * the last point is connected to the first one and isn't repeated. The coordinates are those of the
+ * {@link com.badlogic.gdx.maps.tiled.TiledMapTileLayer} created by {@link CaveGenerator}: the origin is the bottom-left
+ * corner and corner {@code (x, y)} of the map lies at {@code (x, height - 1 - y) * tileSize}. The walls are on the
+ * right of each chain, so outlines around walls run clockwise and outlines around empty space counterclockwise.
+ * </p>
+ * An extractor isn't thread-safe, it reuses its buffers between maps of the same size.
+ */
+public class ContourExtractor {
+
+  // edges of a tile, clockwise from the top
+  private static final int TOP = 0;
+  private static final int RIGHT = 1;
+  private static final int BOTTOM = 2;
+  private static final int LEFT = 3;
+
+  /**
+   * The segments of each tile index as pairs of edges, the walls on the left when walking from the first to the second
+   * edge with the y axis pointing down.
+   */
+  private static final int[][] SEGMENTS = new int[MarchingSquaresSelector.TILE_COUNT][];
+
+  static {
+    for (int index = 0; index < MarchingSquaresSelector.TILE_COUNT; ++index) {
+      // corner k is the start of edge k, clockwise from top-left; the index has bits set for empty corners
+      int[] entries = new int[2];
+      int[] exits = new int[2];
+      int count = 0;
+      int exitCount = 0;
+      for (int k = 0; k < 4; ++k) {
+        boolean empty = (index >> (3 - k) & 1) != 0;
+        boolean nextEmpty = (index >> (3 - ((k + 1) & 3)) & 1) != 0;
+        if (empty && !nextEmpty) {
+          entries[count++] = k;
+        }
+        else if (!empty && nextEmpty) {
+          exits[exitCount++] = k;
+        }
+      }
+      SEGMENTS[index] = new int[2 * count];
+      for (int i = 0; i < count; ++i) {
+        // a single wall run ends at the exit, the two runs of an ambiguous tile join in its middle
+        SEGMENTS[index][2 * i] = count == 1 ? exits[0] : (entries[i] + 3) & 3;
+        SEGMENTS[index][2 * i + 1] = entries[i];
+      }
+    }
+  }
+
+  private float tolerance = 0.5f;
+  private float tileSize = 1f;
+
+  private int width;
+  private int height;
+  // the successor of every crossed edge of the padded lattice, -1 for edges without crossing
+  private int[] next;
+  private float[] points = new float[256];
+  private int[] stack = new int[64];
+  private boolean[] keep = new boolean[128];
+
+  private ContourExtractor() {
+  }
+
+  /**
+   * Traces all outlines of the map.
+   *
+   * @param map - the corners.
+   * @return the simplified outlines as chains of points.
+   */
+  public List<float[]> extract(boolean[][] map) {
+    prepare(map[0].length, map.length);
+    link(map);
+    List<float[]> ret = new ArrayList<>();
+    for (int edge = 0; edge < next.length; ++edge) {
+      if (next[edge] >= 0) {
+        ret.add(trace(edge));
+      }
+    }
+    return ret;
+  }
+
+  private void prepare(int width, int height) {
+    if (next == null || this.width != width || this.height != height) {
+      this.width = width;
+      this.height = height;
+      next = new int[horizontalEdges() + (width + 2) * (height + 1)];
+    }
+    Arrays.fill(next, -1);
+  }
+
+  /**
+   * Links the edges crossed by the segments of every tile, including the ring of tiles between the map and the filled
+   * corners around it.
+   */
+  private void link(boolean[][] map) {
+    byte[] indices = MarchingSquaresSelector.getIndices(map);
+    int tiles = width - 1;
+    for (int y = -1; y < height; ++y) {
+      for (int x = -1; x < width; ++x) {
+        int index;
+        if (x >= 0 && y >= 0 && x < width - 1 && y < height - 1) {
+          index = indices[y * tiles + x];
+        }
+        else {
+          index = MarchingSquaresSelector.getIndex(isFilled(map, x, y), isFilled(map, x + 1, y),
+              isFilled(map, x, y + 1), isFilled(map, x + 1, y + 1));
+        }
+        int[] segments = SEGMENTS[index];
+        for (int i = 0; i < segments.length; i += 2) {
+          next[edge(x + 1, y + 1, segments[i])] = edge(x + 1, y + 1, segments[i + 1]);
+        }
+      }
+    }
+  }
+
+  private static boolean isFilled(boolean[][] map, int x, int y) {
+    return x < 0 || y < 0 || y >= map.length || x >= map[y].length || map[y][x] == LatticeFns.FILLED;
+  }
+
+  private int horizontalEdges() {
+    return (width + 1) * (height + 2);
+  }
+
+  /**
+   * @return the id of the edge of the tile whose top-left corner is {@code (x, y)} in the padded lattice.
+   */
+  private int edge(int x, int y, int side) {
+    switch (side) {
+      case TOP:
+        return y * (width + 1) + x;
+      case BOTTOM:
+        return (y + 1) * (width + 1) + x;
+      case LEFT:
+        return horizontalEdges() + y * (width + 2) + x;
+      default:
+        return horizontalEdges() + y * (width + 2) + x + 1;
+    }
+  }
+
+  /**
+   * Follows the outline through the edge, removing its links, and simplifies it.
+   */
+  private float[] trace(int start) {
+    int count = 0;
+    int edge = start;
+    do {
+      if (2 * count + 2 > points.length) {
+        points = Arrays.copyOf(points, 2 * points.length);
+      }
+      // midpoint of the edge in the lattice, y pointing down
+      if (edge < horizontalEdges()) {
+        points[2 * count] = edge % (width + 1) - 0.5f;
+        points[2 * count + 1] = edge / (width + 1) - 1f;
+      }
+      else {
+        int vertical = edge - horizontalEdges();
+        points[2 * count] = vertical % (width + 2) - 1f;
+        points[2 * count + 1] = vertical / (width + 2) - 0.5f;
+      }
+      ++count;
+      int following = next[edge];
+      next[edge] = -1;
+      edge = following;
+    }
+    while (edge != start);
+    return toChain(count, simplify(count));
+  }
+
+  /**
+   * Marks the points of the closed outline kept by the Douglas-Peucker algorithm. The outline is split at the first
+   * point and the point farthest from it, each half is then simplified on its own.
+   *
+   * @return the number of kept points.
+   */
+  private int simplify(int count) {
+    if (keep.length < count) {
+      keep = new boolean[Math.max(count, 2 * keep.length)];
+    }
+    Arrays.fill(keep, 0, count, false);
+    int farthest = 0;
+    float max = -1f;
+    for (int i = 1; i < count; ++i) {
+      float dx = points[2 * i] - points[0];
+      float dy = points[2 * i + 1] - points[1];
+      if (dx * dx + dy * dy > max) {
+        max = dx * dx + dy * dy;
+        farthest = i;
+      }
+    }
+    keep[0] = true;
+    keep[farthest] = true;
+    int kept = 2;
+    kept += simplify(0, farthest, count);
+    kept += simplify(farthest, count, count);
+    if (kept < 3) {
+      // an outline has an area, keep the point farthest from the line through the other two
+      int best = farthest(0, farthest, count);
+      int other = farthest(farthest, count, count);
+      if (best < 0 || other >= 0 && distance(other, farthest, 0) > distance(best, 0, farthest)) {
+        best = other;
+      }
+      keep[best] = true;
+      ++kept;
+    }
+    return kept;
+  }
+
+  /**
+   * Simplifies the points between {@code from} and {@code to}, index {@code count} being the first point again.
+   *
+   * @return the number of kept points between them.
+   */
+  private int simplify(int from, int to, int count) {
+    int kept = 0;
+    int size = 0;
+    stack = push(stack, size++, from);
+    stack = push(stack, size++, to);
+    while (size > 0) {
+      int last = stack[--size];
+      int first = stack[--size];
+      int split = farthest(first, last, count);
+      if (split >= 0 && distance(split, first, last % count) > tolerance) {
+        keep[split] = true;
+        ++kept;
+        stack = push(stack, size++, first);
+        stack = push(stack, size++, split);
+        stack = push(stack, size++, split);
+        stack = push(stack, size++, last);
+      }
+    }
+    return kept;
+  }
+
+  private static int[] push(int[] stack, int size, int value) {
+    if (size == stack.length) {
+      stack = Arrays.copyOf(stack, 2 * size);
+    }
+    stack[size] = value;
+    return stack;
+  }
+
+  /**
+   * @return the point strictly between {@code first} and {@code last} farthest from the line through them or -1.
+   */
+  private int farthest(int first, int last, int count) {
+    int ret = -1;
+    float max = -1f;
+    for (int i = first + 1; i < last; ++i) {
+      float distance = distance(i, first, last % count);
+      if (distance > max) {
+        max = distance;
+        ret = i;
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * @return the distance of the point from the segment between the other two points.
+   */
+  private float distance(int point, int a, int b) {
+    float px = points[2 * point];
+    float py = points[2 * point + 1];
+    float ax = points[2 * a];
+    float ay = points[2 * a + 1];
+    float dx = points[2 * b] - ax;
+    float dy = points[2 * b + 1] - ay;
+    float length = dx * dx + dy * dy;
+    float t = length > 0f ? Math.max(0f, Math.min(1f, ((px - ax) * dx + (py - ay) * dy) / length)) : 0f;
+    float ex = px - ax - t * dx;
+    float ey = py - ay - t * dy;
+    return (float)Math.sqrt(ex * ex + ey * ey);
+  }
+
+  /**
+   * Copies the kept points into a chain in the coordinates of the tile layer.
+   */
+  private float[] toChain(int count, int kept) {
+    float[] ret = new float[2 * kept];
+    int j = 0;
+    for (int i = 0; i < count; ++i) {
+      if (keep[i]) {
+        ret[j++] = points[2 * i] * tileSize;
+        ret[j++] = (height - 1 - points[2 * i + 1]) * tileSize;
+      }
+    }
+    return ret;
+  }
+
+  public static class Builder {
+
+    private final ContourExtractor extractor;
+
+    public static Builder create() {
+      return new Builder();
+    }
+
+    private Builder() {
+      extractor = new ContourExtractor();
+    }
+
+    /**
+     * @param tolerance - maximum distance in tiles of a dropped point from the simplified outline, 0 only drops
+     *                  points on straight lines.
+     */
+    public Builder withTolerance(float tolerance) {
+      extractor.tolerance = tolerance;
+      return this;
+    }
+
+    /**
+     * @param tileSize - size of a tile in the coordinates of the chains.
+     */
+    public Builder withTileSize(float tileSize) {
+      extractor.tileSize = tileSize;
+      return this;
+    }
+
+    public ContourExtractor build() {
+      if (extractor.tolerance < 0f) {
+        throw new IllegalArgumentException("The tolerance must not be negative");
+      }
+      return extractor;
+    }
+  }
+}
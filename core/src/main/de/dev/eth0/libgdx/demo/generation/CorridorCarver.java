@@ -0,0 +1,147 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static de.dev.eth0.libgdx.demo.generation.LatticeFns.EMPTY;
+
+import java.util.Arrays;
+
+/**
+ * Connects all rooms of a map by carving the cheapest set of corridors.
+ * <p>
+ * A breadth-first search starting at every room cell at once grows each room into the walls around it, so every
+ * interior cell ends up owned by its nearest room together with the distance to it. Wherever two cells owned by
+ * different rooms touch, a corridor between those rooms costs the walls on the way back to both rooms. The cheapest
+ * of these corridors forming a minimum spanning tree over all rooms are carved.
+ * </p>
+ * As the interior of the map is connected, this always connects every room. Ties are broken by the position of the
+ * cells, so the result only depends on the map.
+ */
+public class CorridorCarver {
+
+  private CorridorCarver() {
+  }
+
+  /**
+   * Carves corridors so that all rooms of the map are connected. Only interior cells (everything except the border
+   * of the map) are changed.
+   *
+   * @param map   - the map to carve the corridors into.
+   * @param rooms - the empty rooms of the map.
+   * @return the number of cells that were carved.
+   */
+  public static int connect(boolean[][] map, RoomLabels rooms) {
+    if (rooms.getRoomCount() < 2) {
+      return 0;
+    }
+    int width = rooms.getWidth();
+    int height = rooms.getHeight();
+    int size = width * height;
+
+    // multi-source breadth-first search from all rooms
+    int[] owner = new int[size];
+    int[] distance = new int[size];
+    int[] parent = new int[size];
+    int[] queue = new int[size];
+    Arrays.fill(owner, RoomLabels.NONE);
+    int head = 0;
+    int tail = 0;
+    int[] labels = rooms.getLabels();
+    for (int idx = 0; idx < size; ++idx) {
+      if (labels[idx] != RoomLabels.NONE) {
+        owner[idx] = labels[idx];
+        parent[idx] = idx;
+        queue[tail++] = idx;
+      }
+    }
+    int[] offsets = { -width, -1, 1, width };
+    while (head < tail) {
+      int current = queue[head++];
+      for (int offset : offsets) {
+        int next = current + offset;
+        if (!isInterior(next, width, height) || owner[next] != RoomLabels.NONE) {
+          continue;
+        }
+        owner[next] = owner[current];
+        distance[next] = distance[current] + 1;
+        parent[next] = current;
+        queue[tail++] = next;
+      }
+    }
+
+    // candidate corridors: every pair of touching cells owned by different rooms, encoded as cost, cell and direction
+    long[] edges = new long[64];
+    int edgeCount = 0;
+    for (int idx = 0; idx < size; ++idx) {
+      if (owner[idx] == RoomLabels.NONE) {
+        continue;
+      }
+      for (int dir = 0; dir < 2; ++dir) {
+        int other = dir == 0 ? idx + 1 : idx + width;
+        boolean wraps = dir == 0 && idx % width == width - 1;
+        if (wraps || other >= size || owner[other] == RoomLabels.NONE || owner[other] == owner[idx]) {
+          continue;
+        }
+        if (edgeCount == edges.length) {
+          edges = Arrays.copyOf(edges, edgeCount * 2);
+        }
+        long cost = distance[idx] + distance[other];
+        edges[edgeCount++] = cost << 33 | (long)idx << 1 | dir;
+      }
+    }
+    Arrays.sort(edges, 0, edgeCount);
+
+    // Kruskal over the rooms
+    int[] roomParent = new int[rooms.getRoomCount()];
+    for (int room = 0; room < roomParent.length; ++room) {
+      roomParent[room] = room;
+    }
+    int carved = 0;
+    int components = roomParent.length;
+    for (int i = 0; i < edgeCount && components > 1; ++i) {
+      int idx = (int)(edges[i] >>> 1 & 0xFFFFFFFFL);
+      int other = (edges[i] & 1) == 0 ? idx + 1 : idx + width;
+      int rootA = find(roomParent, owner[idx]);
+      int rootB = find(roomParent, owner[other]);
+      if (rootA == rootB) {
+        continue;
+      }
+      roomParent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+      components--;
+      carved += carve(map, parent, idx, width);
+      carved += carve(map, parent, other, width);
+    }
+    return carved;
+  }
+
+  private static boolean isInterior(int idx, int width, int height) {
+    int x = idx % width;
+    int y = idx / width;
+    return x > 0 && y > 0 && x < width - 1 && y < height - 1;
+  }
+
+  /**
+   * Empties all cells on the way from the given cell back to the room owning it.
+   */
+  private static int carve(boolean[][] map, int[] parent, int idx, int width) {
+    int carved = 0;
+    while (true) {
+      int x = idx % width;
+      int y = idx / width;
+      if (map[y][x] != EMPTY) {
+        map[y][x] = EMPTY;
+        carved++;
+      }
+      if (parent[idx] == idx) {
+        return carved;
+      }
+      idx = parent[idx];
+    }
+  }
+
+  private static int find(int[] parent, int room) {
+    while (parent[room] != room) {
+      parent[room] = parent[parent[room]];
+      room = parent[room];
+    }
+    return room;
+  }
+}
@@ -0,0 +1,42 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+/**
+ * Counter-based random numbers: every value is a hash of the seed, a position and a stream instead of the next value
+ * of a sequence. Values can be computed in any order, on any thread or for any part of a map, and a value doesn't
+ * change if other values are computed or not.
+ * <p>
+ * The hash mixes the inputs with the finalizer of SplitMix64, which passes the usual statistical tests for
+ * consecutive counters.
+ * </p>
+ */
+public class CounterRandom {
+
+  /**
+   * Stream of the initial fill of the map.
+   */
+  public static final int FILL = 0;
+  /**
+   * Stream of the random walk connecting rooms.
+   */
+  public static final int WALK = 1;
+
+  private CounterRandom() {
+  }
+
+  /**
+   * @return a hash of the inputs, all 64 bits are usable.
+   */
+  public static long hash(long seed, int x, int y, int stream) {
+    long h = seed + 0x9E3779B97F4A7C15L * x + 0xC2B2AE3D27D4EB4FL * y + 0x165667B19E3779F9L * stream;
+    h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+    h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+    return h ^ (h >>> 31);
+  }
+
+  /**
+   * @return the hash of the inputs mapped to {@code [0, 1)}.
+   */
+  public static double uniform(long seed, int x, int y, int stream) {
+    return (hash(seed, x, y, stream) >>> 11) * 0x1.0p-53;
+  }
+}
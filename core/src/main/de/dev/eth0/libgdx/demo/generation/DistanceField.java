@@ -0,0 +1,307 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.Arrays;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Distance transforms of a map in linear time. Results are written row after row into {@code int[]} or
+ * {@code float[]} buffers of {@code width * height} entries, which can be passed in again for the next map.
+ * <ul>
+ * <li>{@link #squaredEuclidean(boolean[][], boolean, int[])} and {@link #euclidean(boolean[][], boolean, float[])}:
+ * the exact distance to the nearest cell of a type. The distance along the columns is taken in two sweeps, the
+ * distance along the rows is the lower envelope of the parabolas of the cells of a row (Felzenszwalb and
+ * Huttenlocher), intersected in integers. Both passes run in parallel, the first one in stripes of columns and the
+ * second one in bands of rows.</li>
+ * <li>{@link #chamfer(boolean[][], boolean, int[])}: the 3-4 chamfer distance, three times the Euclidean distance
+ * within 8%. Two sequential raster scans, cheaper than the exact transform on a single thread.</li>
+ * <li>{@link #breadthFirst(boolean[][], boolean, int[], int, int[])}: the number of steps from the nearest of several
+ * sources moving through cells of a type, which is the distance walking through the cave instead of through walls.
+ * </li>
+ * </ul>
+ * A distance field keeps scratch space between calls and must not be used from several threads at once. The threads of
+ * the parallel transforms are shut down by {@link #dispose()}.
+ */
+public class DistanceField implements Disposable {
+
+  /**
+   * Distance of cells without any cell of the type or without a path to a source.
+   */
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  private static final int ORTHOGONAL = 3;
+  private static final int DIAGONAL = 4;
+
+  private final int width;
+  private final int height;
+  private final BandExecutor bands;
+
+  // squared distances for euclidean and the queue of breadthFirst
+  private int[] scratch;
+
+  public DistanceField(int width, int height) {
+    this(width, height, 1);
+  }
+
+  /**
+   * @param parallelism - number of threads used by the Euclidean transforms, 1 runs everything on the calling thread.
+   */
+  public DistanceField(int width, int height, int parallelism) {
+    this.width = width;
+    this.height = height;
+    this.bands = new BandExecutor(parallelism, null);
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Computes the squared Euclidean distance of every cell to the nearest cell of the given type, 0 for cells of the
+   * type and {@link #UNREACHABLE} if the map has no cell of the type.
+   *
+   * @param out - buffer for the result or {@code null} to allocate one.
+   * @return the buffer holding the result.
+   */
+  public int[] squaredEuclidean(boolean[][] map, boolean type, int[] out) {
+    int[] ret = buffer(out);
+    columnPass(map, type, ret);
+    bands.run(height, 1, (band, from, to) -> {
+      int[] sites = new int[width];
+      int[] starts = new int[width];
+      int[] values = new int[width];
+      for (int y = from; y < to; ++y) {
+        rowPass(ret, y * width, sites, starts, values);
+      }
+    }, "computing distances");
+    return ret;
+  }
+
+  /**
+   * Computes the Euclidean distance of every cell to the nearest cell of the given type, see
+   * {@link #squaredEuclidean(boolean[][], boolean, int[])}. Cells without any cell of the type get
+   * {@link Float#POSITIVE_INFINITY}.
+   *
+   * @param out - buffer for the result or {@code null} to allocate one.
+   * @return the buffer holding the result.
+   */
+  public float[] euclidean(boolean[][] map, boolean type, float[] out) {
+    float[] ret = out != null && out.length >= width * height ? out : new float[width * height];
+    int[] squared = squaredEuclidean(map, type, scratch());
+    bands.run(height, 1, (band, from, to) -> {
+      for (int i = from * width; i < to * width; ++i) {
+        ret[i] = squared[i] == UNREACHABLE ? Float.POSITIVE_INFINITY : (float)Math.sqrt(squared[i]);
+      }
+    }, "computing distances");
+    return ret;
+  }
+
+  /**
+   * Computes the 3-4 chamfer distance of every cell to the nearest cell of the given type: 3 per orthogonal and 4 per
+   * diagonal step, so dividing by 3 approximates the Euclidean distance. Cells without any cell of the type get
+   * {@link #UNREACHABLE}.
+   *
+   * @param out - buffer for the result or {@code null} to allocate one.
+   * @return the buffer holding the result.
+   */
+  public int[] chamfer(boolean[][] map, boolean type, int[] out) {
+    int[] ret = buffer(out);
+    // saturates instead of overflowing when adding a step
+    int infinity = UNREACHABLE - DIAGONAL;
+    for (int y = 0; y < height; ++y) {
+      boolean[] row = map[y];
+      int idx = y * width;
+      for (int x = 0; x < width; ++x, ++idx) {
+        int d = row[x] == type ? 0 : infinity;
+        if (d != 0) {
+          if (x > 0) {
+            d = Math.min(d, ret[idx - 1] + ORTHOGONAL);
+          }
+          if (y > 0) {
+            d = Math.min(d, ret[idx - width] + ORTHOGONAL);
+            if (x > 0) {
+              d = Math.min(d, ret[idx - width - 1] + DIAGONAL);
+            }
+            if (x < width - 1) {
+              d = Math.min(d, ret[idx - width + 1] + DIAGONAL);
+            }
+          }
+        }
+        ret[idx] = d;
+      }
+    }
+    for (int y = height - 1; y >= 0; --y) {
+      int idx = y * width + width - 1;
+      for (int x = width - 1; x >= 0; --x, --idx) {
+        int d = ret[idx];
+        if (d != 0) {
+          if (x < width - 1) {
+            d = Math.min(d, ret[idx + 1] + ORTHOGONAL);
+          }
+          if (y < height - 1) {
+            d = Math.min(d, ret[idx + width] + ORTHOGONAL);
+            if (x < width - 1) {
+              d = Math.min(d, ret[idx + width + 1] + DIAGONAL);
+            }
+            if (x > 0) {
+              d = Math.min(d, ret[idx + width - 1] + DIAGONAL);
+            }
+          }
+          ret[idx] = d;
+        }
+      }
+    }
+    for (int i = 0; i < width * height; ++i) {
+      if (ret[i] >= infinity) {
+        ret[i] = UNREACHABLE;
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Computes the number of orthogonal steps from the nearest source to every cell, only moving through cells of the
+   * given type. Cells of another type and cells without a path to a source get {@link #UNREACHABLE}.
+   *
+   * @param type    - type of the cells which can be entered, usually {@link LatticeFns#EMPTY}.
+   * @param sources - cell indices {@code y * width + x} of the sources, sources of another type are ignored.
+   * @param count   - number of sources.
+   * @param out     - buffer for the result or {@code null} to allocate one.
+   * @return the buffer holding the result.
+   */
+  public int[] breadthFirst(boolean[][] map, boolean type, int[] sources, int count, int[] out) {
+    int[] ret = buffer(out);
+    Arrays.fill(ret, 0, width * height, UNREACHABLE);
+    int[] queue = scratch();
+    int head = 0;
+    int tail = 0;
+    for (int i = 0; i < count; ++i) {
+      int source = sources[i];
+      if (map[source / width][source % width] == type && ret[source] == UNREACHABLE) {
+        ret[source] = 0;
+        queue[tail++] = source;
+      }
+    }
+    while (head < tail) {
+      int idx = queue[head++];
+      int x = idx % width;
+      int y = idx / width;
+      int next = ret[idx] + 1;
+      if (x > 0 && ret[idx - 1] == UNREACHABLE && map[y][x - 1] == type) {
+        ret[idx - 1] = next;
+        queue[tail++] = idx - 1;
+      }
+      if (x < width - 1 && ret[idx + 1] == UNREACHABLE && map[y][x + 1] == type) {
+        ret[idx + 1] = next;
+        queue[tail++] = idx + 1;
+      }
+      if (y > 0 && ret[idx - width] == UNREACHABLE && map[y - 1][x] == type) {
+        ret[idx - width] = next;
+        queue[tail++] = idx - width;
+      }
+      if (y < height - 1 && ret[idx + width] == UNREACHABLE && map[y + 1][x] == type) {
+        ret[idx + width] = next;
+        queue[tail++] = idx + width;
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Writes the squared distance to the nearest cell of the type in the same column, sweeping down and up in stripes
+   * of columns.
+   */
+  private void columnPass(boolean[][] map, boolean type, int[] out) {
+    int infinity = width + height;
+    bands.run(width, 1, (band, from, to) -> {
+      for (int x = from; x < to; ++x) {
+        out[x] = map[0][x] == type ? 0 : infinity;
+      }
+      for (int y = 1; y < height; ++y) {
+        boolean[] row = map[y];
+        int idx = y * width;
+        for (int x = from; x < to; ++x) {
+          out[idx + x] = row[x] == type ? 0 : Math.min(infinity, out[idx - width + x] + 1);
+        }
+      }
+      for (int y = height - 2; y >= 0; --y) {
+        int idx = y * width;
+        for (int x = from; x < to; ++x) {
+          out[idx + x] = Math.min(out[idx + x], out[idx + width + x] + 1);
+        }
+      }
+      for (int y = 0; y < height; ++y) {
+        int idx = y * width;
+        for (int x = from; x < to; ++x) {
+          int d = out[idx + x];
+          out[idx + x] = d >= infinity ? UNREACHABLE : d * d;
+        }
+      }
+    }, "computing distances");
+  }
+
+  /**
+   * Replaces the squared column distances of a row by the squared distances, the minimum over {@code x'} of
+   * {@code (x - x')^2 + f(x')}. The lower envelope of the parabolas is built from left to right with the integer
+   * intersections of Meijster et al., cells without a cell of the type in their column don't contribute a parabola.
+   */
+  private void rowPass(int[] f, int offset, int[] sites, int[] starts, int[] values) {
+    int k = -1;
+    for (int u = 0; u < width; ++u) {
+      int fu = f[offset + u];
+      if (fu == UNREACHABLE) {
+        continue;
+      }
+      while (k >= 0 && parabola(starts[k], sites[k], values[k]) > parabola(starts[k], u, fu)) {
+        --k;
+      }
+      if (k < 0) {
+        k = 0;
+        sites[0] = u;
+        values[0] = fu;
+        starts[0] = 0;
+        continue;
+      }
+      // first x at which the parabola of u is below the one of the last site
+      int start = 1 + Math.floorDiv(u * u - sites[k] * sites[k] + fu - values[k], 2 * (u - sites[k]));
+      if (start < width) {
+        ++k;
+        sites[k] = u;
+        values[k] = fu;
+        starts[k] = start;
+      }
+    }
+    if (k < 0) {
+      return;
+    }
+    for (int x = width - 1; x >= 0; --x) {
+      f[offset + x] = parabola(x, sites[k], values[k]);
+      if (x == starts[k]) {
+        --k;
+      }
+    }
+  }
+
+  private static int parabola(int x, int site, int value) {
+    return (x - site) * (x - site) + value;
+  }
+
+  @Override
+  public void dispose() {
+    bands.dispose();
+  }
+
+  private int[] buffer(int[] out) {
+    return out != null && out.length >= width * height ? out : new int[width * height];
+  }
+
+  private int[] scratch() {
+    if (scratch == null) {
+      scratch = new int[width * height];
+    }
+    return scratch;
+  }
+}
@@ -0,0 +1,268 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static de.dev.eth0.libgdx.demo.generation.LatticeFns.EMPTY;
+
+import java.util.Arrays;
+
+/**
+ * The shortest paths from every empty cell of a map to one goal cell, so any number of agents can look up their next
+ * step in constant time.
+ * <p>
+ * The field is built by one Dijkstra search from the goal with the moves and costs of {@link GridPathfinder}, so an
+ * agent following the directions walks a path of the same cost as {@link GridPathfinder#findPath}. Every cell stores
+ * its distance and one byte with the direction of its next step.
+ * </p>
+ * <p>
+ * When cells of the map change, {@link #cellChanged(int, int)} repairs the field: an opened cell only lowers
+ * distances, which spread from its neighbours; a closed cell invalidates the cells whose paths ran through it, which
+ * are searched again from the cells around them.
+ * </p>
+ * Lookups only read the field, they can run on several threads as long as no update runs at the same time.
+ */
+public class FlowField {
+
+  /**
+   * Direction of the goal cell.
+   */
+  public static final byte GOAL = 8;
+  /**
+   * Direction of walls and of cells without a path to the goal.
+   */
+  public static final byte NONE = -1;
+
+  // the directions, clockwise from right, odd ones are diagonal
+  private static final int[] DIRECTION_X = { 1, 1, 0, -1, -1, -1, 0, 1 };
+  private static final int[] DIRECTION_Y = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+  private final boolean[][] map;
+  private final int width;
+  private final int height;
+  private final int goal;
+  private final int[] distances;
+  private final byte[] directions;
+  private final CellHeap open;
+  // cells whose path broke when closing a cell
+  private final int[] affected;
+
+  public FlowField(boolean[][] map, int goalX, int goalY) {
+    this(map, goalX, goalY, new CellHeap(map[0].length * map.length), new int[map[0].length * map.length]);
+  }
+
+  /**
+   * Creates a field sharing the buffers of its searches with other fields of the same map.
+   */
+  FlowField(boolean[][] map, int goalX, int goalY, CellHeap open, int[] affected) {
+    this.map = map;
+    this.width = map[0].length;
+    this.height = map.length;
+    this.goal = goalY * width + goalX;
+    this.distances = new int[width * height];
+    this.directions = new byte[width * height];
+    this.open = open;
+    this.affected = affected;
+    rebuild();
+  }
+
+  public int getGoalX() {
+    return goal % width;
+  }
+
+  public int getGoalY() {
+    return goal / width;
+  }
+
+  /**
+   * @return the direction of the next step from the cell, an index into {@link #getDirectionX(int)} and
+   * {@link #getDirectionY(int)}, {@link #GOAL} for the goal or {@link #NONE}.
+   */
+  public byte getDirection(int x, int y) {
+    return directions[y * width + x];
+  }
+
+  /**
+   * @return the next cell {@code y * width + x} on a shortest path from the cell to the goal, the goal itself for the
+   * goal or -1 if there is no path.
+   */
+  public int getNext(int cell) {
+    byte direction = directions[cell];
+    if (direction == NONE) {
+      return -1;
+    }
+    if (direction == GOAL) {
+      return cell;
+    }
+    return cell + DIRECTION_Y[direction] * width + DIRECTION_X[direction];
+  }
+
+  /**
+   * @return the cost of a shortest path from the cell to the goal, {@link DistanceField#UNREACHABLE} for walls and
+   * cells without a path.
+   */
+  public int getDistance(int x, int y) {
+    return distances[y * width + x];
+  }
+
+  public static int getDirectionX(int direction) {
+    return DIRECTION_X[direction];
+  }
+
+  public static int getDirectionY(int direction) {
+    return DIRECTION_Y[direction];
+  }
+
+  /**
+   * Searches the whole field again.
+   */
+  public void rebuild() {
+    Arrays.fill(distances, DistanceField.UNREACHABLE);
+    Arrays.fill(directions, NONE);
+    open.clear();
+    if (isEmpty(goal % width, goal / width)) {
+      distances[goal] = 0;
+      directions[goal] = GOAL;
+      open.add(goal, 0);
+      propagate();
+    }
+  }
+
+  /**
+   * Repairs the field after the cell of the map changed.
+   */
+  public void cellChanged(int x, int y) {
+    open.clear();
+    if (map[y][x] == EMPTY) {
+      opened(x, y);
+    }
+    else if (y * width + x == goal) {
+      Arrays.fill(distances, DistanceField.UNREACHABLE);
+      Arrays.fill(directions, NONE);
+    }
+    else {
+      closed(x, y);
+    }
+  }
+
+  /**
+   * The cell and the diagonal moves around it can lower distances: the search continues from all cells around it.
+   */
+  private void opened(int x, int y) {
+    int cell = y * width + x;
+    if (cell == goal) {
+      distances[goal] = 0;
+      directions[goal] = GOAL;
+    }
+    for (int ny = y - 1; ny <= y + 1; ++ny) {
+      for (int nx = x - 1; nx <= x + 1; ++nx) {
+        int neighbour = ny * width + nx;
+        if (isEmpty(nx, ny) && distances[neighbour] != DistanceField.UNREACHABLE) {
+          open.add(neighbour, distances[neighbour]);
+        }
+      }
+    }
+    propagate();
+  }
+
+  /**
+   * Collects the cells whose path used the cell or one of the diagonal moves past it, forgets their distances and
+   * searches them again from the cells around them.
+   */
+  private void closed(int x, int y) {
+    int cell = y * width + x;
+    int count = 0;
+    affected[count++] = cell;
+    distances[cell] = DistanceField.UNREACHABLE;
+    directions[cell] = NONE;
+    for (int ny = y - 1; ny <= y + 1; ++ny) {
+      for (int nx = x - 1; nx <= x + 1; ++nx) {
+        int neighbour = ny * width + nx;
+        if (isEmpty(nx, ny) && directions[neighbour] >= 0 && directions[neighbour] < GOAL
+            && !canMove(nx, ny, DIRECTION_X[directions[neighbour]], DIRECTION_Y[directions[neighbour]])) {
+          affected[count++] = neighbour;
+          distances[neighbour] = DistanceField.UNREACHABLE;
+          directions[neighbour] = NONE;
+        }
+      }
+    }
+    // every cell whose next step is an affected cell is affected as well
+    for (int i = 0; i < count; ++i) {
+      int current = affected[i];
+      int cx = current % width;
+      int cy = current / width;
+      for (int d = 0; d < 8; ++d) {
+        int nx = cx + DIRECTION_X[d];
+        int ny = cy + DIRECTION_Y[d];
+        int neighbour = ny * width + nx;
+        if (isInside(nx, ny) && directions[neighbour] == ((d + 4) & 7)) {
+          affected[count++] = neighbour;
+          distances[neighbour] = DistanceField.UNREACHABLE;
+          directions[neighbour] = NONE;
+        }
+      }
+    }
+    for (int i = 1; i < count; ++i) {
+      seed(affected[i]);
+    }
+    propagate();
+  }
+
+  /**
+   * Takes the best step from the cell to a neighbour with a known distance.
+   */
+  private void seed(int cell) {
+    int x = cell % width;
+    int y = cell / width;
+    for (int d = 0; d < 8; ++d) {
+      if (canMove(x, y, DIRECTION_X[d], DIRECTION_Y[d])) {
+        int neighbour = cell + DIRECTION_Y[d] * width + DIRECTION_X[d];
+        if (distances[neighbour] != DistanceField.UNREACHABLE) {
+          int distance = distances[neighbour] + cost(d);
+          if (distance < distances[cell]) {
+            distances[cell] = distance;
+            directions[cell] = (byte) d;
+          }
+        }
+      }
+    }
+    if (distances[cell] != DistanceField.UNREACHABLE) {
+      open.add(cell, distances[cell]);
+    }
+  }
+
+  private void propagate() {
+    while (!open.isEmpty()) {
+      int current = open.poll();
+      int x = current % width;
+      int y = current / width;
+      for (int d = 0; d < 8; ++d) {
+        if (canMove(x, y, DIRECTION_X[d], DIRECTION_Y[d])) {
+          int neighbour = current + DIRECTION_Y[d] * width + DIRECTION_X[d];
+          int distance = distances[current] + cost(d);
+          if (distance < distances[neighbour]) {
+            distances[neighbour] = distance;
+            directions[neighbour] = (byte) ((d + 4) & 7);
+            open.add(neighbour, distance);
+          }
+        }
+      }
+    }
+  }
+
+  private static int cost(int direction) {
+    return (direction & 1) != 0 ? GridPathfinder.DIAGONAL_COST : GridPathfinder.ORTHOGONAL_COST;
+  }
+
+  private boolean canMove(int x, int y, int dx, int dy) {
+    if (!isEmpty(x + dx, y + dy)) {
+      return false;
+    }
+    return dx == 0 || dy == 0 || isEmpty(x + dx, y) && isEmpty(x, y + dy);
+  }
+
+  private boolean isEmpty(int x, int y) {
+    return isInside(x, y) && map[y][x] == EMPTY;
+  }
+
+  private boolean isInside(int x, int y) {
+    return x >= 0 && y >= 0 && x < width && y < height;
+  }
+}
@@ -0,0 +1,64 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the {@link FlowField}s of the goals of a map in a LRU cache. The fields share the buffers of their searches,
+ * so a cached field only costs its distances and directions.
+ * <p>
+ * The cache isn't thread-safe. Agents moving towards a goal should get its field once, lookups in the field itself can
+ * then run on any thread while the map doesn't change.
+ * </p>
+ */
+public class FlowFieldCache {
+
+  private final boolean[][] map;
+  private final int width;
+  private final CellHeap open;
+  private final int[] affected;
+  private final Map<Integer, FlowField> cache;
+
+  /**
+   * @param maxSize - maximum number of fields kept in memory.
+   */
+  public FlowFieldCache(boolean[][] map, int maxSize) {
+    this.map = map;
+    this.width = map[0].length;
+    this.open = new CellHeap(width * map.length);
+    this.affected = new int[width * map.length];
+    this.cache = new LinkedHashMap<Integer, FlowField>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, FlowField> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Returns the field of the goal, building it if it isn't cached.
+   */
+  public FlowField getField(int goalX, int goalY) {
+    return cache.computeIfAbsent(goalY * width + goalX, key -> new FlowField(map, goalX, goalY, open, affected));
+  }
+
+  /**
+   * @return whether the field of the goal is currently cached.
+   */
+  public boolean isCached(int goalX, int goalY) {
+    return cache.containsKey(goalY * width + goalX);
+  }
+
+  /**
+   * Repairs all cached fields after the cell of the map changed.
+   */
+  public void cellChanged(int x, int y) {
+    for (FlowField field : cache.values()) {
+      field.cellChanged(x, y);
+    }
+  }
+
+  public void clear() {
+    cache.clear();
+  }
+}
@@ -0,0 +1,34 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import com.badlogic.gdx.maps.tiled.TiledMap;
+
+/**
+ * Result of a {@link CaveGenerator} run: the corners and the {@link TiledMap} built from them.
+ */
+public class GeneratedCave {
+
+  private final CaveGenerator generator;
+  private final boolean[][] map;
+  private final TiledMap tiledMap;
+
+  GeneratedCave(CaveGenerator generator, boolean[][] map, TiledMap tiledMap) {
+    this.generator = generator;
+    this.map = map;
+    this.tiledMap = tiledMap;
+  }
+
+  /**
+   * @return the generator which created the cave, it can be used to edit the cave.
+   */
+  public CaveGenerator getGenerator() {
+    return generator;
+  }
+
+  public boolean[][] getMap() {
+    return map;
+  }
+
+  public TiledMap getTiledMap() {
+    return tiledMap;
+  }
+}
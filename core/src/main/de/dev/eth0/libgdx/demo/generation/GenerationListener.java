@@ -0,0 +1,51 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+/**
+ * Listener for metrics of the stages of a {@link CaveGenerator}. All methods are called on the thread running the
+ * generation and do nothing by default. The same values are recorded as JDK Flight Recorder events, see
+ * {@link GenerationMetrics}.
+ */
+public interface GenerationListener {
+
+  /**
+   * Called after a stage finished.
+   *
+   * @param stage          - the stage.
+   * @param nanos          - duration of the stage.
+   * @param allocatedBytes - bytes allocated by the generating thread during the stage, threads of a parallel step
+   *                       aren't included. -1 if the JVM can't measure it.
+   */
+  default void onStage(Stage stage, long nanos, long allocatedBytes) {
+  }
+
+  /**
+   * Called after every round of the automaton.
+   *
+   * @param phase        - index of the phase.
+   * @param round        - index of the round within the phase.
+   * @param changedCells - number of cells changed by the round.
+   * @param nanos        - duration of the round.
+   */
+  default void onRound(int phase, int round, int changedCells, long nanos) {
+  }
+
+  /**
+   * Called after the rooms were connected, at the end of {@link Stage#FIX_ROOMS} and right before its
+   * {@link #onStage(Stage, long, long)}. Every room but the largest one is connected by a carved corridor or by a
+   * tunnel dug towards the center of the map, no room is filled.
+   *
+   * @param rooms - number of rooms produced by the automaton, counted before they were connected.
+   */
+  default void onRooms(int rooms) {
+  }
+
+  /**
+   * Stages of {@link CaveGenerator#generate()}.
+   */
+  enum Stage {
+    INITIALIZE,
+    ITERATE,
+    FIX_ROOMS,
+    CREATE_TILED_MAP
+  }
+}
@@ -0,0 +1,151 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Measures the stages of a {@link CaveGenerator} and reports them to a {@link GenerationListener} and as JDK Flight
+ * Recorder events. Nothing is measured if there is no listener and the events aren't enabled in a recording.
+ */
+class GenerationMetrics {
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  private final GenerationListener listener;
+
+  private StageEvent stageEvent;
+  private long stageStart;
+  private long stageAllocated;
+
+  private RoundEvent roundEvent;
+  private long roundStart;
+
+  GenerationMetrics(GenerationListener listener) {
+    this.listener = listener;
+  }
+
+  void beginStage() {
+    stageEvent = new StageEvent();
+    if (listener == null && !stageEvent.isEnabled()) {
+      stageEvent = null;
+      return;
+    }
+    stageEvent.begin();
+    stageStart = System.nanoTime();
+    stageAllocated = allocatedBytes();
+  }
+
+  /**
+   * @param rooms - number of rooms found during the stage or -1.
+   */
+  void endStage(GenerationListener.Stage stage, int width, int height, int rooms) {
+    if (stageEvent == null) {
+      return;
+    }
+    long nanos = System.nanoTime() - stageStart;
+    long allocated = stageAllocated < 0 ? -1 : allocatedBytes() - stageAllocated;
+    stageEvent.end();
+    if (stageEvent.shouldCommit()) {
+      stageEvent.stage = stage.name();
+      stageEvent.width = width;
+      stageEvent.height = height;
+      stageEvent.rooms = rooms;
+      stageEvent.allocatedBytes = allocated;
+      stageEvent.commit();
+    }
+    stageEvent = null;
+    if (listener != null) {
+      if (rooms >= 0) {
+        listener.onRooms(rooms);
+      }
+      listener.onStage(stage, nanos, allocated);
+    }
+  }
+
+  /**
+   * @return whether the rounds are measured, the changed cells only have to be counted then.
+   */
+  boolean beginRound() {
+    roundEvent = new RoundEvent();
+    if (listener == null && !roundEvent.isEnabled()) {
+      roundEvent = null;
+      return false;
+    }
+    roundEvent.begin();
+    roundStart = System.nanoTime();
+    return true;
+  }
+
+  void endRound(int phase, int round, int changedCells) {
+    if (roundEvent == null) {
+      return;
+    }
+    long nanos = System.nanoTime() - roundStart;
+    roundEvent.end();
+    if (roundEvent.shouldCommit()) {
+      roundEvent.phase = phase;
+      roundEvent.round = round;
+      roundEvent.changedCells = changedCells;
+      roundEvent.commit();
+    }
+    roundEvent = null;
+    if (listener != null) {
+      listener.onRound(phase, round, changedCells, nanos);
+    }
+  }
+
+  /**
+   * @return the bytes allocated by the current thread so far or -1 if the JVM can't measure it.
+   */
+  private static long allocatedBytes() {
+    if (THREADS instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean)THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  @Name("de.dev.eth0.libgdx.demo.generation.Stage")
+  @Label("Cave Generation Stage")
+  @Category({ "libGDX Demos", "Cave Generation" })
+  @StackTrace(false)
+  static class StageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("Rooms")
+    int rooms;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+  }
+
+  @Name("de.dev.eth0.libgdx.demo.generation.Round")
+  @Label("Cave Generation Round")
+  @Category({ "libGDX Demos", "Cave Generation" })
+  @StackTrace(false)
+  static class RoundEvent extends Event {
+
+    @Label("Phase")
+    int phase;
+
+    @Label("Round")
+    int round;
+
+    @Label("Changed Cells")
+    int changedCells;
+  }
+}
@@ -0,0 +1,320 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static de.dev.eth0.libgdx.demo.generation.LatticeFns.FILLED;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Records the states of a {@link CaveGenerator} run as bit-packed XOR deltas and rebuilds any recorded round.
+ * <p>
+ * Round 0 is the initial map, every step of the automaton adds a round and connecting the rooms adds the last one.
+ * A round only stores the words of the {@link BitLattice} which changed, as word index and the XOR of the old and the
+ * new word. Once the automaton settles, most rounds only change a few words.
+ * </p>
+ * <p>
+ * A trace either keeps the latest rounds in a ring buffer, older rounds are folded into the base state, or streams
+ * all rounds to a file which can be {@link #open(Path) opened} later. Recording is single-threaded.
+ * </p>
+ * File layout: magic, version, width and height as ints, followed by one record per round: the round, the number of
+ * changed words and for each of them the word index as int and the XOR as long.
+ */
+public class GenerationTrace implements Closeable {
+
+  static final int MAGIC = 0x43545243;
+  static final int VERSION = 1;
+
+  private final int capacity;
+  private final DataOutputStream out;
+
+  private int width;
+  private int height;
+  // state of the last recorded round
+  private long[] current;
+  // state of round baseRound, the rounds after it are in deltas
+  private long[] base;
+  private int baseRound = -1;
+  // changed cells of baseRound, whose delta was folded into base
+  private int baseChangedCells;
+  private int lastRound = -1;
+  private final ArrayDeque<Delta> deltas = new ArrayDeque<>();
+
+  // scratch space of record
+  private long[] packed;
+  private int[] changedIndices = new int[64];
+  private long[] changedWords = new long[64];
+
+  private GenerationTrace(int capacity, DataOutputStream out) {
+    this.capacity = capacity;
+    this.out = out;
+  }
+
+  /**
+   * Creates a trace keeping the latest rounds in memory.
+   *
+   * @param capacity - number of deltas kept, older rounds can't be rebuilt anymore.
+   */
+  public static GenerationTrace ringBuffer(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be at least 1");
+    }
+    return new GenerationTrace(capacity, null);
+  }
+
+  /**
+   * Creates a trace streaming all rounds to the file. The rounds aren't kept in memory, the trace has to be closed
+   * and {@link #open(Path) opened} to view them.
+   */
+  public static GenerationTrace file(Path file) {
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+      return new GenerationTrace(0, out);
+    }
+    catch (IOException e) {
+      throw new GdxRuntimeException("Couldn't create trace " + file, e);
+    }
+  }
+
+  /**
+   * Reads a trace written by {@link #file(Path)}, all rounds can be rebuilt.
+   */
+  public static GenerationTrace open(Path file) {
+    GenerationTrace ret = new GenerationTrace(Integer.MAX_VALUE, null);
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new GdxRuntimeException("Not a generation trace: " + file);
+      }
+      ret.start(in.readInt(), in.readInt());
+      while (true) {
+        int round;
+        try {
+          round = in.readInt();
+        }
+        catch (EOFException e) {
+          break;
+        }
+        int count = in.readInt();
+        int[] indices = new int[count];
+        long[] words = new long[count];
+        for (int i = 0; i < count; ++i) {
+          indices[i] = in.readInt();
+          words[i] = in.readLong();
+        }
+        ret.add(new Delta(round, indices, words));
+      }
+    }
+    catch (IOException e) {
+      throw new GdxRuntimeException("Couldn't read trace " + file, e);
+    }
+    return ret;
+  }
+
+  /**
+   * Records the next round.
+   */
+  public void record(BitLattice lattice) {
+    if (current == null) {
+      start(lattice.getWidth(), lattice.getHeight());
+    }
+    record(lattice.getWords());
+  }
+
+  /**
+   * Records the next round of a generator running on the {@code boolean[][]} map.
+   */
+  public void record(boolean[][] map) {
+    if (current == null) {
+      start(map[0].length, map.length);
+    }
+    int wordsPerRow = (width + 63) >>> 6;
+    if (packed == null) {
+      packed = new long[current.length];
+    }
+    Arrays.fill(packed, 0L);
+    for (int y = 0; y < height; ++y) {
+      boolean[] row = map[y];
+      for (int x = 0; x < width; ++x) {
+        if (row[x] == FILLED) {
+          packed[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+        }
+      }
+    }
+    record(packed);
+  }
+
+  private void record(long[] words) {
+    if (words.length != current.length) {
+      throw new IllegalArgumentException("The size of the map changed");
+    }
+    int count = 0;
+    for (int i = 0; i < words.length; ++i) {
+      long delta = words[i] ^ current[i];
+      if (delta != 0) {
+        if (count == changedIndices.length) {
+          changedIndices = Arrays.copyOf(changedIndices, count * 2);
+          changedWords = Arrays.copyOf(changedWords, count * 2);
+        }
+        changedIndices[count] = i;
+        changedWords[count++] = delta;
+        current[i] = words[i];
+      }
+    }
+    Delta delta = new Delta(lastRound + 1, Arrays.copyOf(changedIndices, count), Arrays.copyOf(changedWords, count));
+    if (out != null) {
+      write(delta);
+      lastRound = delta.round;
+      return;
+    }
+    add(delta);
+  }
+
+  private void start(int width, int height) {
+    this.width = width;
+    this.height = height;
+    int words = ((width + 63) >>> 6) * height;
+    current = new long[words];
+    base = new long[words];
+    if (out != null) {
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(width);
+        out.writeInt(height);
+      }
+      catch (IOException e) {
+        throw new GdxRuntimeException("Couldn't write trace", e);
+      }
+    }
+  }
+
+  private void add(Delta delta) {
+    deltas.addLast(delta);
+    lastRound = delta.round;
+    while (deltas.size() > capacity) {
+      Delta oldest = deltas.removeFirst();
+      oldest.applyTo(base);
+      baseRound = oldest.round;
+      baseChangedCells = oldest.getChangedCells();
+    }
+  }
+
+  private void write(Delta delta) {
+    try {
+      out.writeInt(delta.round);
+      out.writeInt(delta.indices.length);
+      for (int i = 0; i < delta.indices.length; ++i) {
+        out.writeInt(delta.indices[i]);
+        out.writeLong(delta.words[i]);
+      }
+    }
+    catch (IOException e) {
+      throw new GdxRuntimeException("Couldn't write trace", e);
+    }
+  }
+
+  /**
+   * @return the first round which can be rebuilt or -1 if nothing was recorded.
+   */
+  public int getFirstRound() {
+    if (lastRound < 0 || out != null) {
+      return -1;
+    }
+    return Math.max(baseRound, 0);
+  }
+
+  /**
+   * @return the last recorded round or -1 if nothing was recorded.
+   */
+  public int getLastRound() {
+    return lastRound;
+  }
+
+  /**
+   * @param round - a round between {@link #getFirstRound()} and {@link #getLastRound()}.
+   * @return the number of cells changed in the given round, for round 0 the number of filled cells.
+   */
+  public int getChangedCells(int round) {
+    if (round == baseRound && getFirstRound() >= 0) {
+      return baseChangedCells;
+    }
+    return find(round).getChangedCells();
+  }
+
+  /**
+   * Rebuilds the state after the given round.
+   *
+   * @param round - a round between {@link #getFirstRound()} and {@link #getLastRound()}.
+   * @return a new lattice with the state.
+   */
+  public BitLattice getRound(int round) {
+    if (round < getFirstRound() || round > lastRound || getFirstRound() < 0) {
+      throw new IllegalArgumentException("Round " + round + " isn't available");
+    }
+    BitLattice ret = new BitLattice(width, height);
+    long[] words = ret.getWords();
+    System.arraycopy(base, 0, words, 0, words.length);
+    for (Delta delta : deltas) {
+      if (delta.round > round) {
+        break;
+      }
+      delta.applyTo(words);
+    }
+    return ret;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (out != null) {
+      out.close();
+    }
+  }
+
+  private Delta find(int round) {
+    for (Delta delta : deltas) {
+      if (delta.round == round) {
+        return delta;
+      }
+    }
+    throw new IllegalArgumentException("Round " + round + " isn't available");
+  }
+
+  /**
+   * The changed words of a round.
+   */
+  private static class Delta {
+
+    private final int round;
+    private final int[] indices;
+    private final long[] words;
+
+    Delta(int round, int[] indices, long[] words) {
+      this.round = round;
+      this.indices = indices;
+      this.words = words;
+    }
+
+    int getChangedCells() {
+      int ret = 0;
+      for (long word : words) {
+        ret += Long.bitCount(word);
+      }
+      return ret;
+    }
+
+    void applyTo(long[] state) {
+      for (int i = 0; i < indices.length; ++i) {
+        state[indices[i]] ^= words[i];
+      }
+    }
+  }
+}
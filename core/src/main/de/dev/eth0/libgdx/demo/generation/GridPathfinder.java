@@ -0,0 +1,281 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static de.dev.eth0.libgdx.demo.generation.LatticeFns.EMPTY;
+
+import java.util.Arrays;
+
+/**
+ * Finds shortest paths through the empty cells of a map with A* or jump point search.
+ * <p>
+ * Paths move to the 8 neighbours of a cell, diagonal moves only if both cells next to the move are empty so a path
+ * never cuts a wall corner. Costs are integers, {@link #ORTHOGONAL_COST} per orthogonal and {@link #DIAGONAL_COST} per
+ * diagonal move, the heuristic is the octile distance with the same costs, so both algorithms find paths of the same
+ * cost.
+ * </p>
+ * <p>
+ * A query doesn't allocate: every thread gets its own search state, nodes are kept in primitive arrays indexed by
+ * cell, the open list is a {@link CellHeap} and the visited marks are stamped with the number of the query, so only
+ * the cells left in the open list have to be cleared between queries. The path is written into a buffer of the caller.
+ * </p>
+ * The map is read during every query, a pathfinder can be used from several threads as long as the map doesn't change.
+ */
+public class GridPathfinder {
+
+  public static final int ORTHOGONAL_COST = 1000;
+  public static final int DIAGONAL_COST = 1414;
+
+  public enum Algorithm {
+    A_STAR,
+    JUMP_POINT
+  }
+
+  private final boolean[][] map;
+  private final int width;
+  private final int height;
+  private final ThreadLocal<Search> searches;
+
+  public GridPathfinder(boolean[][] map) {
+    this.map = map;
+    this.width = map[0].length;
+    this.height = map.length;
+    this.searches = ThreadLocal.withInitial(() -> new Search(width * height));
+  }
+
+  /**
+   * Finds a shortest path from the start to the goal cell.
+   *
+   * @param path - receives the cell indices {@code y * width + x} of the path from start to goal, both included. If
+   *             the path is longer than the buffer, only its beginning is written.
+   * @return the number of cells of the path or -1 if there is none.
+   */
+  public int findPath(Algorithm algorithm, int startX, int startY, int goalX, int goalY, int[] path) {
+    Search search = searches.get();
+    search.begin();
+    search.cost = -1;
+    if (!isEmpty(startX, startY) || !isEmpty(goalX, goalY)) {
+      return -1;
+    }
+    int start = startY * width + startX;
+    int goal = goalY * width + goalX;
+    search.open(start, start, 0, heuristic(startX, startY, goalX, goalY));
+    while (!search.open.isEmpty()) {
+      int current = search.open.poll();
+      if (current == goal) {
+        search.cost = search.g[goal];
+        return writePath(search, start, goal, path);
+      }
+      if (algorithm == Algorithm.JUMP_POINT) {
+        expandJumpPoints(search, current, goalX, goalY);
+      }
+      else {
+        expandNeighbours(search, current, goalX, goalY);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the cost of the last path found on the calling thread or -1 if the last query didn't find one.
+   */
+  public int getLastCost() {
+    return searches.get().cost;
+  }
+
+  private void expandNeighbours(Search search, int current, int goalX, int goalY) {
+    int x = current % width;
+    int y = current / width;
+    for (int dy = -1; dy <= 1; ++dy) {
+      for (int dx = -1; dx <= 1; ++dx) {
+        if ((dx != 0 || dy != 0) && canMove(x, y, dx, dy)) {
+          int cost = dx != 0 && dy != 0 ? DIAGONAL_COST : ORTHOGONAL_COST;
+          relax(search, current, x + dx, y + dy, search.g[current] + cost, goalX, goalY);
+        }
+      }
+    }
+  }
+
+  /**
+   * Expands the pruned neighbours of the cell, jumping along each direction to the next jump point.
+   */
+  private void expandJumpPoints(Search search, int current, int goalX, int goalY) {
+    int x = current % width;
+    int y = current / width;
+    int parent = search.parent[current];
+    if (parent == current) {
+      for (int dy = -1; dy <= 1; ++dy) {
+        for (int dx = -1; dx <= 1; ++dx) {
+          if (dx != 0 || dy != 0) {
+            jump(search, current, x, y, dx, dy, goalX, goalY);
+          }
+        }
+      }
+      return;
+    }
+    int dx = Integer.signum(x - parent % width);
+    int dy = Integer.signum(y - parent / width);
+    if (dx != 0 && dy != 0) {
+      jump(search, current, x, y, 0, dy, goalX, goalY);
+      jump(search, current, x, y, dx, 0, goalX, goalY);
+      jump(search, current, x, y, dx, dy, goalX, goalY);
+    }
+    else if (dx != 0) {
+      jump(search, current, x, y, dx, 0, goalX, goalY);
+      jump(search, current, x, y, dx, 1, goalX, goalY);
+      jump(search, current, x, y, dx, -1, goalX, goalY);
+      jump(search, current, x, y, 0, 1, goalX, goalY);
+      jump(search, current, x, y, 0, -1, goalX, goalY);
+    }
+    else {
+      jump(search, current, x, y, 0, dy, goalX, goalY);
+      jump(search, current, x, y, 1, dy, goalX, goalY);
+      jump(search, current, x, y, -1, dy, goalX, goalY);
+      jump(search, current, x, y, 1, 0, goalX, goalY);
+      jump(search, current, x, y, -1, 0, goalX, goalY);
+    }
+  }
+
+  /**
+   * Moves from the cell in the direction until reaching a jump point, which is then relaxed, or a wall.
+   */
+  private void jump(Search search, int from, int x, int y, int dx, int dy, int goalX, int goalY) {
+    boolean diagonal = dx != 0 && dy != 0;
+    int cost = diagonal ? DIAGONAL_COST : ORTHOGONAL_COST;
+    int g = search.g[from];
+    while (canMove(x, y, dx, dy)) {
+      x += dx;
+      y += dy;
+      g += cost;
+      boolean jumpPoint = x == goalX && y == goalY;
+      if (diagonal) {
+        jumpPoint |= jumpStraight(x, y, dx, 0, goalX, goalY) || jumpStraight(x, y, 0, dy, goalX, goalY);
+      }
+      else {
+        jumpPoint |= hasForcedNeighbour(x, y, dx, dy);
+      }
+      if (jumpPoint) {
+        relax(search, from, x, y, g, goalX, goalY);
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return whether a straight jump from the cell reaches a jump point.
+   */
+  private boolean jumpStraight(int x, int y, int dx, int dy, int goalX, int goalY) {
+    while (canMove(x, y, dx, dy)) {
+      x += dx;
+      y += dy;
+      if (x == goalX && y == goalY || hasForcedNeighbour(x, y, dx, dy)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A cell reached by a straight move has a forced neighbour if a cell beside it is empty while the cell beside the
+   * previous one is a wall: the shortest paths to that side turn here.
+   */
+  private boolean hasForcedNeighbour(int x, int y, int dx, int dy) {
+    if (dx != 0) {
+      return isEmpty(x, y - 1) && !isEmpty(x - dx, y - 1) || isEmpty(x, y + 1) && !isEmpty(x - dx, y + 1);
+    }
+    return isEmpty(x - 1, y) && !isEmpty(x - 1, y - dy) || isEmpty(x + 1, y) && !isEmpty(x + 1, y - dy);
+  }
+
+  private void relax(Search search, int from, int x, int y, int g, int goalX, int goalY) {
+    int cell = y * width + x;
+    if (search.stamp[cell] != search.generation || !search.isClosed(cell) && g < search.g[cell]) {
+      search.open(cell, from, g, g + heuristic(x, y, goalX, goalY));
+    }
+  }
+
+  private boolean canMove(int x, int y, int dx, int dy) {
+    if (!isEmpty(x + dx, y + dy)) {
+      return false;
+    }
+    return dx == 0 || dy == 0 || isEmpty(x + dx, y) && isEmpty(x, y + dy);
+  }
+
+  private boolean isEmpty(int x, int y) {
+    return x >= 0 && y >= 0 && x < width && y < height && map[y][x] == EMPTY;
+  }
+
+  private static int heuristic(int x, int y, int goalX, int goalY) {
+    int dx = Math.abs(x - goalX);
+    int dy = Math.abs(y - goalY);
+    return ORTHOGONAL_COST * Math.max(dx, dy) + (DIAGONAL_COST - ORTHOGONAL_COST) * Math.min(dx, dy);
+  }
+
+  /**
+   * Writes the path from the parents, filling in the cells between jump points.
+   */
+  private int writePath(Search search, int start, int goal, int[] path) {
+    // count the cells first, the path is written from the goal backwards
+    int length = 1;
+    for (int cell = goal; cell != start; cell = search.parent[cell]) {
+      length += distance(cell, search.parent[cell]);
+    }
+    int i = length - 1;
+    for (int cell = goal; cell != start; cell = search.parent[cell]) {
+      int parent = search.parent[cell];
+      int steps = distance(cell, parent);
+      int dx = Integer.signum(cell % width - parent % width);
+      int dy = Integer.signum(cell / width - parent / width);
+      for (int s = 0; s < steps; ++s, --i) {
+        if (i < path.length) {
+          path[i] = cell - s * (dy * width + dx);
+        }
+      }
+    }
+    if (path.length > 0) {
+      path[0] = start;
+    }
+    return length;
+  }
+
+  private int distance(int cell, int other) {
+    return Math.max(Math.abs(cell % width - other % width), Math.abs(cell / width - other / width));
+  }
+
+  /**
+   * The state of the queries of a thread.
+   */
+  private static class Search {
+
+    private final int[] g;
+    private final int[] parent;
+    private final int[] stamp;
+    private final CellHeap open;
+    private int generation;
+    private int cost = -1;
+
+    Search(int cells) {
+      g = new int[cells];
+      parent = new int[cells];
+      stamp = new int[cells];
+      open = new CellHeap(cells);
+    }
+
+    void begin() {
+      open.clear();
+      if (++generation == 0) {
+        // the stamps wrapped around, stamps of old queries could match again
+        Arrays.fill(stamp, 0);
+        generation = 1;
+      }
+    }
+
+    void open(int cell, int from, int g, int key) {
+      stamp[cell] = generation;
+      parent[cell] = from;
+      this.g[cell] = g;
+      open.add(cell, key);
+    }
+
+    boolean isClosed(int cell) {
+      return stamp[cell] == generation && !open.contains(cell);
+    }
+  }
+}
@@ -54,7 +54,7 @@ public class LatticeFns {
     int count = 0;
     for (int i = y - 1; i <= y + 1; ++i) {
       for (int j = x - 1; j <= x + 1; ++j) {
-        if (i < 0 || j < 0 || i >= map.length || j > map[i].length) {
+        if (i < 0 || j < 0 || i >= map.length || j >= map[i].length) {
           continue;
         }
         count += map[i][j] == FILLED ? 1 : 0;
@@ -103,6 +103,45 @@ public class LatticeFns {
     }
   }
 
+  /**
+   * Labels each room of the given type. This returns the same rooms in the same order as
+   * {@link #getRooms(boolean[][], boolean)} without allocating a {@link Point} per cell.
+   *
+   * @param map
+   * @param type
+   * @return the label grid together with area, bounding box and representative cell of each room.
+   */
+  public static RoomLabels getRoomLabels(boolean[][] map, boolean type) {
+    return RoomLabels.label(map, type);
+  }
+
+  /**
+   * Computes the Euclidean distance of every cell to the nearest wall, row after row. Use a {@link DistanceField} to
+   * reuse the buffers or for the other transforms.
+   *
+   * @param map
+   * @return the distances, 0 for walls.
+   */
+  public static float[] getWallDistances(boolean[][] map) {
+    return new DistanceField(map[0].length, map.length).euclidean(map, FILLED, null);
+  }
+
+  /**
+   * Computes the number of orthogonal steps through empty cells from the nearest of the given cells, row after row.
+   *
+   * @param map
+   * @param sources
+   * @return the distances, {@link DistanceField#UNREACHABLE} for walls and cells without a path.
+   */
+  public static int[] getPathDistances(boolean[][] map, Point... sources) {
+    int width = map[0].length;
+    int[] indices = new int[sources.length];
+    for (int i = 0; i < sources.length; ++i) {
+      indices[i] = sources[i].getY() * width + sources[i].getX();
+    }
+    return new DistanceField(width, map.length).breadthFirst(map, EMPTY, indices, indices.length, null);
+  }
+
   /**
    * Return a list containing a representation of each room.  Rooms
    * are a collection of points, one for each cell in the room.
@@ -127,7 +166,9 @@ public class LatticeFns {
         }
       }
     }
-    Gdx.app.log(TAG, "Number of points: " + notVisited.size());
+    if (Gdx.app != null) {
+      Gdx.app.log(TAG, "Number of points: " + notVisited.size());
+    }
     List<Set<Point>> rooms = new ArrayList<>();
     LinkedList<Point> frontier = new LinkedList<>();
     frontier.add(start);
@@ -152,7 +193,9 @@ public class LatticeFns {
     }
 
     if (!frontier.isEmpty()) {
-      Gdx.app.log(TAG, "Frontier not empty! " + frontier.size());
+      if (Gdx.app != null) {
+        Gdx.app.log(TAG, "Frontier not empty! " + frontier.size());
+      }
       Set<Point> room = new LinkedHashSet<>();
       room.add(frontier.getFirst());
       rooms.add(room);
@@ -2,6 +2,8 @@ package de.dev.eth0.libgdx.demo.generation;
 
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
 
 /**
  * Utility to select to correct tile from a given tileset using the Marching Squares Algorithm
@@ -9,13 +11,18 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
  */
 public class MarchingSquaresSelector {
 
+  /**
+   * Number of different tiles.
+   */
+  public static final int TILE_COUNT = 16;
+
   private final boolean[][] map;
-  private final TextureAtlas tileSet;
+  private final TextureRegion[] regions;
 
 
   public MarchingSquaresSelector(boolean[][] map, TextureAtlas tileSet) {
     this.map = map;
-    this.tileSet = tileSet;
+    this.regions = getRegions(tileSet);
   }
 
   /**
@@ -26,33 +33,111 @@ public class MarchingSquaresSelector {
    * @param y - the y coordinate of the cell.
    */
   public TextureRegion getTextureRegion(int x, int y) {
+    return regions[getIndex(map[y][x], map[y][x + 1], map[y + 1][x], map[y + 1][x + 1])];
+  }
 
-    boolean[][] corners = getCorners(x, y);
-
-    int idx = toInt(corners[1][0]) | toInt(corners[1][1]) << 1 | toInt(corners[0][1]) << 2 | toInt(corners[0][0]) << 3;
-
-    return tileSet.findRegion(String.valueOf(idx));
+  /**
+   * Calculates the index of the tile for the given corners.
+   *
+   * @return the index of the tile between 0 and 15.
+   */
+  public static int getIndex(boolean topLeft, boolean topRight, boolean bottomLeft, boolean bottomRight) {
+    return toInt(bottomLeft) | toInt(bottomRight) << 1 | toInt(topRight) << 2 | toInt(topLeft) << 3;
   }
 
+  /**
+   * Calculates the tile indices of all cells of the map in one pass. Every corner is read once, the corners on the
+   * right side of a cell are reused as the left corners of the next one.
+   *
+   * @param map - the corners.
+   * @return the tile indices of the {@code (width - 1) x (height - 1)} cells, row by row.
+   */
+  public static byte[] getIndices(boolean[][] map) {
+    int width = map[0].length - 1;
+    int height = map.length - 1;
+    byte[] ret = new byte[width * height];
+    for (int y = 0; y < height; ++y) {
+      boolean[] top = map[y];
+      boolean[] bottom = map[y + 1];
+      int idx = y * width;
+      int left = toInt(top[0]) << 3 | toInt(bottom[0]);
+      for (int x = 0; x < width; ++x) {
+        int right = toInt(top[x + 1]) << 2 | toInt(bottom[x + 1]) << 1;
+        ret[idx + x] = (byte)(left | right);
+        // the right corners become the left corners of the next cell
+        left = (right << 1 & 0b1000) | (right >>> 1 & 0b0001);
+      }
+    }
+    return ret;
+  }
 
-  private int toInt(boolean bool) {
-    return bool ? 0 : 1;
+  /**
+   * Same as {@link #getIndices(boolean[][])} for a bit-packed lattice. The four corners of 64 cells are computed
+   * with a few word operations, then the indices are assembled from them.
+   *
+   * @param lattice - the corners.
+   * @return the tile indices of the {@code (width - 1) x (height - 1)} cells, row by row.
+   */
+  public static byte[] getIndices(BitLattice lattice) {
+    int width = lattice.getWidth() - 1;
+    int height = lattice.getHeight() - 1;
+    int n = lattice.getWordsPerRow();
+    long[] words = lattice.getWords();
+    byte[] ret = new byte[width * height];
+    for (int y = 0; y < height; ++y) {
+      int top = y * n;
+      int bottom = top + n;
+      for (int w = 0; w < n; ++w) {
+        // corners are inverted, empty corners set the bits of the index
+        long topLeft = ~words[top + w];
+        long bottomLeft = ~words[bottom + w];
+        long topRight = ~(words[top + w] >>> 1 | (w + 1 < n ? words[top + w + 1] << 63 : 0L));
+        long bottomRight = ~(words[bottom + w] >>> 1 | (w + 1 < n ? words[bottom + w + 1] << 63 : 0L));
+        int cells = Math.min(64, width - (w << 6));
+        int idx = y * width + (w << 6);
+        for (int b = 0; b < cells; ++b) {
+          ret[idx + b] = (byte)((bottomLeft >>> b & 1)
+              | (bottomRight >>> b & 1) << 1
+              | (topRight >>> b & 1) << 2
+              | (topLeft >>> b & 1) << 3);
+        }
+      }
+    }
+    return ret;
   }
 
   /**
-   * Gets the 4 corners of the requested block
+   * Looks up the regions of all tiles in the tileset, the region of tile {@code i} is named {@code i}.
    *
-   * @param x - x coordinate of the block
-   * @param y - y coordinate of the block
-   * @return the corners of the block
+   * @param tileSet - the tileset.
+   * @return the {@link #TILE_COUNT} regions indexed by the tile index.
    */
-  private boolean[][] getCorners(int x, int y) {
-    boolean[][] ret = new boolean[2][2];
+  public static TextureRegion[] getRegions(TextureAtlas tileSet) {
+    TextureRegion[] ret = new TextureRegion[TILE_COUNT];
+    for (int i = 0; i < TILE_COUNT; ++i) {
+      ret[i] = tileSet.findRegion(String.valueOf(i));
+    }
+    return ret;
+  }
 
-    ret[0][0] = map[y][x];
-    ret[0][1] = map[y][x + 1];
-    ret[1][0] = map[y + 1][x];
-    ret[1][1] = map[y + 1][x + 1];
+  /**
+   * Creates one cell per tile. The cells can be shared by all cells of a {@link TiledMapTileLayer} showing the same
+   * tile as long as they aren't modified.
+   *
+   * @param tileSet - the tileset.
+   * @return the {@link #TILE_COUNT} cells indexed by the tile index.
+   */
+  public static TiledMapTileLayer.Cell[] createCells(TextureAtlas tileSet) {
+    TextureRegion[] regions = getRegions(tileSet);
+    TiledMapTileLayer.Cell[] ret = new TiledMapTileLayer.Cell[TILE_COUNT];
+    for (int i = 0; i < TILE_COUNT; ++i) {
+      ret[i] = new TiledMapTileLayer.Cell();
+      ret[i].setTile(new StaticTiledMapTile(regions[i]));
+    }
     return ret;
   }
+
+  private static int toInt(boolean bool) {
+    return bool ? 0 : 1;
+  }
 }
@@ -0,0 +1,131 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static de.dev.eth0.libgdx.demo.generation.LatticeFns.FILLED;
+
+import java.util.Arrays;
+
+/**
+ * Counts the filled cells in the {@code (2 * radius + 1)^2} window around every cell of a row, including the cell
+ * itself. Cells outside of the map are counted as empty.
+ * <p>
+ * The counter keeps one running sum per column covering the rows {@code y - radius .. y + radius}. Moving on to the
+ * next row with {@link #countNextRow(int[])} adds the row entering the window and removes the one leaving it, and the
+ * window itself slides along the row by adding the column entering it and removing the one leaving it. So every cell
+ * costs a constant number of reads, no matter how large the radius is.
+ * </p>
+ * A counter keeps state between calls and must not be shared between threads.
+ */
+public class NeighborCounter {
+
+  private final int radius;
+
+  private int[] columnSums;
+  // the map and row the column sums belong to
+  private boolean[][] lastMap;
+  private int lastRow;
+
+  public NeighborCounter(int radius) {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius must not be negative");
+    }
+    this.radius = radius;
+  }
+
+  public int getRadius() {
+    return radius;
+  }
+
+  /**
+   * Counts the filled cells around every cell of row {@code y}. The column sums are always rebuilt from the map, so
+   * the map may have changed since the last call.
+   *
+   * @param map    - the map to count on.
+   * @param y      - the row to count.
+   * @param counts - receives the count for every column of the row, must be at least as long as the row.
+   */
+  public void countRow(boolean[][] map, int y, int[] counts) {
+    initColumnSums(map, y);
+    lastMap = map;
+    lastRow = y;
+    countWindows(counts);
+  }
+
+  /**
+   * Counts the filled cells around every cell of the row after the last counted one, updating the column sums
+   * incrementally. The map must not have changed since the last call.
+   *
+   * @param counts - receives the count for every column of the row, must be at least as long as the row.
+   */
+  public void countNextRow(int[] counts) {
+    if (lastMap == null) {
+      throw new IllegalStateException("No row has been counted yet");
+    }
+    if (lastRow + 1 >= lastMap.length) {
+      throw new IllegalStateException("The last row has already been counted");
+    }
+    int y = ++lastRow;
+    int enter = y + radius;
+    int leave = y - radius - 1;
+    if (enter < lastMap.length) {
+      addRow(lastMap[enter], 1);
+    }
+    if (leave >= 0) {
+      addRow(lastMap[leave], -1);
+    }
+    countWindows(counts);
+  }
+
+  private void countWindows(int[] counts) {
+    int width = columnSums.length;
+    int window = 0;
+    for (int x = 0; x <= radius && x < width; ++x) {
+      window += columnSums[x];
+    }
+    for (int x = 0; x < width; ++x) {
+      counts[x] = window;
+      int enter = x + radius + 1;
+      int leave = x - radius;
+      if (enter < width) {
+        window += columnSums[enter];
+      }
+      if (leave >= 0) {
+        window -= columnSums[leave];
+      }
+    }
+  }
+
+  /**
+   * Counts the filled cells in the window around a single cell. This doesn't use or change the running sums and
+   * costs {@code (2 * radius + 1)^2} reads.
+   */
+  public int count(boolean[][] map, int y, int x) {
+    int count = 0;
+    for (int i = Math.max(0, y - radius); i <= Math.min(map.length - 1, y + radius); ++i) {
+      for (int j = Math.max(0, x - radius); j <= Math.min(map[i].length - 1, x + radius); ++j) {
+        count += map[i][j] == FILLED ? 1 : 0;
+      }
+    }
+    return count;
+  }
+
+  private void initColumnSums(boolean[][] map, int y) {
+    int width = map[0].length;
+    if (columnSums == null || columnSums.length != width) {
+      columnSums = new int[width];
+    }
+    else {
+      Arrays.fill(columnSums, 0);
+    }
+    for (int i = Math.max(0, y - radius); i <= Math.min(map.length - 1, y + radius); ++i) {
+      addRow(map[i], 1);
+    }
+  }
+
+  private void addRow(boolean[] row, int delta) {
+    for (int x = 0; x < row.length; ++x) {
+      if (row[x] == FILLED) {
+        columnSums[x] += delta;
+      }
+    }
+  }
+}
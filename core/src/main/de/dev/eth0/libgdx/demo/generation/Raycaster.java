@@ -0,0 +1,325 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Casts rays through the filled cells of a bit-packed lattice, e.g. for line of sight, bullets or perception.
+ * <p>
+ * Cell {@code (x, y)} covers the square from {@code (x, y)} to {@code (x + 1, y + 1)}, the y axis pointing down like
+ * the rows of the map. A ray is the segment between two points inside the map and hits the first filled cell whose
+ * interior it passes through, a ray passing exactly through a corner between two filled cells doesn't hit them.
+ * </p>
+ * <p>
+ * The end points are rounded down to 1/65536 of a cell and the ray is traced exactly in integers from there, so a ray
+ * touching a corner always moves diagonally to the next cell and passes the same cells in both directions. Lattices
+ * are at most {@link #MAX_SIZE} cells wide and high.
+ * </p>
+ * <p>
+ * Rays passing at least as many columns as rows don't visit the cells one by one: the cells passed in a row form one
+ * run, which is tested with a mask on the words of the row, up to 64 cells at once. Steeper rays pass one or two cells
+ * per row and are traced cell by cell. Queries don't allocate, read the lattice only and can run on several threads
+ * while it doesn't change. Many rays can be cast in one call, which splits them between threads.
+ * </p>
+ */
+public class Raycaster implements Disposable {
+
+  /**
+   * The largest width and height of a lattice.
+   */
+  public static final int MAX_SIZE = 1 << 15;
+
+  // batches below this size run on the calling thread
+  private static final int MIN_PARALLEL_RAYS = 256;
+  // rays are traced in fixed point with this many fractional bits, products of two coordinates fit in a long
+  private static final int FRACTION_BITS = 16;
+  private static final long ONE = 1L << FRACTION_BITS;
+  private static final long FRACTION = ONE - 1;
+
+  private final BitLattice lattice;
+  private final long[] words;
+  private final int width;
+  private final int height;
+  private final int wordsPerRow;
+  private final BandExecutor bands;
+
+  public Raycaster(BitLattice lattice) {
+    this(lattice, 1);
+  }
+
+  /**
+   * @param parallelism - number of threads casting the rays of a batch, 1 runs everything on the calling thread.
+   */
+  public Raycaster(BitLattice lattice, int parallelism) {
+    if (lattice.getWidth() > MAX_SIZE || lattice.getHeight() > MAX_SIZE) {
+      throw new IllegalArgumentException("Lattice " + lattice.getWidth() + "x" + lattice.getHeight()
+          + " is larger than " + MAX_SIZE + " cells");
+    }
+    this.lattice = lattice;
+    this.words = lattice.getWords();
+    this.width = lattice.getWidth();
+    this.height = lattice.getHeight();
+    this.wordsPerRow = lattice.getWordsPerRow();
+    this.bands = new BandExecutor(parallelism, null);
+  }
+
+  public BitLattice getLattice() {
+    return lattice;
+  }
+
+  /**
+   * @return whether the ray doesn't hit a filled cell.
+   */
+  public boolean isClear(float startX, float startY, float endX, float endY) {
+    return raycast(startX, startY, endX, endY) < 0;
+  }
+
+  /**
+   * @return whether the centers of the cells see each other.
+   */
+  public boolean hasLineOfSight(int startX, int startY, int endX, int endY) {
+    return isClear(startX + 0.5f, startY + 0.5f, endX + 0.5f, endY + 0.5f);
+  }
+
+  /**
+   * Finds the first filled cell hit by the ray.
+   *
+   * @return the cell {@code y * width + x} or -1 if the ray doesn't hit a filled cell. The cell containing the start
+   * is hit if it is filled.
+   */
+  public int raycast(float startX, float startY, float endX, float endY) {
+    checkInside(startX, startY);
+    checkInside(endX, endY);
+    long fixedStartX = toFixed(startX);
+    long fixedStartY = toFixed(startY);
+    long fixedEndX = toFixed(endX);
+    long fixedEndY = toFixed(endY);
+    long dx = fixedEndX - fixedStartX;
+    long dy = fixedEndY - fixedStartY;
+    if (Math.abs(dx) >= Math.abs(dy)) {
+      return castRuns(fixedStartX, fixedStartY, fixedEndX, fixedEndY, dx, dy);
+    }
+    return castCells(fixedStartX, fixedStartY, fixedEndX, fixedEndY, dx, dy);
+  }
+
+  /**
+   * Tests the run of cells of each row at once, for rays passing at least as many columns as rows.
+   */
+  private int castRuns(long startX, long startY, long endX, long endY, long dx, long dy) {
+    int step = dy < 0 ? -1 : 1;
+    int first = firstCell(startY, dy);
+    int last = lastCell(endY, dy, first);
+    // the cell where the ray enters the row and whether it enters exactly on the left border of the cell
+    int enter = (int)(startX >> FRACTION_BITS);
+    boolean enterOnBorder = (startX & FRACTION) == 0;
+    // x where the ray leaves the row times |dy|, as quotient and remainder of a division by |dy| cells
+    long divisor = Math.abs(dy) << FRACTION_BITS;
+    long quotient = 0;
+    long remainder = 0;
+    long quotientStep = 0;
+    long remainderStep = 0;
+    if (dy != 0) {
+      long border = (long)(step > 0 ? first + 1 : first) << FRACTION_BITS;
+      long leave = startX * Math.abs(dy) + (border - startY) * step * dx;
+      quotient = Math.floorDiv(leave, divisor);
+      remainder = Math.floorMod(leave, divisor);
+      quotientStep = Math.floorDiv(dx << FRACTION_BITS, divisor);
+      remainderStep = Math.floorMod(dx << FRACTION_BITS, divisor);
+    }
+    for (int y = first; ; y += step) {
+      int exit;
+      boolean exitOnBorder;
+      if (y == last) {
+        exit = (int)(endX >> FRACTION_BITS);
+        exitOnBorder = (endX & FRACTION) == 0;
+      }
+      else {
+        exit = (int)quotient;
+        exitOnBorder = remainder == 0;
+      }
+      // a ray entering or leaving the row on a border doesn't pass through the cell on the other side of it
+      int left;
+      int right;
+      if (dx < 0) {
+        left = exit;
+        right = Math.max(left, enter - (enterOnBorder ? 1 : 0));
+      }
+      else {
+        left = enter;
+        right = Math.max(left, exit - (exitOnBorder ? 1 : 0));
+      }
+      int hit = dx < 0 ? lastFilled(y, left, right) : firstFilled(y, left, right);
+      if (hit >= 0) {
+        return y * width + hit;
+      }
+      if (y == last) {
+        return -1;
+      }
+      enter = exit;
+      enterOnBorder = exitOnBorder;
+      quotient += quotientStep;
+      remainder += remainderStep;
+      if (remainder >= divisor) {
+        remainder -= divisor;
+        quotient++;
+      }
+    }
+  }
+
+  /**
+   * @return the value in fixed point, rounded down.
+   */
+  private static long toFixed(float value) {
+    return (long)((double)value * ONE);
+  }
+
+  /**
+   * Visits the cells one by one like Amanatides and Woo, for rays passing more rows than columns.
+   */
+  private int castCells(long startX, long startY, long endX, long endY, long dx, long dy) {
+    int x = firstCell(startX, dx);
+    int y = firstCell(startY, dy);
+    int lastX = lastCell(endX, dx, x);
+    int lastY = lastCell(endY, dy, y);
+    int stepX = dx < 0 ? -1 : 1;
+    int stepY = dy < 0 ? -1 : 1;
+    // the distance to the next column and row border, the ray reaches the column border first if
+    // nextX / |dx| < nextY / |dy|
+    long nextX = dx < 0 ? startX - ((long)x << FRACTION_BITS) : ((long)(x + 1) << FRACTION_BITS) - startX;
+    long nextY = dy < 0 ? startY - ((long)y << FRACTION_BITS) : ((long)(y + 1) << FRACTION_BITS) - startY;
+    while (true) {
+      if ((words[y * wordsPerRow + (x >>> 6)] & 1L << x) != 0) {
+        return y * width + x;
+      }
+      if (x == lastX && y == lastY) {
+        return -1;
+      }
+      long timeX = dx != 0 ? nextX * Math.abs(dy) : Long.MAX_VALUE;
+      long timeY = nextY * Math.abs(dx);
+      // a ray through a corner moves along both axes at once
+      if (x != lastX && timeX <= timeY) {
+        x += stepX;
+        nextX += ONE;
+      }
+      if (y != lastY && timeY <= timeX) {
+        y += stepY;
+        nextY += ONE;
+      }
+    }
+  }
+
+  /**
+   * @return the first cell of the ray along an axis, a ray starting on a border moving backwards starts in the cell
+   * before it.
+   */
+  private static int firstCell(long start, long delta) {
+    int ret = (int)(start >> FRACTION_BITS);
+    return delta < 0 && (start & FRACTION) == 0 && ret > 0 ? ret - 1 : ret;
+  }
+
+  /**
+   * @return the last cell of the ray along an axis, a ray ending on a border moving forwards ends in the cell before
+   * it, but never before the first cell.
+   */
+  private static int lastCell(long end, long delta, int first) {
+    int ret = (int)(end >> FRACTION_BITS);
+    return delta > 0 && (end & FRACTION) == 0 && ret > first ? ret - 1 : ret;
+  }
+
+  /**
+   * @return the distance from the start of the ray to where it enters the cell, in cells.
+   */
+  public float getDistance(float startX, float startY, float endX, float endY, int cell) {
+    float dx = endX - startX;
+    float dy = endY - startY;
+    int x = cell % width;
+    int y = cell / width;
+    float t = 0f;
+    if (dx != 0) {
+      t = Math.max(t, ((dx > 0 ? x : x + 1) - startX) / dx);
+    }
+    if (dy != 0) {
+      t = Math.max(t, ((dy > 0 ? y : y + 1) - startY) / dy);
+    }
+    return t * (float)Math.sqrt(dx * dx + dy * dy);
+  }
+
+  /**
+   * Casts a batch of rays, split between the threads of the raycaster.
+   *
+   * @param rays      - {@code startX, startY, endX, endY} of every ray.
+   * @param count     - number of rays.
+   * @param hits      - receives the first hit cell of every ray or -1.
+   * @param distances - receives the distance to the hit cell of every ray or {@link Float#POSITIVE_INFINITY}, may be
+   *                  null.
+   */
+  public void raycast(float[] rays, int count, int[] hits, float[] distances) {
+    bands.run(count, MIN_PARALLEL_RAYS, (band, from, to) -> {
+      for (int i = from; i < to; ++i) {
+        int r = 4 * i;
+        hits[i] = raycast(rays[r], rays[r + 1], rays[r + 2], rays[r + 3]);
+        if (distances != null) {
+          distances[i] = hits[i] < 0 ? Float.POSITIVE_INFINITY
+              : getDistance(rays[r], rays[r + 1], rays[r + 2], rays[r + 3], hits[i]);
+        }
+      }
+    }, "casting rays");
+  }
+
+  /**
+   * Shuts down the threads casting batches of rays.
+   */
+  @Override
+  public void dispose() {
+    bands.dispose();
+  }
+
+  /**
+   * @return the first filled cell of the row between the columns, both included, or -1.
+   */
+  private int firstFilled(int y, int left, int right) {
+    int base = y * wordsPerRow;
+    int w = left >>> 6;
+    int last = right >>> 6;
+    long bits = words[base + w] & -1L << left;
+    while (true) {
+      if (w == last) {
+        bits &= -1L >>> (63 - (right & 63));
+      }
+      if (bits != 0) {
+        return (w << 6) + Long.numberOfTrailingZeros(bits);
+      }
+      if (w == last) {
+        return -1;
+      }
+      bits = words[base + ++w];
+    }
+  }
+
+  /**
+   * @return the last filled cell of the row between the columns, both included, or -1.
+   */
+  private int lastFilled(int y, int left, int right) {
+    int base = y * wordsPerRow;
+    int w = right >>> 6;
+    int last = left >>> 6;
+    long bits = words[base + w] & -1L >>> (63 - (right & 63));
+    while (true) {
+      if (w == last) {
+        bits &= -1L << left;
+      }
+      if (bits != 0) {
+        return (w << 6) + 63 - Long.numberOfLeadingZeros(bits);
+      }
+      if (w == last) {
+        return -1;
+      }
+      bits = words[base + --w];
+    }
+  }
+
+  private void checkInside(float x, float y) {
+    if (!(x >= 0 && y >= 0 && x < width && y < height)) {
+      throw new IllegalArgumentException("Point " + x + ", " + y + " is not inside the map");
+    }
+  }
+}
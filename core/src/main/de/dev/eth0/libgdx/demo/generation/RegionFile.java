@@ -0,0 +1,350 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * A file storing the chunks of one region, {@link #REGION_SIZE} x {@link #REGION_SIZE} chunks of a
+ * {@link ChunkedCaveGenerator}.
+ * <p>
+ * Layout (little endian):
+ * </p>
+ * <ul>
+ * <li>header: magic, version, chunk size and a reserved int</li>
+ * <li>index: one long per chunk, row by row, holding the offset of the chunk record in the upper bits and its
+ * length in the lower 24 bits. 0 marks a missing chunk.</li>
+ * <li>chunk records, each aligned to 8 bytes: payload length, CRC32 of the payload, encoding and a reserved int,
+ * followed by the payload. The payload are either the raw words of the {@link BitLattice} or runs of equal words
+ * (count and word).</li>
+ * </ul>
+ * <p>
+ * The file is read through a {@link MappedByteBuffer}, so loading a chunk only pages in its record and copies the
+ * words. The file is mapped once when it is opened, records written afterwards are read through the channel. Saving a
+ * chunk appends a new record without waiting for the disk, {@link #flush()} forces all new records to disk before
+ * their 8 byte index entries are replaced, so a chunk is either completely updated or not at all, at the cost of two
+ * syncs per flush instead of per chunk. The space of replaced records isn't reused.
+ * </p>
+ */
+public class RegionFile implements Closeable {
+
+  public static final int REGION_SIZE = 32;
+
+  static final int MAGIC = 0x43415645;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 16;
+  static final int INDEX_SIZE = REGION_SIZE * REGION_SIZE * 8;
+  static final int RECORD_HEADER_SIZE = 16;
+
+  static final int ENCODING_RAW = 0;
+  static final int ENCODING_RUN_LENGTH = 1;
+
+  private final FileChannel channel;
+  private final int chunkSize;
+  private final int wordsPerChunk;
+  private final boolean compress;
+  private MappedByteBuffer mapped;
+  // the index entries, including the ones not flushed yet
+  private final long[] index = new long[REGION_SIZE * REGION_SIZE];
+  // set for the index entries not flushed yet
+  private final boolean[] pending = new boolean[REGION_SIZE * REGION_SIZE];
+  private int pendingCount;
+
+  /**
+   * Opens or creates a region file.
+   *
+   * @param path      - the file.
+   * @param chunkSize - size of the chunks, has to match the size of an existing file.
+   * @param compress  - whether new chunks are stored run-length encoded if this is smaller.
+   */
+  public RegionFile(Path path, int chunkSize, boolean compress) {
+    this.chunkSize = chunkSize;
+    this.wordsPerChunk = ((chunkSize + 63) >>> 6) * chunkSize;
+    this.compress = compress;
+    if (RECORD_HEADER_SIZE + wordsPerChunk * 8L > 0xFFFFFF) {
+      throw new IllegalArgumentException("Chunk size " + chunkSize + " is too large");
+    }
+    try {
+      channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    catch (IOException e) {
+      throw new GdxRuntimeException("Couldn't open region file " + path, e);
+    }
+    try {
+      if (channel.size() == 0) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + INDEX_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(chunkSize).putInt(0);
+        header.rewind();
+        write(header, 0);
+        channel.force(true);
+      }
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      mapped.order(ByteOrder.LITTLE_ENDIAN);
+      if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+        throw new GdxRuntimeException("Not a region file: " + path);
+      }
+      if (mapped.getInt(8) != chunkSize) {
+        throw new GdxRuntimeException("Region file " + path + " uses chunk size " + mapped.getInt(8));
+      }
+      for (int i = 0; i < index.length; ++i) {
+        index[i] = mapped.getLong(HEADER_SIZE + i * 8);
+      }
+    }
+    catch (IOException | RuntimeException e) {
+      // don't keep the file open or locked if it can't be used
+      mapped = null;
+      try {
+        channel.close();
+      }
+      catch (IOException closeException) {
+        e.addSuppressed(closeException);
+      }
+      if (e instanceof RuntimeException) {
+        throw (RuntimeException)e;
+      }
+      throw new GdxRuntimeException("Couldn't open region file " + path, e);
+    }
+  }
+
+  /**
+   * @param x - x coordinate of the chunk within the region.
+   * @param y - y coordinate of the chunk within the region.
+   * @return whether the chunk is stored.
+   */
+  public synchronized boolean contains(int x, int y) {
+    return index[indexOf(x, y)] != 0;
+  }
+
+  /**
+   * Loads a chunk.
+   *
+   * @param x - x coordinate of the chunk within the region.
+   * @param y - y coordinate of the chunk within the region.
+   * @return the chunk or {@code null} if it isn't stored.
+   */
+  public synchronized BitLattice load(int x, int y) {
+    long entry = index[indexOf(x, y)];
+    if (entry == 0) {
+      return null;
+    }
+    long offset = entry >>> 24;
+    int length = (int)(entry & 0xFFFFFF);
+    ByteBuffer record = record(offset, length);
+    if (record == null || length < RECORD_HEADER_SIZE) {
+      throw new GdxRuntimeException("Corrupt chunk " + x + ", " + y);
+    }
+
+    int payloadLength = record.getInt(0);
+    int crc = record.getInt(4);
+    int encoding = record.getInt(8);
+    if (payloadLength < 0 || payloadLength > length - RECORD_HEADER_SIZE) {
+      throw new GdxRuntimeException("Corrupt chunk " + x + ", " + y);
+    }
+    record.position(RECORD_HEADER_SIZE).limit(RECORD_HEADER_SIZE + payloadLength);
+    ByteBuffer payload = record.slice().order(ByteOrder.LITTLE_ENDIAN);
+    if (crc(payload) != crc) {
+      throw new GdxRuntimeException("Corrupt chunk " + x + ", " + y);
+    }
+
+    BitLattice ret = new BitLattice(chunkSize, chunkSize);
+    long[] words = ret.getWords();
+    if (encoding == ENCODING_RAW && payloadLength == words.length * 8) {
+      payload.asLongBuffer().get(words);
+    }
+    else if (encoding == ENCODING_RUN_LENGTH && payloadLength % 16 == 0) {
+      LongBuffer runs = payload.asLongBuffer();
+      int idx = 0;
+      while (runs.hasRemaining()) {
+        long count = runs.get();
+        long word = runs.get();
+        if (count <= 0 || count > words.length - idx) {
+          throw new GdxRuntimeException("Corrupt chunk " + x + ", " + y);
+        }
+        for (long i = 0; i < count; ++i) {
+          words[idx++] = word;
+        }
+      }
+      if (idx != words.length) {
+        throw new GdxRuntimeException("Corrupt chunk " + x + ", " + y);
+      }
+    }
+    else {
+      throw new GdxRuntimeException("Corrupt chunk " + x + ", " + y);
+    }
+    return ret;
+  }
+
+  /**
+   * Stores a chunk, replacing a previously stored version of it. The chunk can be loaded right away, but is only
+   * durable after the next {@link #flush()}.
+   *
+   * @param x     - x coordinate of the chunk within the region.
+   * @param y     - y coordinate of the chunk within the region.
+   * @param chunk - the chunk.
+   */
+  public synchronized void save(int x, int y, BitLattice chunk) {
+    if (chunk.getWidth() != chunkSize || chunk.getHeight() != chunkSize) {
+      throw new IllegalArgumentException("Chunk must be " + chunkSize + "x" + chunkSize);
+    }
+    int i = indexOf(x, y);
+    long[] words = chunk.getWords();
+    ByteBuffer payload = compress ? encodeRuns(words) : null;
+    int encoding = ENCODING_RUN_LENGTH;
+    if (payload == null) {
+      payload = ByteBuffer.allocate(wordsPerChunk * 8).order(ByteOrder.LITTLE_ENDIAN);
+      payload.asLongBuffer().put(words);
+      encoding = ENCODING_RAW;
+    }
+    int payloadLength = payload.capacity();
+    ByteBuffer record = ByteBuffer.allocate(align(RECORD_HEADER_SIZE + payloadLength)).order(ByteOrder.LITTLE_ENDIAN);
+    record.putInt(payloadLength).putInt(crc(payload)).putInt(encoding).putInt(0);
+    record.put(payload);
+    record.rewind();
+
+    long offset;
+    try {
+      offset = align(channel.size());
+      if (offset + record.capacity() > Integer.MAX_VALUE) {
+        throw new GdxRuntimeException("Region file is full");
+      }
+      // the index on disk points to the record after the next flush
+      write(record, offset);
+    }
+    catch (IOException e) {
+      throw new GdxRuntimeException("Couldn't write chunk " + x + ", " + y, e);
+    }
+    index[i] = offset << 24 | record.capacity();
+    if (!pending[i]) {
+      pending[i] = true;
+      pendingCount++;
+    }
+  }
+
+  /**
+   * Forces the chunks saved since the last flush to disk and updates their index entries.
+   */
+  public synchronized void flush() {
+    if (pendingCount == 0) {
+      return;
+    }
+    try {
+      // the records have to be on disk before the index points to them
+      channel.force(false);
+      ByteBuffer entry = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+      for (int i = 0; i < index.length; ++i) {
+        if (pending[i]) {
+          entry.putLong(0, index[i]).rewind();
+          write(entry, HEADER_SIZE + i * 8);
+        }
+      }
+      channel.force(false);
+    }
+    catch (IOException e) {
+      throw new GdxRuntimeException("Couldn't write the region index", e);
+    }
+    Arrays.fill(pending, false);
+    pendingCount = 0;
+  }
+
+  /**
+   * Flushes the saved chunks and closes the file.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      flush();
+    }
+    finally {
+      mapped = null;
+      channel.close();
+    }
+  }
+
+  /**
+   * Encodes the words as runs of equal words.
+   *
+   * @return the encoded words or {@code null} if this isn't smaller than the raw words.
+   */
+  private ByteBuffer encodeRuns(long[] words) {
+    int runs = 0;
+    for (int i = 0; i < words.length; ++i) {
+      if (i == 0 || words[i] != words[i - 1]) {
+        runs++;
+      }
+    }
+    if (runs * 2 >= words.length) {
+      return null;
+    }
+    ByteBuffer ret = ByteBuffer.allocate(runs * 16).order(ByteOrder.LITTLE_ENDIAN);
+    int start = 0;
+    for (int i = 1; i <= words.length; ++i) {
+      if (i == words.length || words[i] != words[start]) {
+        ret.putLong(i - start).putLong(words[start]);
+        start = i;
+      }
+    }
+    ret.rewind();
+    return ret;
+  }
+
+  /**
+   * @return the record from the mapped file or read through the channel if it was written after the file was
+   * mapped, {@code null} if it isn't inside the file.
+   */
+  private ByteBuffer record(long offset, int length) {
+    if (offset + length <= mapped.capacity()) {
+      ByteBuffer ret = mapped.duplicate();
+      ret.position((int)offset).limit((int)offset + length);
+      return ret.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+    ByteBuffer ret = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      while (ret.hasRemaining()) {
+        if (channel.read(ret, offset + ret.position()) < 0) {
+          return null;
+        }
+      }
+    }
+    catch (IOException e) {
+      throw new GdxRuntimeException("Couldn't read region file", e);
+    }
+    ret.rewind();
+    return ret;
+  }
+
+  private void write(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  private static int crc(ByteBuffer buffer) {
+    CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate());
+    return (int)crc.getValue();
+  }
+
+  private static int indexOf(int x, int y) {
+    if (x < 0 || y < 0 || x >= REGION_SIZE || y >= REGION_SIZE) {
+      throw new IllegalArgumentException("Chunk " + x + ", " + y + " is outside of the region");
+    }
+    return y * REGION_SIZE + x;
+  }
+
+  private static int align(int size) {
+    return (size + 7) & ~7;
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+}
@@ -0,0 +1,108 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Stores the chunks of a {@link ChunkedCaveGenerator} on disk, grouped into {@link RegionFile}s of
+ * {@link RegionFile#REGION_SIZE} x {@link RegionFile#REGION_SIZE} chunks. Region files are opened when a chunk of
+ * them is accessed for the first time and stay open until the store is closed. Saved chunks are durable after
+ * {@link #flush()} or {@link #close()}.
+ */
+public class RegionStore implements Closeable {
+
+  private final Path directory;
+  private final int chunkSize;
+  private final boolean compress;
+  private final Map<Long, RegionFile> regions = new HashMap<>();
+
+  /**
+   * @param directory - the directory containing the region files, created if missing.
+   * @param chunkSize - size of the chunks.
+   * @param compress  - whether chunks are stored run-length encoded if this is smaller.
+   */
+  public RegionStore(Path directory, int chunkSize, boolean compress) {
+    this.directory = directory;
+    this.chunkSize = chunkSize;
+    this.compress = compress;
+    try {
+      Files.createDirectories(directory);
+    }
+    catch (IOException e) {
+      throw new GdxRuntimeException("Couldn't create " + directory, e);
+    }
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * @return the chunk or {@code null} if it isn't stored.
+   */
+  public BitLattice load(int chunkX, int chunkY) {
+    return region(chunkX, chunkY).load(local(chunkX), local(chunkY));
+  }
+
+  public boolean contains(int chunkX, int chunkY) {
+    return region(chunkX, chunkY).contains(local(chunkX), local(chunkY));
+  }
+
+  public void save(int chunkX, int chunkY, BitLattice chunk) {
+    region(chunkX, chunkY).save(local(chunkX), local(chunkY), chunk);
+  }
+
+  /**
+   * Forces the chunks saved since the last flush to disk, e.g. in the background or when the game is saved.
+   */
+  public synchronized void flush() {
+    for (RegionFile region : regions.values()) {
+      region.flush();
+    }
+  }
+
+  /**
+   * Closes all region files, even if closing some of them fails.
+   *
+   * @throws IOException the first failure, later ones are suppressed by it.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    IOException failure = null;
+    for (RegionFile region : regions.values()) {
+      try {
+        region.close();
+      }
+      catch (IOException | RuntimeException e) {
+        IOException closeFailure = e instanceof IOException ? (IOException)e
+            : new IOException("Couldn't close region file", e);
+        if (failure == null) {
+          failure = closeFailure;
+        }
+        else {
+          failure.addSuppressed(closeFailure);
+        }
+      }
+    }
+    regions.clear();
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private synchronized RegionFile region(int chunkX, int chunkY) {
+    int regionX = Math.floorDiv(chunkX, RegionFile.REGION_SIZE);
+    int regionY = Math.floorDiv(chunkY, RegionFile.REGION_SIZE);
+    return regions.computeIfAbsent(ChunkedCaveGenerator.key(regionX, regionY),
+        key -> new RegionFile(directory.resolve("r." + regionX + "." + regionY + ".cave"), chunkSize, compress));
+  }
+
+  private static int local(int chunk) {
+    return Math.floorMod(chunk, RegionFile.REGION_SIZE);
+  }
+}
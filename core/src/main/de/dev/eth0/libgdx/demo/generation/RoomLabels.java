@@ -0,0 +1,234 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.Arrays;
+
+/**
+ * Connected-component labelling of a map: every cell of the requested type gets the number of the room it belongs
+ * to. Rooms are connected through the Von-Neumann-Neighborhood, like in {@link LatticeFns#getRooms(boolean[][], boolean)}.
+ * <p>
+ * Rooms are numbered in the order their first cell appears when scanning the map row by row, which is the same order
+ * {@link LatticeFns#getRooms(boolean[][], boolean)} returns them in. The representative cell of a room is that first
+ * cell.
+ * </p>
+ * The labelling is done in two passes over the map using a union-find structure, so apart from the result only the
+ * union-find table is allocated.
+ */
+public class RoomLabels {
+
+  /**
+   * Label of all cells that don't belong to a room.
+   */
+  public static final int NONE = -1;
+
+  private final int width;
+  private final int height;
+  private final int[] labels;
+  private final int roomCount;
+
+  private final int[] area;
+  private final int[] minX;
+  private final int[] minY;
+  private final int[] maxX;
+  private final int[] maxY;
+  private final int[] representative;
+
+  private RoomLabels(int width, int height, int[] labels, int roomCount) {
+    this.width = width;
+    this.height = height;
+    this.labels = labels;
+    this.roomCount = roomCount;
+    this.area = new int[roomCount];
+    this.minX = new int[roomCount];
+    this.minY = new int[roomCount];
+    this.maxX = new int[roomCount];
+    this.maxY = new int[roomCount];
+    this.representative = new int[roomCount];
+    Arrays.fill(representative, -1);
+  }
+
+  /**
+   * Labels all rooms of the given type.
+   *
+   * @param map  - the map to label.
+   * @param type - the type of the cells forming rooms.
+   * @return the labels.
+   */
+  public static RoomLabels label(boolean[][] map, boolean type) {
+    int height = map.length;
+    int width = map[0].length;
+    int[] labels = new int[width * height];
+
+    // first pass: provisional labels, equivalent labels are merged in the union-find table
+    int[] parent = new int[64];
+    int next = 0;
+    for (int y = 0; y < height; ++y) {
+      boolean[] row = map[y];
+      int idx = y * width;
+      for (int x = 0; x < width; ++x, ++idx) {
+        if (row[x] != type) {
+          labels[idx] = NONE;
+          continue;
+        }
+        int left = x > 0 ? labels[idx - 1] : NONE;
+        int up = y > 0 ? labels[idx - width] : NONE;
+        if (left == NONE && up == NONE) {
+          if (next == parent.length) {
+            parent = Arrays.copyOf(parent, next * 2);
+          }
+          parent[next] = next;
+          labels[idx] = next++;
+        }
+        else if (left == NONE) {
+          labels[idx] = up;
+        }
+        else {
+          labels[idx] = left;
+          if (up != NONE) {
+            union(parent, left, up);
+          }
+        }
+      }
+    }
+
+    // resolve the roots and number them in order of appearance. The root of a room is always its smallest label,
+    // which was created at the first cell of the room.
+    int[] finalLabel = new int[next];
+    int roomCount = 0;
+    for (int i = 0; i < next; ++i) {
+      int root = find(parent, i);
+      finalLabel[i] = root == i ? roomCount++ : finalLabel[root];
+    }
+
+    RoomLabels ret = new RoomLabels(width, height, labels, roomCount);
+    for (int y = 0; y < height; ++y) {
+      int idx = y * width;
+      for (int x = 0; x < width; ++x, ++idx) {
+        if (labels[idx] != NONE) {
+          int room = finalLabel[labels[idx]];
+          labels[idx] = room;
+          ret.add(room, x, y, idx);
+        }
+      }
+    }
+    return ret;
+  }
+
+  private static int find(int[] parent, int label) {
+    while (parent[label] != label) {
+      parent[label] = parent[parent[label]];
+      label = parent[label];
+    }
+    return label;
+  }
+
+  private static void union(int[] parent, int a, int b) {
+    int rootA = find(parent, a);
+    int rootB = find(parent, b);
+    if (rootA < rootB) {
+      parent[rootB] = rootA;
+    }
+    else if (rootB < rootA) {
+      parent[rootA] = rootB;
+    }
+  }
+
+  private void add(int room, int x, int y, int idx) {
+    if (representative[room] == -1) {
+      representative[room] = idx;
+      minX[room] = maxX[room] = x;
+      minY[room] = maxY[room] = y;
+    }
+    else {
+      minX[room] = Math.min(minX[room], x);
+      maxX[room] = Math.max(maxX[room], x);
+      maxY[room] = y;
+    }
+    area[room]++;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * @return the number of rooms.
+   */
+  public int getRoomCount() {
+    return roomCount;
+  }
+
+  /**
+   * @return the label of the cell or {@link #NONE} if it doesn't belong to a room.
+   */
+  public int getLabel(int x, int y) {
+    return labels[y * width + x];
+  }
+
+  /**
+   * @return the label grid, indexed by {@code y * width + x}.
+   */
+  public int[] getLabels() {
+    return labels;
+  }
+
+  public boolean contains(int room, int x, int y) {
+    return labels[y * width + x] == room;
+  }
+
+  /**
+   * @return the number of cells in the room.
+   */
+  public int getArea(int room) {
+    return area[room];
+  }
+
+  public int getMinX(int room) {
+    return minX[room];
+  }
+
+  public int getMinY(int room) {
+    return minY[room];
+  }
+
+  public int getMaxX(int room) {
+    return maxX[room];
+  }
+
+  public int getMaxY(int room) {
+    return maxY[room];
+  }
+
+  /**
+   * @return the x coordinate of the first cell of the room.
+   */
+  public int getRepresentativeX(int room) {
+    return representative[room] % width;
+  }
+
+  /**
+   * @return the y coordinate of the first cell of the room.
+   */
+  public int getRepresentativeY(int room) {
+    return representative[room] / width;
+  }
+
+  /**
+   * @return the rooms ordered by their area, largest first. Rooms of the same size keep their order.
+   */
+  public int[] getRoomsBySize() {
+    long[] keys = new long[roomCount];
+    for (int room = 0; room < roomCount; ++room) {
+      keys[room] = (long)(Integer.MAX_VALUE - area[room]) << 32 | room;
+    }
+    Arrays.sort(keys);
+    int[] ret = new int[roomCount];
+    for (int i = 0; i < roomCount; ++i) {
+      ret[i] = (int)keys[i];
+    }
+    return ret;
+  }
+}
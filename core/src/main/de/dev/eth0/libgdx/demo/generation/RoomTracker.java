@@ -0,0 +1,300 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static de.dev.eth0.libgdx.demo.generation.LatticeFns.EMPTY;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of the empty rooms of a map while single cells are opened or closed.
+ * <p>
+ * Every empty cell stores the id of its room, ids of merged rooms are joined in a union-find table. Opening a cell
+ * joins the rooms around it, which is constant time. Closing a cell can split its room: if the empty neighbours of
+ * the cell are still connected through the ring of eight cells around it, nothing changes. Otherwise a breadth-first
+ * search is started from each of the neighbours. The searches take turns, and a search reaching cells of another one
+ * joins it. As soon as all searches of a group ran out of cells, the group is cut off from the rest and gets a new id.
+ * The searches stop when only one group is left, so the cost depends on the size of the smaller parts and not on the
+ * size of the room.
+ * </p>
+ * The tracker reads the map but doesn't modify it, it has to be notified after a cell of the map changed.
+ */
+public class RoomTracker {
+
+  // ring around a cell: N, NE, E, SE, S, SW, W, NW
+  private static final int[] RING_X = { 0, 1, 1, 1, 0, -1, -1, -1 };
+  private static final int[] RING_Y = { -1, -1, 0, 1, 1, 1, 0, -1 };
+
+  private final boolean[][] map;
+  private final int width;
+  private final int height;
+  private final int[] labels;
+
+  private int[] parent;
+  private int[] area;
+  private int nextId;
+  private int roomCount;
+
+  // scratch space used to detect splits
+  private final int[] visited;
+  private int generation;
+  private final int[][] queues = new int[4][64];
+  private final int[] heads = new int[4];
+  private final int[] tails = new int[4];
+  private final int[] group = new int[4];
+  private final int[] starts = new int[4];
+  private final boolean[] done = new boolean[4];
+
+  public RoomTracker(boolean[][] map) {
+    this.map = map;
+    this.height = map.length;
+    this.width = map[0].length;
+    RoomLabels rooms = RoomLabels.label(map, EMPTY);
+    this.labels = rooms.getLabels().clone();
+    this.roomCount = rooms.getRoomCount();
+    this.nextId = roomCount;
+    this.parent = new int[Math.max(16, roomCount * 2)];
+    this.area = new int[parent.length];
+    for (int room = 0; room < roomCount; ++room) {
+      parent[room] = room;
+      area[room] = rooms.getArea(room);
+    }
+    this.visited = new int[width * height];
+  }
+
+  /**
+   * @return the number of rooms.
+   */
+  public int getRoomCount() {
+    return roomCount;
+  }
+
+  /**
+   * @return the id of the room containing the cell or {@link RoomLabels#NONE} if the cell is filled. Ids are only
+   * valid until the next change.
+   */
+  public int getRoom(int x, int y) {
+    int label = labels[y * width + x];
+    return label == RoomLabels.NONE ? RoomLabels.NONE : find(label);
+  }
+
+  /**
+   * @return the number of cells of the room with the given id.
+   */
+  public int getArea(int room) {
+    return area[room];
+  }
+
+  /**
+   * @return whether both cells are empty and belong to the same room.
+   */
+  public boolean isConnected(int x1, int y1, int x2, int y2) {
+    int room = getRoom(x1, y1);
+    return room != RoomLabels.NONE && room == getRoom(x2, y2);
+  }
+
+  /**
+   * Updates the rooms after a cell of the map was emptied.
+   */
+  public void cellOpened(int x, int y) {
+    int idx = y * width + x;
+    if (labels[idx] != RoomLabels.NONE) {
+      return;
+    }
+    int target = RoomLabels.NONE;
+    for (int i = 0; i < 8; i += 2) {
+      int room = neighborRoom(x + RING_X[i], y + RING_Y[i]);
+      if (room == RoomLabels.NONE || room == target) {
+        continue;
+      }
+      if (target == RoomLabels.NONE) {
+        target = room;
+        continue;
+      }
+      // join the smaller room into the larger one
+      int smaller = area[room] < area[target] ? room : target;
+      int larger = smaller == room ? target : room;
+      parent[smaller] = larger;
+      area[larger] += area[smaller];
+      roomCount--;
+      target = larger;
+    }
+    if (target == RoomLabels.NONE) {
+      target = newRoom();
+      roomCount++;
+    }
+    labels[idx] = target;
+    area[target]++;
+  }
+
+  /**
+   * Updates the rooms after a cell of the map was filled.
+   */
+  public void cellClosed(int x, int y) {
+    int idx = y * width + x;
+    if (labels[idx] == RoomLabels.NONE) {
+      return;
+    }
+    int room = find(labels[idx]);
+    labels[idx] = RoomLabels.NONE;
+    if (--area[room] == 0) {
+      roomCount--;
+      return;
+    }
+
+    // group the empty neighbours which are still connected through the ring around the cell
+    int count = 0;
+    int first = -1;
+    for (int i = 0; i < 8; i += 2) {
+      if (!isEmpty(x + RING_X[i], y + RING_Y[i])) {
+        continue;
+      }
+      if (first == -1) {
+        first = i;
+      }
+      else if (isEmpty(x + RING_X[i - 2], y + RING_Y[i - 2]) && isEmpty(x + RING_X[i - 1], y + RING_Y[i - 1])) {
+        // connected to the previous neighbour through the diagonal between them
+        continue;
+      }
+      starts[count++] = (y + RING_Y[i]) * width + x + RING_X[i];
+    }
+    // the last group might be connected to the first one through the north-west corner
+    if (count > 1 && first == 0 && isEmpty(x - 1, y) && isEmpty(x - 1, y - 1)) {
+      count--;
+    }
+    if (count > 1) {
+      for (int s = 0; s < count; ++s) {
+        startSearch(s, starts[s]);
+      }
+      split(room, count);
+    }
+  }
+
+  private void startSearch(int search, int idx) {
+    if (search == 0) {
+      if (++generation >= 1 << 29) {
+        Arrays.fill(visited, 0);
+        generation = 1;
+      }
+    }
+    heads[search] = 0;
+    tails[search] = 0;
+    group[search] = search;
+    push(search, idx);
+  }
+
+  /**
+   * Runs the searches started at the neighbours of a closed cell until only one group of connected searches is left.
+   * Every other group is moved to a new room.
+   */
+  private void split(int room, int searches) {
+    int groups = searches;
+    Arrays.fill(done, false);
+    while (groups > 1) {
+      for (int s = 0; s < searches && groups > 1; ++s) {
+        if (done[s]) {
+          continue;
+        }
+        if (heads[s] == tails[s]) {
+          done[s] = true;
+          if (isGroupDone(s, searches)) {
+            moveToNewRoom(room, s, searches);
+            groups--;
+          }
+          continue;
+        }
+        int idx = queues[s][heads[s]++];
+        int x = idx % width;
+        int y = idx / width;
+        for (int i = 0; i < 8; i += 2) {
+          int nx = x + RING_X[i];
+          int ny = y + RING_Y[i];
+          if (!isEmpty(nx, ny)) {
+            continue;
+          }
+          int next = ny * width + nx;
+          int mark = visited[next];
+          if (mark >>> 2 != generation) {
+            push(s, next);
+          }
+          else {
+            int other = findGroup(mark & 3);
+            int own = findGroup(s);
+            if (other != own) {
+              group[Math.max(other, own)] = Math.min(other, own);
+              groups--;
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private boolean isGroupDone(int search, int searches) {
+    int own = findGroup(search);
+    for (int s = 0; s < searches; ++s) {
+      if (findGroup(s) == own && !done[s]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void moveToNewRoom(int room, int search, int searches) {
+    int own = findGroup(search);
+    int newRoom = newRoom();
+    for (int s = 0; s < searches; ++s) {
+      if (findGroup(s) != own) {
+        continue;
+      }
+      for (int i = 0; i < tails[s]; ++i) {
+        labels[queues[s][i]] = newRoom;
+      }
+      area[newRoom] += tails[s];
+    }
+    area[room] -= area[newRoom];
+    roomCount++;
+  }
+
+  private int findGroup(int search) {
+    while (group[search] != search) {
+      search = group[search];
+    }
+    return search;
+  }
+
+  private void push(int search, int idx) {
+    if (tails[search] == queues[search].length) {
+      queues[search] = Arrays.copyOf(queues[search], tails[search] * 2);
+    }
+    queues[search][tails[search]++] = idx;
+    visited[idx] = generation << 2 | search;
+  }
+
+  private int newRoom() {
+    if (nextId == parent.length) {
+      parent = Arrays.copyOf(parent, nextId * 2);
+      area = Arrays.copyOf(area, nextId * 2);
+    }
+    parent[nextId] = nextId;
+    area[nextId] = 0;
+    return nextId++;
+  }
+
+  private boolean isEmpty(int x, int y) {
+    return x >= 0 && y >= 0 && x < width && y < height && map[y][x] == EMPTY;
+  }
+
+  private int neighborRoom(int x, int y) {
+    if (x < 0 || y < 0 || x >= width || y >= height) {
+      return RoomLabels.NONE;
+    }
+    return getRoom(x, y);
+  }
+
+  private int find(int label) {
+    while (parent[label] != label) {
+      parent[label] = parent[parent[label]];
+      label = parent[label];
+    }
+    return label;
+  }
+}
@@ -0,0 +1,135 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.Arrays;
+
+/**
+ * Computes the cells seen from a cell of a bit-packed lattice with symmetric recursive shadowcasting.
+ * <p>
+ * The view is split into four quadrants, each scanned row by row away from the origin. A row covers the cells between
+ * a start and an end slope; a filled cell ends the slopes of the row behind it, an empty cell after a filled one starts
+ * new ones. Slopes are exact fractions through the edges of the cells, so there is no rounding. Empty cells are only
+ * seen if their centers lie between the slopes, which makes the view symmetric: an empty cell sees another empty cell
+ * exactly when it is seen by it. Filled cells are seen if any part of them is visible, cells outside the map count as
+ * filled and are never seen.
+ * </p>
+ * <p>
+ * The visible cells within the radius of the origin are written into a bit-packed mask covering the square of
+ * {@code 2 * radius + 1} cells around it, rows of {@link #getWordsPerRow(int)} words, cell {@code (x, y)} of the map
+ * being bit {@code x - originX + radius} of row {@code y - originY + radius}. A caster reuses its buffers and isn't
+ * thread-safe, use one per thread.
+ * </p>
+ */
+public class ShadowCaster {
+
+  private static final int NONE = 0;
+  private static final int EMPTY = 1;
+  private static final int FILLED = 2;
+
+  // depth, start and end slope of the rows left to scan, five ints each
+  private int[] rows = new int[5 * 64];
+
+  public static int getWordsPerRow(int radius) {
+    return (2 * radius + 64) >>> 6;
+  }
+
+  /**
+   * @return the number of words of the mask of a radius.
+   */
+  public static int getMaskSize(int radius) {
+    return (2 * radius + 1) * getWordsPerRow(radius);
+  }
+
+  /**
+   * @return whether the cell is set in the mask computed for the origin and radius.
+   */
+  public static boolean isVisible(long[] mask, int originX, int originY, int radius, int x, int y) {
+    int maskX = x - originX + radius;
+    int maskY = y - originY + radius;
+    if (maskX < 0 || maskY < 0 || maskX > 2 * radius || maskY > 2 * radius) {
+      return false;
+    }
+    return (mask[maskY * getWordsPerRow(radius) + (maskX >>> 6)] & 1L << maskX) != 0;
+  }
+
+  /**
+   * Computes the cells seen from the origin.
+   *
+   * @param mask - receives the visible cells, at least {@link #getMaskSize(int)} words.
+   */
+  public void compute(BitLattice lattice, int originX, int originY, int radius, long[] mask) {
+    if (originX < 0 || originY < 0 || originX >= lattice.getWidth() || originY >= lattice.getHeight()) {
+      throw new IllegalArgumentException("Origin " + originX + ", " + originY + " is not inside the map");
+    }
+    if (radius < 0) {
+      throw new IllegalArgumentException("The radius must not be negative");
+    }
+    Arrays.fill(mask, 0, getMaskSize(radius), 0L);
+    mask[radius * getWordsPerRow(radius) + (radius >>> 6)] |= 1L << radius;
+    if (radius == 0) {
+      return;
+    }
+    for (int quadrant = 0; quadrant < 4; ++quadrant) {
+      int size = 0;
+      size = push(size, 1, -1, 1, 1, 1);
+      while (size > 0) {
+        size -= 5;
+        size = scan(lattice, originX, originY, radius, mask, quadrant, size);
+      }
+    }
+  }
+
+  /**
+   * Scans the row at the top of the stack and pushes the rows behind its runs of empty cells.
+   *
+   * @return the new size of the stack.
+   */
+  private int scan(BitLattice lattice, int originX, int originY, int radius, long[] mask, int quadrant, int size) {
+    int depth = rows[size];
+    int startNum = rows[size + 1];
+    int startDen = rows[size + 2];
+    int endNum = rows[size + 3];
+    int endDen = rows[size + 4];
+    long[] words = lattice.getWords();
+    int wordsPerRow = lattice.getWordsPerRow();
+    int maskWordsPerRow = getWordsPerRow(radius);
+    // the columns whose cells touch the slopes, rounding ties towards the center of the row
+    int minCol = Math.floorDiv(2 * depth * startNum + startDen, 2 * startDen);
+    int maxCol = -Math.floorDiv(endDen - 2 * depth * endNum, 2 * endDen);
+    int previous = NONE;
+    for (int col = minCol; col <= maxCol; ++col) {
+      int x = quadrant == 1 ? originX + depth : quadrant == 3 ? originX - depth : originX + col;
+      int y = quadrant == 0 ? originY - depth : quadrant == 2 ? originY + depth : originY + col;
+      boolean inside = x >= 0 && y >= 0 && x < lattice.getWidth() && y < lattice.getHeight();
+      boolean filled = !inside || (words[y * wordsPerRow + (x >>> 6)] & 1L << x) != 0;
+      boolean symmetric = col * startDen >= depth * startNum && col * endDen <= depth * endNum;
+      if (inside && (filled || symmetric) && col * col + depth * depth <= radius * radius) {
+        int maskX = x - originX + radius;
+        mask[(y - originY + radius) * maskWordsPerRow + (maskX >>> 6)] |= 1L << maskX;
+      }
+      if (previous == FILLED && !filled) {
+        startNum = 2 * col - 1;
+        startDen = 2 * depth;
+      }
+      if (previous == EMPTY && filled && depth < radius) {
+        size = push(size, depth + 1, startNum, startDen, 2 * col - 1, 2 * depth);
+      }
+      previous = filled ? FILLED : EMPTY;
+    }
+    if (previous == EMPTY && depth < radius) {
+      size = push(size, depth + 1, startNum, startDen, endNum, endDen);
+    }
+    return size;
+  }
+
+  private int push(int size, int depth, int startNum, int startDen, int endNum, int endDen) {
+    if (size + 5 > rows.length) {
+      rows = Arrays.copyOf(rows, 2 * rows.length);
+    }
+    rows[size] = depth;
+    rows[size + 1] = startNum;
+    rows[size + 2] = startDen;
+    rows[size + 3] = endNum;
+    rows[size + 4] = endDen;
+    return size + 5;
+  }
+}
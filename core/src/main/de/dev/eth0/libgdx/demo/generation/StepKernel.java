@@ -0,0 +1,32 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+/**
+ * A step of the {@link AutomatonRule#cave(int, int) cave rule} on the {@code boolean[][]} map, see
+ * {@link CaveGenerator#step(int, int)}.
+ * <p>
+ * The project targets Java 11, so the kernel built on the Vector API lives in {@code src/vector} and is compiled for
+ * Java 17 into the multi-release part of the jar. It is only used if it can be loaded, which needs a Java 17 runtime
+ * started with {@code --add-modules jdk.incubator.vector}, otherwise the generator keeps using its scalar code.
+ * </p>
+ */
+interface StepKernel {
+
+  String VECTOR_KERNEL = "de.dev.eth0.libgdx.demo.generation.VectorStepKernel";
+
+  /**
+   * Steps the interior cells of the rows {@code [fromRow, toRow)} of {@code src} into {@code dst}.
+   */
+  void step(boolean[][] src, boolean[][] dst, int minCount, int maxCount, int fromRow, int toRow);
+
+  /**
+   * @return the kernel built on the Vector API or {@code null} if it isn't available on this runtime.
+   */
+  static StepKernel vector() {
+    try {
+      return (StepKernel)Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+    }
+    catch (ReflectiveOperationException | LinkageError e) {
+      return null;
+    }
+  }
+}
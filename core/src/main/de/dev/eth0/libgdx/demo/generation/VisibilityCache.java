@@ -0,0 +1,212 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import java.util.Arrays;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Keeps the field of view of many lights or viewers on a bit-packed lattice, computed by a {@link ShadowCaster}.
+ * <p>
+ * Every light has a bit-packed mask of the cells it sees within its radius, which is only recomputed after the light
+ * moved or a cell within the square of its radius changed; a changed cell farther away can't cast a shadow into the
+ * radius. {@link #update()} recomputes all outdated masks at once, split between threads, querying an outdated light
+ * recomputes it on the calling thread. The cache isn't thread-safe otherwise, the lattice should only be changed
+ * through {@link #setFilled(int, int, boolean)}, other changes need an {@link #invalidate()}.
+ * </p>
+ */
+public class VisibilityCache implements Disposable {
+
+  private final BitLattice lattice;
+  private final BandExecutor bands;
+  // one caster per band
+  private final ShadowCaster[] casters;
+
+  // position and radius of every light, lights are identified by their index and removed ones have radius -1
+  private int[] lightX = new int[16];
+  private int[] lightY = new int[16];
+  private int[] radii = new int[16];
+  private long[][] masks = new long[16][];
+  private boolean[] dirty = new boolean[16];
+  private int lightCount;
+  private int[] freeLights = new int[16];
+  private int freeCount;
+  private int[] pending = new int[16];
+
+  public VisibilityCache(BitLattice lattice) {
+    this(lattice, 1);
+  }
+
+  /**
+   * @param parallelism - number of threads updating the masks, 1 runs everything on the calling thread.
+   */
+  public VisibilityCache(BitLattice lattice, int parallelism) {
+    this.lattice = lattice;
+    this.bands = new BandExecutor(parallelism, null);
+    this.casters = new ShadowCaster[bands.getMaxBands()];
+    for (int i = 0; i < casters.length; ++i) {
+      casters[i] = new ShadowCaster();
+    }
+  }
+
+  public BitLattice getLattice() {
+    return lattice;
+  }
+
+  /**
+   * @return the id of the light.
+   */
+  public int addLight(int x, int y, int radius) {
+    if (radius < 0) {
+      throw new IllegalArgumentException("The radius must not be negative");
+    }
+    checkInside(x, y);
+    int id;
+    if (freeCount > 0) {
+      id = freeLights[--freeCount];
+    }
+    else {
+      if (lightCount == radii.length) {
+        int capacity = 2 * lightCount;
+        lightX = Arrays.copyOf(lightX, capacity);
+        lightY = Arrays.copyOf(lightY, capacity);
+        radii = Arrays.copyOf(radii, capacity);
+        masks = Arrays.copyOf(masks, capacity);
+        dirty = Arrays.copyOf(dirty, capacity);
+        freeLights = Arrays.copyOf(freeLights, capacity);
+        pending = Arrays.copyOf(pending, capacity);
+      }
+      id = lightCount++;
+    }
+    lightX[id] = x;
+    lightY[id] = y;
+    radii[id] = radius;
+    if (masks[id] == null || masks[id].length < ShadowCaster.getMaskSize(radius)) {
+      masks[id] = new long[ShadowCaster.getMaskSize(radius)];
+    }
+    dirty[id] = true;
+    return id;
+  }
+
+  public void moveLight(int id, int x, int y) {
+    checkLight(id);
+    checkInside(x, y);
+    if (lightX[id] != x || lightY[id] != y) {
+      lightX[id] = x;
+      lightY[id] = y;
+      dirty[id] = true;
+    }
+  }
+
+  public void removeLight(int id) {
+    checkLight(id);
+    radii[id] = -1;
+    dirty[id] = false;
+    freeLights[freeCount++] = id;
+  }
+
+  public int getX(int id) {
+    return lightX[id];
+  }
+
+  public int getY(int id) {
+    return lightY[id];
+  }
+
+  public int getRadius(int id) {
+    return radii[id];
+  }
+
+  /**
+   * @return whether the mask of the light is recomputed by the next update.
+   */
+  public boolean isDirty(int id) {
+    return dirty[id];
+  }
+
+  /**
+   * Changes a cell of the lattice and marks the lights whose radius covers it.
+   */
+  public void setFilled(int x, int y, boolean filled) {
+    if (lattice.get(x, y) == filled) {
+      return;
+    }
+    lattice.set(x, y, filled);
+    for (int id = 0; id < lightCount; ++id) {
+      int radius = radii[id];
+      if (radius >= 0 && Math.abs(x - lightX[id]) <= radius && Math.abs(y - lightY[id]) <= radius) {
+        dirty[id] = true;
+      }
+    }
+  }
+
+  /**
+   * Marks all lights, e.g. after the lattice was changed directly.
+   */
+  public void invalidate() {
+    for (int id = 0; id < lightCount; ++id) {
+      dirty[id] = radii[id] >= 0;
+    }
+  }
+
+  /**
+   * @return whether the light sees the cell.
+   */
+  public boolean isVisible(int id, int x, int y) {
+    return ShadowCaster.isVisible(getMask(id), lightX[id], lightY[id], radii[id], x, y);
+  }
+
+  /**
+   * @return the mask of the light in the layout of {@link ShadowCaster}, recomputed first if the light is dirty.
+   */
+  public long[] getMask(int id) {
+    checkLight(id);
+    if (dirty[id]) {
+      compute(casters[0], id);
+    }
+    return masks[id];
+  }
+
+  /**
+   * Recomputes the masks of all dirty lights.
+   *
+   * @return the number of recomputed lights.
+   */
+  public int update() {
+    int count = 0;
+    for (int id = 0; id < lightCount; ++id) {
+      if (dirty[id]) {
+        pending[count++] = id;
+      }
+    }
+    bands.run(count, 1, (band, from, to) -> {
+      for (int i = from; i < to; ++i) {
+        compute(casters[band], pending[i]);
+      }
+    }, "updating the fields of view");
+    return count;
+  }
+
+  /**
+   * Shuts down the threads updating the masks.
+   */
+  @Override
+  public void dispose() {
+    bands.dispose();
+  }
+
+  private void compute(ShadowCaster caster, int id) {
+    caster.compute(lattice, lightX[id], lightY[id], radii[id], masks[id]);
+    dirty[id] = false;
+  }
+
+  private void checkLight(int id) {
+    if (radii[id] < 0) {
+      throw new IllegalArgumentException("Light " + id + " was removed");
+    }
+  }
+
+  private void checkInside(int x, int y) {
+    if (x < 0 || y < 0 || x >= lattice.getWidth() || y >= lattice.getHeight()) {
+      throw new IllegalArgumentException("Point " + x + ", " + y + " is not inside the map");
+    }
+  }
+}
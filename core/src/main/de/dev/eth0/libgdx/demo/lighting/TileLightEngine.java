@@ -0,0 +1,429 @@
+package de.dev.eth0.libgdx.demo.lighting;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Spreads the light of point lights over the tiles of a map on the CPU.
+ * <p>
+ * Every tile has a light level between 0 and {@link #MAX_LEVEL} per channel, either one channel or red, green and
+ * blue. Light spreads to the four neighbours of a tile and loses the attenuation of the tile it enters: open tiles
+ * take away the falloff, walls much more, so light fades with the walking distance and doesn't shine through walls.
+ * The level of a tile is the brightest light reaching it.
+ * </p>
+ * <p>
+ * Adding, moving and removing lights and changing tiles only touches the tiles lit by the changed light: a removed
+ * light is first taken back from the tiles it lit, then the light of the tiles around them spreads in again.
+ * </p>
+ * <p>
+ * {@link #writeTo(ByteBuffer)} writes one byte per channel and tile, rows from the top, the layout of a
+ * {@link com.badlogic.gdx.graphics.Pixmap} with {@code width x height} pixels in {@code RGB888} or {@code Alpha}
+ * format which can be drawn stretched over the map. Tile {@code (x, y)} uses the coordinates of a
+ * {@link com.badlogic.gdx.maps.tiled.TiledMapTileLayer}, the origin is the bottom-left tile. An engine isn't
+ * thread-safe.
+ * </p>
+ */
+public class TileLightEngine {
+
+  public static final int MAX_LEVEL = 255;
+
+  private int width;
+  private int height;
+  private int channels = 3;
+  private int falloff = 16;
+  private int wallAttenuation = MAX_LEVEL;
+  private final int[] ambient = new int[3];
+
+  // attenuation of every tile
+  private int[] attenuation;
+  // light and emitted light of every channel and tile
+  private byte[][] levels;
+  private byte[][] emission;
+
+  // position and color of every light, lights are identified by their index
+  private int[] lightCells = new int[16];
+  private int[] lightColors = new int[16];
+  private int lightCount;
+  private int[] freeLights = new int[16];
+  private int freeCount;
+
+  // the tiles whose light spreads and the tiles whose light is taken back, with their old level
+  private int[] queue;
+  private boolean[] queued;
+  private int head;
+  private int size;
+  private int[] removed;
+  private int[] removedLevels;
+  // one row of the output
+  private byte[] row;
+
+  private boolean dirty = true;
+
+  private TileLightEngine() {
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * @return 1 for white light or 3 for red, green and blue.
+   */
+  public int getChannels() {
+    return channels;
+  }
+
+  /**
+   * @return the light level of the tile in the channel, without the ambient light.
+   */
+  public int getLevel(int x, int y, int channel) {
+    return levels[channel][y * width + x] & 0xFF;
+  }
+
+  /**
+   * Marks tiles as walls or open tiles, e.g. from the collision tiles of a map.
+   */
+  public void setWall(int x, int y, boolean wall) {
+    setAttenuation(x, y, wall ? wallAttenuation : falloff);
+  }
+
+  /**
+   * Sets the light a tile takes away from the light entering it.
+   *
+   * @param attenuation - at least 1, {@link #MAX_LEVEL} blocks all light.
+   */
+  public void setAttenuation(int x, int y, int attenuation) {
+    if (attenuation < 1) {
+      throw new IllegalArgumentException("The attenuation must be at least 1");
+    }
+    int cell = y * width + x;
+    if (this.attenuation[cell] == attenuation) {
+      return;
+    }
+    this.attenuation[cell] = attenuation;
+    // the tile is lit again from its neighbours with the new attenuation
+    for (int c = 0; c < channels; ++c) {
+      darken(c, cell);
+      spread(c);
+    }
+    dirty = true;
+  }
+
+  /**
+   * Sets the light level of tiles without any light, which isn't spread.
+   */
+  public void setAmbient(int red, int green, int blue) {
+    ambient[0] = clamp(red);
+    ambient[1] = clamp(green);
+    ambient[2] = clamp(blue);
+    dirty = true;
+  }
+
+  /**
+   * Adds a light, an engine without colors only uses the red level.
+   *
+   * @return the id of the light.
+   */
+  public int addLight(int x, int y, int red, int green, int blue) {
+    int id;
+    if (freeCount > 0) {
+      id = freeLights[--freeCount];
+    }
+    else {
+      if (lightCount == lightCells.length) {
+        lightCells = Arrays.copyOf(lightCells, 2 * lightCount);
+        lightColors = Arrays.copyOf(lightColors, 2 * lightCount);
+        freeLights = Arrays.copyOf(freeLights, 2 * lightCount);
+      }
+      id = lightCount++;
+    }
+    lightCells[id] = y * width + x;
+    lightColors[id] = clamp(red) << 16 | clamp(green) << 8 | clamp(blue);
+    emit(lightCells[id]);
+    return id;
+  }
+
+  /**
+   * Adds a white light.
+   *
+   * @return the id of the light.
+   */
+  public int addLight(int x, int y, int level) {
+    return addLight(x, y, level, level, level);
+  }
+
+  public void moveLight(int id, int x, int y) {
+    checkLight(id);
+    int cell = y * width + x;
+    int old = lightCells[id];
+    if (old == cell) {
+      return;
+    }
+    lightCells[id] = cell;
+    extinguish(old);
+    emit(cell);
+  }
+
+  public void removeLight(int id) {
+    checkLight(id);
+    int cell = lightCells[id];
+    lightCells[id] = -1;
+    freeLights[freeCount++] = id;
+    extinguish(cell);
+  }
+
+  /**
+   * @return whether the levels changed since the last {@link #writeTo(ByteBuffer)}.
+   */
+  public boolean isDirty() {
+    return dirty;
+  }
+
+  /**
+   * Writes the light levels including the ambient light, {@link #getChannels()} bytes per tile, rows from the top.
+   *
+   * @param buffer - receives {@code width * height * channels} bytes from its position, which isn't changed.
+   */
+  public void writeTo(ByteBuffer buffer) {
+    int position = buffer.position();
+    for (int y = height - 1; y >= 0; --y) {
+      for (int c = 0; c < channels; ++c) {
+        byte[] light = levels[c];
+        int min = ambient[c];
+        for (int x = 0, i = c; x < width; ++x, i += channels) {
+          int level = light[y * width + x] & 0xFF;
+          row[i] = (byte)(level > min ? level : min);
+        }
+      }
+      buffer.put(row);
+    }
+    buffer.position(position);
+    dirty = false;
+  }
+
+  /**
+   * Recomputes the emission of the tile from the lights on it and spreads the light of all channels.
+   */
+  private void emit(int cell) {
+    updateEmission(cell);
+    for (int c = 0; c < channels; ++c) {
+      int level = emission[c][cell] & 0xFF;
+      if (level > (levels[c][cell] & 0xFF)) {
+        levels[c][cell] = (byte)level;
+        push(cell);
+      }
+      spread(c);
+    }
+    dirty = true;
+  }
+
+  /**
+   * Takes back the light of a light which left the tile and lets the remaining light spread in again.
+   */
+  private void extinguish(int cell) {
+    updateEmission(cell);
+    for (int c = 0; c < channels; ++c) {
+      darken(c, cell);
+      spread(c);
+    }
+    dirty = true;
+  }
+
+  private void updateEmission(int cell) {
+    for (int c = 0; c < channels; ++c) {
+      emission[c][cell] = 0;
+    }
+    for (int id = 0; id < lightCount; ++id) {
+      if (lightCells[id] == cell) {
+        int color = lightColors[id];
+        for (int c = 0; c < channels; ++c) {
+          int level = channels == 1 ? color >>> 16 : color >>> (16 - 8 * c) & 0xFF;
+          emission[c][cell] = (byte)Math.max(emission[c][cell] & 0xFF, level);
+        }
+      }
+    }
+  }
+
+  /**
+   * Clears the tile and every tile lit through it. Tiles lit by other lights around the cleared ones are queued to
+   * spread again, cleared tiles with a light on them shine again.
+   */
+  private void darken(int channel, int cell) {
+    byte[] light = levels[channel];
+    byte[] emitted = emission[channel];
+    int count = 0;
+    removed[count] = cell;
+    removedLevels[count++] = light[cell] & 0xFF;
+    light[cell] = 0;
+    for (int i = 0; i < count; ++i) {
+      int current = removed[i];
+      int level = removedLevels[i];
+      int x = current % width;
+      int y = current / width;
+      for (int d = 0; d < 4; ++d) {
+        int neighbour = neighbour(x, y, d);
+        if (neighbour < 0) {
+          continue;
+        }
+        int other = light[neighbour] & 0xFF;
+        if (other != 0 && other < level) {
+          removed[count] = neighbour;
+          removedLevels[count++] = other;
+          light[neighbour] = 0;
+        }
+        else if (other >= level) {
+          push(neighbour);
+        }
+      }
+    }
+    for (int i = 0; i < count; ++i) {
+      if (emitted[removed[i]] != 0) {
+        light[removed[i]] = emitted[removed[i]];
+        push(removed[i]);
+      }
+    }
+  }
+
+  /**
+   * Spreads the light of the queued tiles until no level rises anymore.
+   */
+  private void spread(int channel) {
+    byte[] light = levels[channel];
+    while (size > 0) {
+      int current = queue[head];
+      queued[current] = false;
+      head = head + 1 == queue.length ? 0 : head + 1;
+      --size;
+      int level = light[current] & 0xFF;
+      int x = current % width;
+      int y = current / width;
+      for (int d = 0; d < 4; ++d) {
+        int neighbour = neighbour(x, y, d);
+        if (neighbour >= 0) {
+          int spread = level - attenuation[neighbour];
+          if (spread > (light[neighbour] & 0xFF)) {
+            light[neighbour] = (byte)spread;
+            push(neighbour);
+          }
+        }
+      }
+    }
+  }
+
+  private void push(int cell) {
+    if (!queued[cell]) {
+      queued[cell] = true;
+      int tail = head + size;
+      queue[tail >= queue.length ? tail - queue.length : tail] = cell;
+      ++size;
+    }
+  }
+
+  /**
+   * @return the neighbour in direction right, up, left or down or -1 outside of the map.
+   */
+  private int neighbour(int x, int y, int direction) {
+    switch (direction) {
+      case 0:
+        return x + 1 < width ? y * width + x + 1 : -1;
+      case 1:
+        return y + 1 < height ? (y + 1) * width + x : -1;
+      case 2:
+        return x > 0 ? y * width + x - 1 : -1;
+      default:
+        return y > 0 ? (y - 1) * width + x : -1;
+    }
+  }
+
+  private void checkLight(int id) {
+    if (id < 0 || id >= lightCount) {
+      throw new IllegalArgumentException("Light " + id + " doesn't exist");
+    }
+    if (lightCells[id] < 0) {
+      throw new IllegalArgumentException("Light " + id + " was removed");
+    }
+  }
+
+  private static int clamp(int level) {
+    return Math.max(0, Math.min(MAX_LEVEL, level));
+  }
+
+  public static class Builder {
+
+    private final TileLightEngine engine;
+    private boolean[][] walls;
+
+    public static Builder create() {
+      return new Builder();
+    }
+
+    private Builder() {
+      engine = new TileLightEngine();
+    }
+
+    public Builder withSize(int width, int height) {
+      engine.width = width;
+      engine.height = height;
+      return this;
+    }
+
+    /**
+     * @param colored - whether lights have separate red, green and blue levels, otherwise all lights are white.
+     */
+    public Builder withColors(boolean colored) {
+      engine.channels = colored ? 3 : 1;
+      return this;
+    }
+
+    /**
+     * @param falloff - light lost per open tile.
+     */
+    public Builder withFalloff(int falloff) {
+      engine.falloff = falloff;
+      return this;
+    }
+
+    /**
+     * @param wallAttenuation - light lost entering a wall, {@link #MAX_LEVEL} blocks all light.
+     */
+    public Builder withWallAttenuation(int wallAttenuation) {
+      engine.wallAttenuation = wallAttenuation;
+      return this;
+    }
+
+    /**
+     * Marks the walls of the map and takes its size, {@code walls[y][x]} being tile {@code (x, y)}.
+     */
+    public Builder withWalls(boolean[][] walls) {
+      this.walls = walls;
+      return withSize(walls[0].length, walls.length);
+    }
+
+    public TileLightEngine build() {
+      if (engine.width <= 0 || engine.height <= 0) {
+        throw new IllegalArgumentException("The size must be positive");
+      }
+      if (engine.falloff < 1 || engine.wallAttenuation < 1) {
+        throw new IllegalArgumentException("The falloff and wall attenuation must be at least 1");
+      }
+      int cells = engine.width * engine.height;
+      engine.attenuation = new int[cells];
+      for (int i = 0; i < cells; ++i) {
+        boolean wall = walls != null && walls[i / engine.width][i % engine.width];
+        engine.attenuation[i] = wall ? engine.wallAttenuation : engine.falloff;
+      }
+      engine.levels = new byte[engine.channels][cells];
+      engine.emission = new byte[engine.channels][cells];
+      engine.queue = new int[cells];
+      engine.queued = new boolean[cells];
+      engine.removed = new int[cells];
+      engine.removedLevels = new int[cells];
+      engine.row = new byte[engine.width * engine.channels];
+      return engine;
+    }
+  }
+}
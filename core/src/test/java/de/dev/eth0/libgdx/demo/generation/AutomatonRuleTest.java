@@ -0,0 +1,157 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+
+class AutomatonRuleTest {
+
+  @BeforeEach
+  void setUp() {
+    Gdx.app = mock(Application.class);
+  }
+
+  @Test
+  void caveTableMatchesPreset() {
+    for (boolean bitPacked : new boolean[] { false, true }) {
+      for (int parallelism : new int[] { 1, 3 }) {
+        CaveGenerator expected = builder(bitPacked, parallelism)
+            .addPhase(5, 2, 4)
+            .addPhase(5, -1, 3)
+            .build();
+        expected.generateMap();
+        CaveGenerator actual = builder(bitPacked, parallelism)
+            .addPhase(AutomatonRule.caveTable(5, 2), 4)
+            .addPhase(AutomatonRule.caveTable(5, -1), 3)
+            .build();
+        actual.generateMap();
+        expected.dispose();
+        actual.dispose();
+
+        assertThat(actual.getMap()).as("bitPacked %s, parallelism %d", bitPacked, parallelism)
+            .isEqualTo(expected.getMap());
+      }
+    }
+  }
+
+  @Test
+  void birthSurviveMatchesDirectCount() {
+    AutomatonRule.Shape[] shapes = AutomatonRule.Shape.values();
+    int[] radii = { 1, 2, 3 };
+    Random random = new Random(5);
+    for (AutomatonRule.Shape shape : shapes) {
+      for (int radius : radii) {
+        AutomatonRule underTest = AutomatonRule.birthSurvive(shape, radius, new int[] { 3, 5, 6 },
+            new int[] { 2, 3, 4, 7, 8 });
+        boolean[][] map = randomMap(random, 67, 23);
+        boolean[][] actual = step(underTest, map);
+        BitLattice actualLattice = stepLattice(underTest, map);
+
+        for (int y = 1; y < map.length - 1; y++) {
+          for (int x = 1; x < map[y].length - 1; x++) {
+            int count = count(map, x, y, shape, radius);
+            boolean expected = map[y][x] ? count >= 2 && count <= 4 || count == 7 || count == 8
+                : count == 3 || count == 5 || count == 6;
+            assertThat(actual[y][x]).as("%s %d at %d,%d", shape, radius, x, y).isEqualTo(expected);
+            assertThat(actualLattice.get(x, y)).as("%s %d at %d,%d", shape, radius, x, y).isEqualTo(expected);
+          }
+        }
+        assertThat(actual[0]).isEqualTo(map[0]);
+        assertThat(actualLattice.get(0, 5)).isEqualTo(map[5][0]);
+      }
+    }
+  }
+
+  @Test
+  void chunksFitTogetherWithWiderRules() {
+    ChunkedCaveGenerator underTest = ChunkedCaveGenerator.Builder.create()
+        .withChunkSize(16)
+        .withRandomSeed(3)
+        .addPhase(AutomatonRule.birthSurvive(AutomatonRule.Shape.CIRCLE, 3, new int[] { 19, 20, 21, 22, 23, 24 },
+            new int[] { 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28 }), 2)
+        .addPhase(5, -1, 1)
+        .build();
+    assertThat(underTest.getHalo()).isEqualTo(8);
+    BitLattice region = underTest.generateRegion(-16, 0, 32, 16);
+
+    for (int chunkX = -1; chunkX <= 0; chunkX++) {
+      BitLattice chunk = underTest.getChunk(chunkX, 0);
+      for (int y = 0; y < 16; y++) {
+        for (int x = 0; x < 16; x++) {
+          assertThat(chunk.get(x, y)).isEqualTo(region.get((chunkX + 1) * 16 + x, y));
+        }
+      }
+    }
+  }
+
+  private CaveGenerator.Builder builder(boolean bitPacked, int parallelism) {
+    return CaveGenerator.Builder.create()
+        .withSize(90, 40)
+        .withRandomSeed(17)
+        .withBitPackedLattice(bitPacked)
+        .withParallelism(parallelism)
+        .withTileSet(mock(TextureAtlas.class));
+  }
+
+  private static boolean[][] step(AutomatonRule rule, boolean[][] map) {
+    AutomatonRule.RowSums sums = new AutomatonRule.RowSums(map[0].length, map.length, rule.getRadius());
+    sums.update(map);
+    boolean[][] ret = new boolean[map.length][];
+    for (int y = 0; y < map.length; y++) {
+      ret[y] = map[y].clone();
+    }
+    rule.step(sums, ret, 1, map.length - 1);
+    return ret;
+  }
+
+  private static BitLattice stepLattice(AutomatonRule rule, boolean[][] map) {
+    BitLattice src = BitLattice.fromMap(map);
+    AutomatonRule.RowSums sums = new AutomatonRule.RowSums(map[0].length, map.length, rule.getRadius());
+    sums.update(src);
+    BitLattice ret = BitLattice.fromMap(map);
+    rule.step(sums, ret, 1, map.length - 1);
+    return ret;
+  }
+
+  private static int count(boolean[][] map, int x, int y, AutomatonRule.Shape shape, int radius) {
+    int ret = 0;
+    for (int dy = -radius; dy <= radius; dy++) {
+      for (int dx = -radius; dx <= radius; dx++) {
+        boolean inside;
+        switch (shape) {
+          case MOORE:
+            inside = true;
+            break;
+          case VON_NEUMANN:
+            inside = Math.abs(dx) + Math.abs(dy) <= radius;
+            break;
+          default:
+            inside = dx * dx + dy * dy <= radius * (radius + 1);
+        }
+        int cx = x + dx;
+        int cy = y + dy;
+        if (inside && (dx != 0 || dy != 0) && cy >= 0 && cy < map.length && cx >= 0 && cx < map[cy].length
+            && map[cy][cx]) {
+          ret++;
+        }
+      }
+    }
+    return ret;
+  }
+
+  private static boolean[][] randomMap(Random random, int width, int height) {
+    boolean[][] ret = new boolean[height][width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        ret[y][x] = random.nextDouble() < 0.45;
+      }
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,76 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.badlogic.gdx.Gdx;
+
+class BatchCaveGeneratorTest {
+
+  @BeforeEach
+  void setUp() {
+    // the batch runs without an application
+    Gdx.app = null;
+  }
+
+  @Test
+  void statisticsMatchTheGeneratedMap() {
+    BatchCaveGenerator underTest = builder().build();
+    for (long seed = 0; seed < 5; seed++) {
+      BatchCaveGenerator.Result result = underTest.generate(seed);
+
+      CaveGenerator cave = CaveGenerator.Builder.create()
+          .withSize(60, 40)
+          .withRandomSeed(seed)
+          .addPhase(5, 2, 4)
+          .addPhase(5, -1, 5)
+          .build();
+      cave.initialize();
+      cave.iterate();
+      RoomLabels rooms = RoomLabels.label(cave.getMap(), LatticeFns.EMPTY);
+      int open = 0;
+      for (int room = 0; room < rooms.getRoomCount(); room++) {
+        open += rooms.getArea(room);
+      }
+
+      assertThat(result.isAccepted()).isTrue();
+      assertThat(result.getRooms()).isEqualTo(rooms.getRoomCount());
+      assertThat(result.getOpenRatio()).isEqualTo((double)open / (59 * 39));
+      assertThat(result.getLargestRoomShare()).isEqualTo((double)rooms.getArea(rooms.getRoomsBySize()[0]) / open);
+    }
+  }
+
+  @Test
+  void failedFilterSkipsRemainingStages() {
+    BatchCaveGenerator.Result result = builder().withOpenRatio(0, 0.01).build().generate(1);
+
+    assertThat(result.getRejectedBy()).isEqualTo(BatchCaveGenerator.Filter.OPEN_RATIO);
+    assertThat(result.getRooms()).isEqualTo(-1);
+    assertThat(result.toCsv()).endsWith(",,,open_ratio");
+
+    result = builder().withRoomCount(0, 0).build().generate(1);
+    assertThat(result.getRejectedBy()).isEqualTo(BatchCaveGenerator.Filter.ROOM_COUNT);
+    assertThat(result.getRooms()).isGreaterThan(0);
+  }
+
+  @Test
+  void parallelRunWritesRowsInSeedOrder() throws Exception {
+    StringBuilder serial = new StringBuilder();
+    StringBuilder parallel = new StringBuilder();
+    BatchCaveGenerator.Summary summary = builder().withSeeds(10, 20).withThreads(1).build().run(serial);
+    builder().withSeeds(10, 20).withThreads(4).build().run(parallel);
+
+    assertThat(parallel.toString()).isEqualTo(serial.toString());
+    assertThat(serial.toString()).startsWith(BatchCaveGenerator.CSV_HEADER + "\n10,");
+    assertThat(summary.getMaps()).isEqualTo(20);
+    assertThat(summary.getAccepted()).isEqualTo(20);
+  }
+
+  private BatchCaveGenerator.Builder builder() {
+    return BatchCaveGenerator.Builder.create()
+        .withSize(60, 40)
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 5);
+  }
+}
@@ -0,0 +1,330 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+
+class CaveGeneratorTest {
+
+  @BeforeEach
+  void setUp() {
+    Gdx.app = mock(Application.class);
+  }
+
+  @Test
+  void bitPackedLatticeProducesSameMap() {
+    int[][] sizes = { { 10, 10 }, { 62, 40 }, { 63, 63 }, { 64, 17 }, { 130, 70 } };
+    for (int[] size : sizes) {
+      for (long seed = 0; seed < 5; seed++) {
+        boolean[][] expected = iterate(builder(size[0], size[1], seed));
+        boolean[][] actual = iterate(builder(size[0], size[1], seed).withBitPackedLattice(true));
+        assertThat(actual)
+            .as("%dx%d with seed %d", size[0], size[1], seed)
+            .isEqualTo(expected);
+      }
+    }
+  }
+
+  @Test
+  void parallelStepProducesSameMap() {
+    int[][] sizes = { { 10, 10 }, { 63, 63 }, { 130, 70 } };
+    for (int[] size : sizes) {
+      for (long seed = 0; seed < 3; seed++) {
+        boolean[][] expected = iterate(builder(size[0], size[1], seed));
+        for (int parallelism : new int[] { 2, 3, 8 }) {
+          assertThat(iterate(builder(size[0], size[1], seed).withParallelism(parallelism)))
+              .as("%dx%d with seed %d and %d threads", size[0], size[1], seed, parallelism)
+              .isEqualTo(expected);
+          assertThat(iterate(builder(size[0], size[1], seed).withParallelism(parallelism).withBitPackedLattice(true)))
+              .as("bit-packed %dx%d with seed %d and %d threads", size[0], size[1], seed, parallelism)
+              .isEqualTo(expected);
+        }
+      }
+    }
+  }
+
+  @Test
+  void corridorsConnectAllRooms() {
+    for (long seed = 0; seed < 10; seed++) {
+      CaveGenerator cave = builder(80, 60, seed)
+          .withRoomConnection(CaveGenerator.RoomConnection.CORRIDORS)
+          .build();
+      cave.initialize();
+      cave.iterate();
+      cave.fixRooms();
+
+      assertThat(LatticeFns.getRoomLabels(cave.getMap(), LatticeFns.EMPTY).getRoomCount())
+          .as("rooms with seed %d", seed)
+          .isLessThanOrEqualTo(1);
+      for (int x = 0; x < 81; x++) {
+        assertThat(cave.getMap()[0][x]).isEqualTo(LatticeFns.FILLED);
+        assertThat(cave.getMap()[60][x]).isEqualTo(LatticeFns.FILLED);
+      }
+    }
+  }
+
+  @Test
+  void corridorsAreDeterministic() {
+    CaveGenerator first = builder(100, 100, 3).withRoomConnection(CaveGenerator.RoomConnection.CORRIDORS).build();
+    CaveGenerator second = builder(100, 100, 3).withRoomConnection(CaveGenerator.RoomConnection.CORRIDORS).build();
+    first.initialize();
+    first.iterate();
+    first.fixRooms();
+    second.initialize();
+    second.iterate();
+    second.fixRooms();
+
+    assertThat(second.getMap()).isEqualTo(first.getMap());
+  }
+
+  @Test
+  void counterFillDependsOnlyOnThePosition() {
+    CaveGenerator cave = builder(90, 50, 9).withRandomMode(CaveGenerator.RandomMode.COUNTER).build();
+    cave.initialize();
+    boolean[][] expected = cave.getMap();
+    for (int y = 1; y < 50; y++) {
+      for (int x = 1; x < 90; x++) {
+        assertThat(expected[y][x]).isEqualTo(CounterRandom.uniform(9, x, y, CounterRandom.FILL) < 0.4);
+      }
+    }
+
+    for (int parallelism : new int[] { 1, 3 }) {
+      for (boolean bitPacked : new boolean[] { false, true }) {
+        CaveGenerator other = builder(90, 50, 9)
+            .withRandomMode(CaveGenerator.RandomMode.COUNTER)
+            .withParallelism(parallelism)
+            .withBitPackedLattice(bitPacked)
+            .build();
+        try {
+          other.initialize();
+          assertThat(other.getMap())
+              .as("%d threads, bit-packed %b", parallelism, bitPacked)
+              .isEqualTo(expected);
+        }
+        finally {
+          other.dispose();
+        }
+      }
+    }
+  }
+
+  @Test
+  void counterWalkIsReproducible() {
+    for (long seed = 0; seed < 5; seed++) {
+      CaveGenerator first = builder(80, 60, seed).withRandomMode(CaveGenerator.RandomMode.COUNTER).build();
+      CaveGenerator second = builder(80, 60, seed)
+          .withRandomMode(CaveGenerator.RandomMode.COUNTER)
+          .withBitPackedLattice(true)
+          .withParallelism(2)
+          .build();
+
+      try {
+        assertThat(second.generateMap()).as("seed %d", seed).isEqualTo(first.generateMap());
+      }
+      finally {
+        second.dispose();
+      }
+    }
+  }
+
+  @Test
+  void asyncGenerationPublishesCave() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      List<Integer> rounds = new ArrayList<>();
+      CaveGenerator cave = builder(60, 40, 5)
+          .withTileSet(mock(TextureAtlas.class))
+          .withProgressListener((round, total) -> {
+            assertThat(total).isEqualTo(9);
+            rounds.add(round);
+          })
+          .build();
+      CaveHandoff handoff = new CaveHandoff();
+      GeneratedCave generated = cave.generateAsync(executor, handoff).get(10, TimeUnit.SECONDS);
+
+      assertThat(rounds).containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9);
+      assertThat(handoff.poll()).isSameAs(generated);
+      assertThat(handoff.poll()).isNull();
+      assertThat(generated.getTiledMap().getLayers().getCount()).isEqualTo(1);
+
+      CaveGenerator expected = builder(60, 40, 5).withTileSet(mock(TextureAtlas.class)).build();
+      expected.generate();
+      assertThat(generated.getMap()).isEqualTo(expected.getMap());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void setCornerLeavesTheLayerOfAnEarlierMapAlone() {
+    CaveGenerator cave = builder(40, 30, 2).withTileSet(mock(TextureAtlas.class)).build();
+    TiledMapTileLayer layer = (TiledMapTileLayer)cave.generate().getLayers().get(0);
+    int layerHeight = layer.getHeight();
+    TiledMapTileLayer.Cell[] before = new TiledMapTileLayer.Cell[4];
+    for (int i = 0; i < 4; i++) {
+      before[i] = layer.getCell(9 + i % 2, layerHeight - 1 - (9 + i / 2));
+    }
+
+    boolean[][] map = cave.generateMap();
+    cave.setCorner(10, 10, !map[10][10]);
+
+    for (int i = 0; i < 4; i++) {
+      assertThat(layer.getCell(9 + i % 2, layerHeight - 1 - (9 + i / 2))).isSameAs(before[i]);
+    }
+  }
+
+  @Test
+  void asyncGenerationCanBeCancelled() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      CountDownLatch started = new CountDownLatch(1);
+      CountDownLatch blocked = new CountDownLatch(1);
+      CaveGenerator cave = builder(60, 40, 5)
+          .withTileSet(mock(TextureAtlas.class))
+          .withProgressListener((round, total) -> {
+            started.countDown();
+            try {
+              blocked.await();
+            }
+            catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          })
+          .build();
+      CaveHandoff handoff = new CaveHandoff();
+      Future<GeneratedCave> future = cave.generateAsync(executor, handoff);
+      started.await(10, TimeUnit.SECONDS);
+      future.cancel(true);
+      executor.shutdown();
+      assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+      assertThatThrownBy(future::get).isInstanceOf(CancellationException.class);
+      assertThat(handoff.poll()).isNull();
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void activeRegionsMatchFullSteps() {
+    AutomatonRule rule = AutomatonRule.birthSurvive(AutomatonRule.Shape.VON_NEUMANN, 2, new int[] { 6, 7, 8 },
+        new int[] { 4, 5, 6, 7, 8, 9 });
+    for (boolean bitPacked : new boolean[] { false, true }) {
+      for (int parallelism : new int[] { 1, 3 }) {
+        CaveGenerator.Builder builder = builder(150, 90, 4)
+            .addPhase(rule, 6)
+            .addPhase(5, 2, 3)
+            .withBitPackedLattice(bitPacked)
+            .withParallelism(parallelism);
+        CaveGenerator expected = builder(150, 90, 4).addPhase(rule, 6).addPhase(5, 2, 3).build();
+        expected.initialize();
+        List<Integer> expectedChanges = new ArrayList<>();
+        int[][] phases = { { 5, 2, 4 }, { 5, -1, 5 }, { -1, -1, 6 }, { 5, 2, 3 } };
+        for (int[] phase : phases) {
+          for (int round = 0; round < phase[2]; round++) {
+            boolean[][] before = copy(expected.getMap());
+            if (phase[0] < 0) {
+              expected.step(rule);
+            }
+            else {
+              expected.step(phase[0], phase[1]);
+            }
+            int changes = countChanges(before, expected.getMap());
+            expectedChanges.add(changes);
+            if (changes == 0) {
+              break;
+            }
+          }
+        }
+        CaveGenerator actual = builder.build();
+        try {
+          actual.initialize();
+          actual.iterate();
+
+          assertThat(actual.getMap()).as("bitPacked %s, parallelism %d", bitPacked, parallelism)
+              .isEqualTo(expected.getMap());
+          assertThat(actual.getChangedCells()).isEqualTo(expectedChanges.stream().mapToInt(i -> i).toArray());
+        }
+        finally {
+          actual.dispose();
+        }
+      }
+    }
+  }
+
+  @Test
+  void phaseEndsOnceNothingChanges() {
+    List<Integer> progress = new ArrayList<>();
+    CaveGenerator cave = CaveGenerator.Builder.create()
+        .withSize(80, 60)
+        .withRandomSeed(2)
+        .withProgressListener((round, rounds) -> progress.add(round))
+        .addPhase(5, -1, 40)
+        .addPhase(5, 2, 1)
+        .build();
+    cave.initialize();
+    cave.iterate();
+
+    int[] changed = cave.getChangedCells();
+    assertThat(changed.length).isLessThan(41);
+    assertThat(changed[changed.length - 2]).isEqualTo(0);
+    assertThat(progress.get(progress.size() - 2)).isEqualTo(40);
+    assertThat(progress.get(progress.size() - 1)).isEqualTo(41);
+  }
+
+  private static boolean[][] copy(boolean[][] map) {
+    boolean[][] ret = new boolean[map.length][];
+    for (int y = 0; y < map.length; y++) {
+      ret[y] = map[y].clone();
+    }
+    return ret;
+  }
+
+  private static int countChanges(boolean[][] before, boolean[][] after) {
+    int ret = 0;
+    for (int y = 0; y < before.length; y++) {
+      for (int x = 0; x < before[y].length; x++) {
+        ret += before[y][x] != after[y][x] ? 1 : 0;
+      }
+    }
+    return ret;
+  }
+
+  private CaveGenerator.Builder builder(int width, int height, long seed) {
+    return CaveGenerator.Builder.create()
+        .withSize(width, height)
+        .withRandomSeed(seed)
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 5);
+  }
+
+  private boolean[][] iterate(CaveGenerator.Builder builder) {
+    CaveGenerator cave = builder.build();
+    try {
+      cave.initialize();
+      cave.iterate();
+      return cave.getMap();
+    }
+    finally {
+      cave.dispose();
+    }
+  }
+}
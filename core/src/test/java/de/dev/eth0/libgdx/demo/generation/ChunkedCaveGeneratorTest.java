@@ -0,0 +1,63 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class ChunkedCaveGeneratorTest {
+
+  private static final int CHUNK_SIZE = 20;
+
+  @Test
+  void chunksFitTogetherWithoutSeams() {
+    ChunkedCaveGenerator underTest = builder().build();
+    BitLattice region = underTest.generateRegion(-CHUNK_SIZE, -CHUNK_SIZE, 3 * CHUNK_SIZE, 3 * CHUNK_SIZE);
+
+    for (int chunkY = -1; chunkY <= 1; chunkY++) {
+      for (int chunkX = -1; chunkX <= 1; chunkX++) {
+        BitLattice chunk = underTest.getChunk(chunkX, chunkY);
+        for (int y = 0; y < CHUNK_SIZE; y++) {
+          for (int x = 0; x < CHUNK_SIZE; x++) {
+            assertThat(chunk.get(x, y))
+                .as("chunk %d,%d at %d,%d", chunkX, chunkY, x, y)
+                .isEqualTo(region.get((chunkX + 1) * CHUNK_SIZE + x, (chunkY + 1) * CHUNK_SIZE + y));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void chunksDontDependOnGenerationOrder() {
+    ChunkedCaveGenerator first = builder().build();
+    ChunkedCaveGenerator second = builder().build();
+    first.getChunk(0, 0);
+    first.getChunk(1, 0);
+    second.getChunk(1, 0);
+    second.getChunk(0, 0);
+
+    assertThat(second.getChunk(0, 0).getWords()).isEqualTo(first.getChunk(0, 0).getWords());
+    assertThat(second.getChunk(1, 0).getWords()).isEqualTo(first.getChunk(1, 0).getWords());
+  }
+
+  @Test
+  void cacheEvictsLeastRecentlyUsedChunk() {
+    ChunkedCaveGenerator underTest = builder().withCacheSize(2).build();
+    underTest.getChunk(0, 0);
+    underTest.getChunk(1, 0);
+    underTest.getChunk(0, 0);
+    underTest.getChunk(2, 0);
+
+    assertThat(underTest.isCached(0, 0)).isTrue();
+    assertThat(underTest.isCached(1, 0)).isFalse();
+    assertThat(underTest.isCached(2, 0)).isTrue();
+  }
+
+  private ChunkedCaveGenerator.Builder builder() {
+    return ChunkedCaveGenerator.Builder.create()
+        .withChunkSize(CHUNK_SIZE)
+        .withRandomSeed(11)
+        .addPhase(5, 2, 2)
+        .addPhase(5, -1, 1);
+  }
+}
@@ -0,0 +1,87 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ContourExtractorTest {
+
+  @Test
+  void outlinesSingleWall() {
+    boolean[][] map = new boolean[5][5];
+    map[2][2] = LatticeFns.FILLED;
+    ContourExtractor underTest = ContourExtractor.Builder.create().withTolerance(0f).withTileSize(2f).build();
+
+    List<float[]> chains = underTest.extract(map);
+
+    assertThat(chains).hasSize(2);
+    // the outline along the border of the map around the empty space, then the wall in the middle
+    assertThat(area(chains.get(0))).isEqualTo(4f * 24.5f);
+    assertThat(chains.get(1)).isEqualTo(new float[] { 3f, 4f, 4f, 5f, 5f, 4f, 4f, 3f });
+    assertThat(area(chains.get(1))).isEqualTo(-2f);
+  }
+
+  @Test
+  void outlinesEncloseEmptyTiles() {
+    boolean[][] map = TestCaves.generate(120, 80, 3);
+    ContourExtractor exact = ContourExtractor.Builder.create().withTolerance(0f).build();
+    ContourExtractor simplified = ContourExtractor.Builder.create().withTolerance(1f).build();
+
+    List<float[]> chains = exact.extract(map);
+    List<float[]> simplifiedChains = simplified.extract(map);
+
+    float expected = emptyArea(map);
+    assertThat(totalArea(chains)).isEqualTo(expected);
+    assertThat(simplifiedChains).hasSize(chains.size());
+    assertThat(Math.abs(totalArea(simplifiedChains) - expected)).isLessThan(expected * 0.05f);
+    assertThat(points(simplifiedChains)).isLessThan(points(chains) / 2);
+    for (float[] chain : simplifiedChains) {
+      assertThat(chain.length).isGreaterThanOrEqualTo(6);
+    }
+    // the buffers are reused
+    assertThat(totalArea(exact.extract(map))).isEqualTo(expected);
+  }
+
+  /**
+   * @return the area of the empty part of all tiles, an empty corner covers an eighth of the tile and two diagonal
+   * empty corners are separated.
+   */
+  private static float emptyArea(boolean[][] map) {
+    float[] areas = new float[] { 0f, 1f / 8, 1f / 8, 1f / 2, 1f / 8, 1f / 4, 1f / 2, 7f / 8, 1f / 8, 1f / 2, 1f / 4,
+        7f / 8, 1f / 2, 7f / 8, 7f / 8, 1f };
+    float ret = 0f;
+    for (byte index : MarchingSquaresSelector.getIndices(map)) {
+      ret += areas[index];
+    }
+    return ret;
+  }
+
+  private static float totalArea(List<float[]> chains) {
+    float ret = 0f;
+    for (float[] chain : chains) {
+      ret += area(chain);
+    }
+    return ret;
+  }
+
+  /**
+   * @return the signed area of the closed chain, positive if counterclockwise.
+   */
+  private static float area(float[] chain) {
+    float ret = 0f;
+    for (int i = 0; i < chain.length; i += 2) {
+      int j = (i + 2) % chain.length;
+      ret += chain[i] * chain[j + 1] - chain[j] * chain[i + 1];
+    }
+    return ret / 2f;
+  }
+
+  private static int points(List<float[]> chains) {
+    int ret = 0;
+    for (float[] chain : chains) {
+      ret += chain.length / 2;
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,29 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class CorridorCarverTest {
+
+  @Test
+  void connectsRoomsOnTheBorder() {
+    boolean[][] map = new boolean[5][7];
+    for (boolean[] row : map) {
+      Arrays.fill(row, LatticeFns.FILLED);
+    }
+    map[0][1] = LatticeFns.EMPTY;
+    map[0][2] = LatticeFns.EMPTY;
+    map[4][5] = LatticeFns.EMPTY;
+
+    int carved = CorridorCarver.connect(map, LatticeFns.getRoomLabels(map, LatticeFns.EMPTY));
+
+    assertThat(carved).isGreaterThan(0);
+    assertThat(LatticeFns.getRoomLabels(map, LatticeFns.EMPTY).getRoomCount()).isEqualTo(1);
+    for (int x = 0; x < 7; x++) {
+      assertThat(map[0][x]).isEqualTo(x != 1 && x != 2);
+      assertThat(map[4][x]).isEqualTo(x != 5);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DistanceFieldTest {
+
+  @Test
+  void euclideanMatchesBruteForce() {
+    Random random = new Random(3);
+    int[][] sizes = { { 1, 1 }, { 7, 5 }, { 40, 23 }, { 64, 64 } };
+    for (int[] size : sizes) {
+      for (double density : new double[] { 0.0, 0.01, 0.3 }) {
+        boolean[][] map = randomMap(random, size[0], size[1], density);
+        int[] expected = bruteForce(map);
+        for (int parallelism : new int[] { 1, 3 }) {
+          DistanceField underTest = new DistanceField(size[0], size[1], parallelism);
+          int[] squared = underTest.squaredEuclidean(map, LatticeFns.FILLED, null);
+          float[] distances = underTest.euclidean(map, LatticeFns.FILLED, new float[size[0] * size[1]]);
+
+          assertThat(squared).as("%dx%d with density %s", size[0], size[1], density).isEqualTo(expected);
+          for (int i = 0; i < expected.length; i++) {
+            float distance = expected[i] == DistanceField.UNREACHABLE ? Float.POSITIVE_INFINITY
+                : (float)Math.sqrt(expected[i]);
+            assertThat(distances[i]).isEqualTo(distance);
+          }
+          underTest.dispose();
+        }
+      }
+    }
+  }
+
+  @Test
+  void chamferStaysCloseToEuclidean() {
+    boolean[][] map = randomMap(new Random(8), 50, 30, 0.05);
+    int[] expected = bruteForce(map);
+    int[] actual = new DistanceField(50, 30).chamfer(map, LatticeFns.FILLED, null);
+
+    for (int i = 0; i < expected.length; i++) {
+      double euclidean = Math.sqrt(expected[i]);
+      assertThat(actual[i] / 3.0).isBetween(euclidean * 0.92 - 1e-9, euclidean * 1.09 + 1e-9);
+    }
+  }
+
+  @Test
+  void breadthFirstWalksAroundWalls() {
+    boolean[][] map = new boolean[5][7];
+    for (int y = 0; y < 4; y++) {
+      map[y][3] = LatticeFns.FILLED;
+    }
+    map[2][6] = LatticeFns.FILLED;
+    int[] actual = LatticeFns.getPathDistances(map, new Point(0, 0), new Point(6, 0));
+
+    // left of the wall from (0, 0), right of it from (6, 0)
+    assertThat(actual[2 * 7 + 2]).isEqualTo(4);
+    assertThat(actual[3 * 7 + 5]).isEqualTo(4);
+    // below the wall, reached from both sides
+    assertThat(actual[4 * 7 + 3]).isEqualTo(7);
+    assertThat(actual[3]).isEqualTo(DistanceField.UNREACHABLE);
+    // behind the wall cell at (6, 2) the path goes around it
+    assertThat(actual[3 * 7 + 6]).isEqualTo(5);
+  }
+
+  private static int[] bruteForce(boolean[][] map) {
+    int height = map.length;
+    int width = map[0].length;
+    int[] ret = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int best = DistanceField.UNREACHABLE;
+        for (int v = 0; v < height; v++) {
+          for (int u = 0; u < width; u++) {
+            if (map[v][u]) {
+              best = Math.min(best, (u - x) * (u - x) + (v - y) * (v - y));
+            }
+          }
+        }
+        ret[y * width + x] = best;
+      }
+    }
+    return ret;
+  }
+
+  private static boolean[][] randomMap(Random random, int width, int height, double density) {
+    boolean[][] ret = new boolean[height][width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        ret[y][x] = random.nextDouble() < density;
+      }
+    }
+    return ret;
+  }
+}
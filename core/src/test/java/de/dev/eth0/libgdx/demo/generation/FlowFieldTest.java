@@ -0,0 +1,118 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FlowFieldTest {
+
+  private boolean[][] map;
+  private int goalX;
+  private int goalY;
+
+  @BeforeEach
+  void setUp() {
+    map = TestCaves.generate(90, 60, 12);
+    RoomLabels rooms = LatticeFns.getRoomLabels(map, LatticeFns.EMPTY);
+    int largest = rooms.getRoomsBySize()[0];
+    goalX = rooms.getRepresentativeX(largest);
+    goalY = rooms.getRepresentativeY(largest);
+  }
+
+  @Test
+  void fieldFollowsShortestPaths() {
+    int width = map[0].length;
+    GridPathfinder pathfinder = new GridPathfinder(map);
+    FlowField underTest = new FlowField(map, goalX, goalY);
+    int[] path = new int[width * map.length];
+
+    int reachable = 0;
+    for (int y = 0; y < map.length; y++) {
+      for (int x = 0; x < width; x++) {
+        int length = pathfinder.findPath(GridPathfinder.Algorithm.A_STAR, x, y, goalX, goalY, path);
+        if (length < 0) {
+          assertThat(underTest.getDistance(x, y)).isEqualTo(DistanceField.UNREACHABLE);
+          assertThat(underTest.getNext(y * width + x)).isEqualTo(-1);
+          continue;
+        }
+        reachable++;
+        assertThat(underTest.getDistance(x, y)).as("%d, %d", x, y).isEqualTo(pathfinder.getLastCost());
+      }
+    }
+    assertThat(reachable).isGreaterThan(1000);
+    assertDescending(map, underTest);
+  }
+
+  @Test
+  void updatesMatchRebuiltField() {
+    int width = map[0].length;
+    FlowField underTest = new FlowField(map, goalX, goalY);
+    Random random = new Random(8);
+
+    for (int change = 0; change < 300; change++) {
+      int x = 1 + random.nextInt(width - 2);
+      int y = 1 + random.nextInt(map.length - 2);
+      if (change == 100 || change == 101) {
+        x = goalX;
+        y = goalY;
+      }
+      map[y][x] = !map[y][x];
+      underTest.cellChanged(x, y);
+
+      FlowField expected = new FlowField(map, goalX, goalY);
+      for (int cy = 0; cy < map.length; cy++) {
+        for (int cx = 0; cx < width; cx++) {
+          assertThat(underTest.getDistance(cx, cy)).as("change %d at %d, %d", change, cx, cy)
+              .isEqualTo(expected.getDistance(cx, cy));
+        }
+      }
+      assertDescending(map, underTest);
+    }
+  }
+
+  @Test
+  void cacheKeepsRecentlyUsedFields() {
+    FlowFieldCache underTest = new FlowFieldCache(map, 2);
+
+    FlowField first = underTest.getField(goalX, goalY);
+    underTest.getField(20, 20);
+    assertThat(underTest.getField(goalX, goalY)).isSameAs(first);
+    underTest.getField(60, 40);
+
+    assertThat(underTest.isCached(goalX, goalY)).isTrue();
+    assertThat(underTest.isCached(20, 20)).isFalse();
+    assertThat(underTest.isCached(60, 40)).isTrue();
+
+    map[goalY + 1][goalX] = !map[goalY + 1][goalX];
+    underTest.cellChanged(goalX, goalY + 1);
+    FlowField expected = new FlowField(map, goalX, goalY);
+    assertThat(first.getDistance(goalX, goalY + 2)).isEqualTo(expected.getDistance(goalX, goalY + 2));
+  }
+
+  /**
+   * Checks that every step of the field is an allowed move which lowers the distance by its cost.
+   */
+  private static void assertDescending(boolean[][] map, FlowField field) {
+    int width = map[0].length;
+    for (int y = 0; y < map.length; y++) {
+      for (int x = 0; x < width; x++) {
+        int cell = y * width + x;
+        int next = field.getNext(cell);
+        if (next < 0 || next == cell) {
+          continue;
+        }
+        int nx = next % width;
+        int ny = next / width;
+        assertThat(map[ny][nx]).isFalse();
+        int cost = GridPathfinder.ORTHOGONAL_COST;
+        if (nx != x && ny != y) {
+          assertThat(map[y][nx] || map[ny][x]).isFalse();
+          cost = GridPathfinder.DIAGONAL_COST;
+        }
+        assertThat(field.getDistance(nx, ny) + cost).isEqualTo(field.getDistance(x, y));
+      }
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+
+class GenerationMetricsTest {
+
+  @BeforeEach
+  void setUp() {
+    Gdx.app = mock(Application.class);
+  }
+
+  @Test
+  void listenerReceivesStagesRoundsAndRooms() {
+    for (boolean bitPacked : new boolean[] { false, true }) {
+      List<GenerationListener.Stage> stages = new ArrayList<>();
+      List<Integer> changedCells = new ArrayList<>();
+      List<Integer> rooms = new ArrayList<>();
+      CaveGenerator cave = builder(bitPacked)
+          .withGenerationListener(new GenerationListener() {
+            @Override
+            public void onStage(Stage stage, long nanos, long allocatedBytes) {
+              assertThat(nanos).isGreaterThan(0);
+              stages.add(stage);
+            }
+
+            @Override
+            public void onRound(int phase, int round, int changed, long nanos) {
+              assertThat(phase).isEqualTo(changedCells.size() < 4 ? 0 : 1);
+              changedCells.add(changed);
+            }
+
+            @Override
+            public void onRooms(int count) {
+              rooms.add(count);
+            }
+          })
+          .build();
+      cave.generate();
+
+      assertThat(stages).containsExactly(GenerationListener.Stage.INITIALIZE, GenerationListener.Stage.ITERATE,
+          GenerationListener.Stage.FIX_ROOMS, GenerationListener.Stage.CREATE_TILED_MAP);
+
+      // replay the rounds and count the changes
+      CaveGenerator expected = builder(false).build();
+      expected.initialize();
+      List<Integer> expectedChanges = new ArrayList<>();
+      int[][] rounds = { { 5, 2, 4 }, { 5, -1, 5 } };
+      for (int[] phase : rounds) {
+        for (int round = 0; round < phase[2]; round++) {
+          boolean[][] before = copy(expected.getMap());
+          expected.step(phase[0], phase[1]);
+          expectedChanges.add(countChanges(before, expected.getMap()));
+        }
+      }
+      assertThat(changedCells).isEqualTo(expectedChanges);
+      assertThat(rooms).containsExactly(LatticeFns.getRoomLabels(expected.getMap(), LatticeFns.EMPTY).getRoomCount());
+    }
+  }
+
+  @Test
+  void stagesAreRecordedAsFlightRecorderEvents() throws Exception {
+    Path file = Files.createTempFile("generation", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("de.dev.eth0.libgdx.demo.generation.Stage");
+      recording.enable("de.dev.eth0.libgdx.demo.generation.Round");
+      recording.start();
+      builder(true).build().generate();
+      recording.stop();
+      recording.dump(file);
+
+      List<String> stages = new ArrayList<>();
+      int rounds = 0;
+      for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+        String name = event.getEventType().getName();
+        if (name.equals("de.dev.eth0.libgdx.demo.generation.Stage")) {
+          stages.add(event.getString("stage"));
+          assertThat(event.getInt("width")).isEqualTo(41);
+        }
+        else if (name.equals("de.dev.eth0.libgdx.demo.generation.Round")) {
+          rounds++;
+        }
+      }
+      assertThat(stages).containsExactly("INITIALIZE", "ITERATE", "FIX_ROOMS", "CREATE_TILED_MAP");
+      assertThat(rounds).isEqualTo(9);
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  private CaveGenerator.Builder builder(boolean bitPacked) {
+    return CaveGenerator.Builder.create()
+        .withSize(40, 30)
+        .withRandomSeed(3)
+        .withBitPackedLattice(bitPacked)
+        .withTileSet(mock(TextureAtlas.class))
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 5);
+  }
+
+  private static boolean[][] copy(boolean[][] map) {
+    boolean[][] ret = new boolean[map.length][];
+    for (int y = 0; y < map.length; y++) {
+      ret[y] = map[y].clone();
+    }
+    return ret;
+  }
+
+  private static int countChanges(boolean[][] before, boolean[][] after) {
+    int ret = 0;
+    for (int y = 0; y < before.length; y++) {
+      for (int x = 0; x < before[y].length; x++) {
+        if (before[y][x] != after[y][x]) {
+          ret++;
+        }
+      }
+    }
+    return ret;
+  }
+}
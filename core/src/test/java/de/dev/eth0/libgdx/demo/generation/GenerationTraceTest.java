@@ -0,0 +1,114 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+
+class GenerationTraceTest {
+
+  @BeforeEach
+  void setUp() {
+    Gdx.app = mock(Application.class);
+  }
+
+  @Test
+  void rebuildsEveryRound() {
+    List<boolean[][]> expected = expectedRounds();
+    for (boolean bitPacked : new boolean[] { false, true }) {
+      GenerationTrace underTest = GenerationTrace.ringBuffer(100);
+      builder().withBitPackedLattice(bitPacked).withTrace(underTest).build().generate();
+
+      assertThat(underTest.getFirstRound()).isEqualTo(0);
+      assertThat(underTest.getLastRound()).isEqualTo(expected.size() - 1);
+      for (int round = 0; round < expected.size(); round++) {
+        assertThat(underTest.getRound(round).toMap()).as("round %d", round).isEqualTo(expected.get(round));
+      }
+    }
+  }
+
+  @Test
+  void ringBufferKeepsLatestRounds() {
+    List<boolean[][]> expected = expectedRounds();
+    GenerationTrace underTest = GenerationTrace.ringBuffer(3);
+    builder().withBitPackedLattice(true).withTrace(underTest).build().generate();
+
+    int last = expected.size() - 1;
+    assertThat(underTest.getFirstRound()).isEqualTo(last - 3);
+    for (int round = last - 3; round <= last; round++) {
+      assertThat(underTest.getRound(round).toMap()).as("round %d", round).isEqualTo(expected.get(round));
+      assertThat(underTest.getChangedCells(round)).as("round %d", round)
+          .isEqualTo(count(expected.get(round - 1), expected.get(round)));
+    }
+  }
+
+  @Test
+  void fileCanBeOpenedAgain() throws Exception {
+    List<boolean[][]> expected = expectedRounds();
+    Path file = Files.createTempFile("generation", ".trace");
+    try {
+      try (GenerationTrace trace = GenerationTrace.file(file)) {
+        builder().withBitPackedLattice(true).withTrace(trace).build().generate();
+      }
+      GenerationTrace underTest = GenerationTrace.open(file);
+
+      assertThat(underTest.getLastRound()).isEqualTo(expected.size() - 1);
+      for (int round = 0; round < expected.size(); round++) {
+        assertThat(underTest.getRound(round).toMap()).as("round %d", round).isEqualTo(expected.get(round));
+      }
+      assertThat(underTest.getChangedCells(1)).isEqualTo(count(expected.get(0), expected.get(1)));
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * The initial map, the map after every round and the map after connecting the rooms.
+   */
+  private List<boolean[][]> expectedRounds() {
+    List<boolean[][]> ret = new ArrayList<>();
+    CaveGenerator cave = builder().withBitPackedLattice(true).build();
+    cave.initialize();
+    ret.add(cave.getMap());
+    int[][] phases = { { 5, 2, 4 }, { 5, -1, 5 } };
+    for (int[] phase : phases) {
+      for (int round = 0; round < phase[2]; round++) {
+        cave.step(phase[0], phase[1]);
+        ret.add(cave.getMap());
+      }
+    }
+    cave.fixRooms();
+    ret.add(cave.getMap());
+    return ret;
+  }
+
+  private CaveGenerator.Builder builder() {
+    return CaveGenerator.Builder.create()
+        .withSize(70, 30)
+        .withRandomSeed(11)
+        .withTileSet(mock(TextureAtlas.class))
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 5);
+  }
+
+  private static int count(boolean[][] before, boolean[][] after) {
+    int ret = 0;
+    for (int y = 0; y < before.length; y++) {
+      for (int x = 0; x < before[y].length; x++) {
+        if (before[y][x] != after[y][x]) {
+          ret++;
+        }
+      }
+    }
+    return ret;
+  }
+}
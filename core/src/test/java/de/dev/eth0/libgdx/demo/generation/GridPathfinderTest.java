@@ -0,0 +1,138 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class GridPathfinderTest {
+
+  @Test
+  void pathsAreShortest() {
+    boolean[][] map = TestCaves.generate(90, 60, 12);
+    int width = map[0].length;
+    GridPathfinder underTest = new GridPathfinder(map);
+    int[] path = new int[width * map.length];
+    Random random = new Random(4);
+    int found = 0;
+    for (int query = 0; query < 200; query++) {
+      int start = randomEmptyCell(map, random);
+      int goal = randomEmptyCell(map, random);
+      int[] expected = dijkstra(map, start);
+      for (GridPathfinder.Algorithm algorithm : GridPathfinder.Algorithm.values()) {
+        int length = underTest.findPath(algorithm, start % width, start / width, goal % width, goal / width, path);
+
+        if (expected[goal] == Integer.MAX_VALUE) {
+          assertThat(length).isEqualTo(-1);
+          assertThat(underTest.getLastCost()).isEqualTo(-1);
+          continue;
+        }
+        found++;
+        assertThat(underTest.getLastCost()).as("%s from %d to %d", algorithm, start, goal).isEqualTo(expected[goal]);
+        assertThat(path[0]).isEqualTo(start);
+        assertThat(path[length - 1]).isEqualTo(goal);
+        assertThat(cost(map, path, length)).isEqualTo(expected[goal]);
+      }
+    }
+    assertThat(found).isGreaterThan(100);
+  }
+
+  @Test
+  void shortBufferReceivesBeginningOfPath() {
+    boolean[][] map = new boolean[3][12];
+    GridPathfinder underTest = new GridPathfinder(map);
+    int[] path = new int[4];
+
+    int length = underTest.findPath(GridPathfinder.Algorithm.JUMP_POINT, 0, 1, 11, 1, path);
+
+    assertThat(length).isEqualTo(12);
+    assertThat(underTest.getLastCost()).isEqualTo(11 * GridPathfinder.ORTHOGONAL_COST);
+    assertThat(path).isEqualTo(new int[] { 12, 13, 14, 15 });
+  }
+
+  @Test
+  void wallsBlockPaths() {
+    boolean[][] map = new boolean[5][5];
+    for (int y = 0; y < 5; y++) {
+      map[y][2] = LatticeFns.FILLED;
+    }
+    GridPathfinder underTest = new GridPathfinder(map);
+
+    for (GridPathfinder.Algorithm algorithm : GridPathfinder.Algorithm.values()) {
+      assertThat(underTest.findPath(algorithm, 0, 0, 4, 4, new int[25])).isEqualTo(-1);
+      assertThat(underTest.findPath(algorithm, 2, 0, 0, 0, new int[25])).isEqualTo(-1);
+      assertThat(underTest.findPath(algorithm, 1, 1, 1, 1, new int[25])).isEqualTo(1);
+    }
+  }
+
+  private static int randomEmptyCell(boolean[][] map, Random random) {
+    while (true) {
+      int x = random.nextInt(map[0].length);
+      int y = random.nextInt(map.length);
+      if (!map[y][x]) {
+        return y * map[0].length + x;
+      }
+    }
+  }
+
+  /**
+   * @return the cost of the path, checking that every move is allowed.
+   */
+  private static int cost(boolean[][] map, int[] path, int length) {
+    int width = map[0].length;
+    int ret = 0;
+    for (int i = 1; i < length; i++) {
+      int dx = path[i] % width - path[i - 1] % width;
+      int dy = path[i] / width - path[i - 1] / width;
+      assertThat(Math.max(Math.abs(dx), Math.abs(dy))).isEqualTo(1);
+      assertThat(map[path[i] / width][path[i] % width]).isFalse();
+      if (dx != 0 && dy != 0) {
+        assertThat(map[path[i - 1] / width][path[i] % width] || map[path[i] / width][path[i - 1] % width]).isFalse();
+        ret += GridPathfinder.DIAGONAL_COST;
+      }
+      else {
+        ret += GridPathfinder.ORTHOGONAL_COST;
+      }
+    }
+    return ret;
+  }
+
+  private static int[] dijkstra(boolean[][] map, int start) {
+    int width = map[0].length;
+    int height = map.length;
+    int[] ret = new int[width * height];
+    Arrays.fill(ret, Integer.MAX_VALUE);
+    ret[start] = 0;
+    PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> Integer.compare(a[0], b[0]));
+    queue.add(new int[] { 0, start });
+    while (!queue.isEmpty()) {
+      int[] entry = queue.poll();
+      int cell = entry[1];
+      if (entry[0] > ret[cell]) {
+        continue;
+      }
+      int x = cell % width;
+      int y = cell / width;
+      for (int dy = -1; dy <= 1; dy++) {
+        for (int dx = -1; dx <= 1; dx++) {
+          int nx = x + dx;
+          int ny = y + dy;
+          if ((dx == 0 && dy == 0) || nx < 0 || ny < 0 || nx >= width || ny >= height || map[ny][nx]) {
+            continue;
+          }
+          if (dx != 0 && dy != 0 && (map[y][nx] || map[ny][x])) {
+            continue;
+          }
+          int g = entry[0] + (dx != 0 && dy != 0 ? GridPathfinder.DIAGONAL_COST : GridPathfinder.ORTHOGONAL_COST);
+          if (g < ret[ny * width + nx]) {
+            ret[ny * width + nx] = g;
+            queue.add(new int[] { g, ny * width + nx });
+          }
+        }
+      }
+    }
+    return ret;
+  }
+}
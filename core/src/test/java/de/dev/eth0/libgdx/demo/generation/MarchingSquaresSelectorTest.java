@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.Random;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -175,6 +176,29 @@ class MarchingSquaresSelectorTest {
     assertRegion(map, 15);
   }
 
+  @Test
+  void bulkIndicesMatchSingleCells() {
+    Random random = new Random(5);
+    boolean[][] map = new boolean[37][131];
+    for (boolean[] row : map) {
+      for (int x = 0; x < row.length; x++) {
+        row[x] = random.nextBoolean();
+      }
+    }
+    MarchingSquaresSelector underTest = new MarchingSquaresSelector(map, textureAtlas);
+    byte[] indices = MarchingSquaresSelector.getIndices(map);
+    byte[] latticeIndices = MarchingSquaresSelector.getIndices(BitLattice.fromMap(map));
+
+    assertThat(latticeIndices).isEqualTo(indices);
+    for (int y = 0; y < map.length - 1; y++) {
+      for (int x = 0; x < map[y].length - 1; x++) {
+        assertThat(underTest.getTextureRegion(x, y))
+            .as("cell %d,%d", x, y)
+            .isEqualTo(mockRegions[indices[y * (map[y].length - 1) + x]]);
+      }
+    }
+  }
+
   private void assertRegion(boolean[][] map, int region) {
     assertRegion(map, region, 0, 0);
   }
@@ -0,0 +1,86 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class NeighborCounterTest {
+
+  @Test
+  void radiusOneMatchesNeighborCount() {
+    boolean[][] map = randomMap(23, 17, 1);
+    NeighborCounter underTest = new NeighborCounter(1);
+    int[] counts = new int[map[0].length];
+    for (int y = 0; y < map.length; y++) {
+      if (y == 0) {
+        underTest.countRow(map, y, counts);
+      }
+      else {
+        underTest.countNextRow(counts);
+      }
+      for (int x = 0; x < map[y].length; x++) {
+        assertThat(counts[x])
+            .as("count at %d,%d", x, y)
+            .isEqualTo(LatticeFns.getNeighborCount(map, y, x));
+      }
+    }
+  }
+
+  @Test
+  void slidingWindowMatchesFullScan() {
+    for (int radius = 0; radius <= 4; radius++) {
+      boolean[][] map = randomMap(31, 12, radius);
+      NeighborCounter underTest = new NeighborCounter(radius);
+      int[] counts = new int[map[0].length];
+      // following rows use the running sums, the jumps rebuild them
+      int[] rows = { 0, 1, 2, 3, 7, 8, 9, 10, 11, 4, 5 };
+      for (int i = 0; i < rows.length; i++) {
+        int y = rows[i];
+        if (i > 0 && y == rows[i - 1] + 1) {
+          underTest.countNextRow(counts);
+        }
+        else {
+          underTest.countRow(map, y, counts);
+        }
+        for (int x = 0; x < map[y].length; x++) {
+          assertThat(counts[x])
+              .as("radius %d at %d,%d", radius, x, y)
+              .isEqualTo(underTest.count(map, y, x));
+        }
+      }
+    }
+  }
+
+  @Test
+  void countingRowAgainSeesChangedMap() {
+    boolean[][] map = randomMap(20, 10, 3);
+    NeighborCounter underTest = new NeighborCounter(2);
+    int[] counts = new int[map[0].length];
+    assertThatThrownBy(() -> underTest.countNextRow(counts)).isInstanceOf(IllegalStateException.class);
+    underTest.countRow(map, 3, counts);
+
+    // the same array, changed in place
+    for (boolean[] row : map) {
+      Arrays.fill(row, LatticeFns.FILLED);
+    }
+    underTest.countRow(map, 4, counts);
+
+    for (int x = 0; x < map[4].length; x++) {
+      assertThat(counts[x]).isEqualTo(underTest.count(map, 4, x));
+    }
+  }
+
+  private boolean[][] randomMap(int width, int height, long seed) {
+    Random random = new Random(seed);
+    boolean[][] map = new boolean[height][width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        map[y][x] = random.nextBoolean();
+      }
+    }
+    return map;
+  }
+}
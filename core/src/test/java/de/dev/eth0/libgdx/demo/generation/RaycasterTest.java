@@ -0,0 +1,191 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RaycasterTest {
+
+  @Test
+  void raysHitFirstFilledCell() {
+    boolean[][] map = TestCaves.generate(150, 70, 5);
+    Raycaster underTest = new Raycaster(BitLattice.fromMap(map));
+    Random random = new Random(2);
+    int clear = 0;
+    for (int i = 0; i < 3000; i++) {
+      float startX = random.nextFloat() * 150;
+      float startY = random.nextFloat() * 70;
+      float endX = random.nextFloat() * 150;
+      float endY = random.nextFloat() * 70;
+      if (i % 3 == 0) {
+        // short rays in the cave are often clear
+        endX = Math.max(0f, Math.min(149.9f, startX + random.nextFloat() * 8 - 4));
+        endY = Math.max(0f, Math.min(69.9f, startY + random.nextFloat() * 8 - 4));
+      }
+
+      int hit = underTest.raycast(startX, startY, endX, endY);
+
+      double[] expected = firstHit(map, startX, startY, endX, endY);
+      assertThat(hit).as("ray %d", i).isEqualTo((int)expected[0]);
+      if (hit < 0) {
+        clear++;
+        assertThat(underTest.isClear(startX, startY, endX, endY)).isTrue();
+        continue;
+      }
+      assertThat((double)underTest.getDistance(startX, startY, endX, endY, hit)).isCloseTo(expected[1], 1e-3);
+    }
+    assertThat(clear).isGreaterThan(300);
+  }
+
+  @Test
+  void runsSpanSeveralWords() {
+    BitLattice lattice = new BitLattice(300, 3);
+    lattice.set(5, 1, LatticeFns.FILLED);
+    lattice.set(250, 1, LatticeFns.FILLED);
+    Raycaster underTest = new Raycaster(lattice);
+
+    assertThat(underTest.raycast(6.5f, 1.5f, 299.5f, 1.5f)).isEqualTo(300 + 250);
+    assertThat(underTest.getDistance(6.5f, 1.5f, 299.5f, 1.5f, 300 + 250)).isEqualTo(243.5f);
+    assertThat(underTest.raycast(249.5f, 1.5f, 0.5f, 1.5f)).isEqualTo(300 + 5);
+    assertThat(underTest.raycast(5.5f, 0.5f, 5.5f, 2.5f)).isEqualTo(300 + 5);
+    assertThat(underTest.hasLineOfSight(6, 1, 249, 1)).isTrue();
+    assertThat(underTest.hasLineOfSight(3, 0, 5, 2)).isTrue();
+    assertThat(underTest.hasLineOfSight(4, 1, 6, 1)).isFalse();
+    assertThatThrownBy(() -> underTest.raycast(0f, 0f, 300f, 0f)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new Raycaster(new BitLattice(Raycaster.MAX_SIZE + 1, 1)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void raysPassBetweenCellsTouchingAtCorners() {
+    BitLattice lattice = new BitLattice(50, 10);
+    lattice.set(42, 2, LatticeFns.FILLED);
+    lattice.set(43, 3, LatticeFns.FILLED);
+    lattice.set(5, 5, LatticeFns.FILLED);
+    lattice.set(6, 6, LatticeFns.FILLED);
+    Raycaster underTest = new Raycaster(lattice);
+
+    // passes the corner between (42, 2) and (43, 3) at (43, 3)
+    assertThat(underTest.raycast(40f, 5.5f, 46f, 0.5f)).isEqualTo(-1);
+    assertThat(underTest.raycast(46f, 0.5f, 40f, 5.5f)).isEqualTo(-1);
+    // steep rays through the same corner
+    assertThat(underTest.raycast(42.5f, 5.5f, 43.5f, 0.5f)).isEqualTo(-1);
+    assertThat(underTest.raycast(43.5f, 0.5f, 42.5f, 5.5f)).isEqualTo(-1);
+    // diagonals between the cells touching at (6, 6)
+    assertThat(underTest.hasLineOfSight(3, 8, 8, 3)).isTrue();
+    assertThat(underTest.hasLineOfSight(8, 3, 3, 8)).isTrue();
+    assertThat(underTest.raycast(6f, 5.5f, 6f, 6.5f)).isEqualTo(6 * 50 + 6);
+  }
+
+  @Test
+  void raysThroughCornersHitFirstFilledCell() {
+    boolean[][] map = TestCaves.generate(150, 70, 5);
+    Raycaster underTest = new Raycaster(BitLattice.fromMap(map));
+    Random random = new Random(4);
+    for (int i = 0; i < 3000; i++) {
+      // on a grid of quarter cells the rays often pass exactly through corners
+      float startX = random.nextInt(150 * 4) / 4f;
+      float startY = random.nextInt(70 * 4) / 4f;
+      float endX = Math.max(0, Math.min(149.75f, startX + (random.nextInt(80) - 40) / 4f));
+      float endY = Math.max(0, Math.min(69.75f, startY + (random.nextInt(80) - 40) / 4f));
+
+      int hit = underTest.raycast(startX, startY, endX, endY);
+
+      assertThat(hit).as("ray %d", i).isEqualTo((int)firstHit(map, startX, startY, endX, endY)[0]);
+    }
+  }
+
+  @Test
+  void lineOfSightIsSymmetric() {
+    boolean[][] map = TestCaves.generate(150, 70, 5);
+    Raycaster underTest = new Raycaster(BitLattice.fromMap(map));
+    assertThat(underTest.hasLineOfSight(3, 6, 10, 11)).isEqualTo(underTest.hasLineOfSight(10, 11, 3, 6));
+    Random random = new Random(5);
+    int visible = 0;
+    for (int i = 0; i < 20000; i++) {
+      int startX = random.nextInt(150);
+      int startY = random.nextInt(70);
+      int endX = Math.max(0, Math.min(149, startX + random.nextInt(41) - 20));
+      int endY = Math.max(0, Math.min(69, startY + random.nextInt(41) - 20));
+
+      boolean seen = underTest.hasLineOfSight(startX, startY, endX, endY);
+
+      assertThat(underTest.hasLineOfSight(endX, endY, startX, startY)).as("%d, %d to %d, %d", startX, startY, endX,
+          endY).isEqualTo(seen);
+      assertThat(seen).isEqualTo(firstHit(map, startX + 0.5, startY + 0.5, endX + 0.5, endY + 0.5)[0] < 0);
+      visible += seen ? 1 : 0;
+    }
+    assertThat(visible).isGreaterThan(1000);
+  }
+
+  @Test
+  void batchMatchesSingleRays() {
+    boolean[][] map = TestCaves.builder(200, 200, 9)
+        .addPhase(5, 2, 4)
+        .build()
+        .generateMap();
+    Raycaster underTest = new Raycaster(BitLattice.fromMap(map), 4);
+    Random random = new Random(3);
+    int count = 5000;
+    float[] rays = new float[4 * count];
+    for (int i = 0; i < rays.length; i++) {
+      rays[i] = random.nextFloat() * 199.9f;
+    }
+    int[] hits = new int[count];
+    float[] distances = new float[count];
+
+    underTest.raycast(rays, count, hits, distances);
+
+    for (int i = 0; i < count; i++) {
+      int r = 4 * i;
+      int hit = underTest.raycast(rays[r], rays[r + 1], rays[r + 2], rays[r + 3]);
+      assertThat(hits[i]).isEqualTo(hit);
+      assertThat(distances[i]).isEqualTo(hit < 0 ? Float.POSITIVE_INFINITY
+          : underTest.getDistance(rays[r], rays[r + 1], rays[r + 2], rays[r + 3], hit));
+    }
+    underTest.dispose();
+  }
+
+  /**
+   * Tests every filled cell for the part of the ray inside it.
+   *
+   * @return the first hit cell or -1 and the distance to it.
+   */
+  private static double[] firstHit(boolean[][] map, double startX, double startY, double endX, double endY) {
+    double dx = endX - startX;
+    double dy = endY - startY;
+    double best = Double.POSITIVE_INFINITY;
+    int ret = -1;
+    for (int y = 0; y < map.length; y++) {
+      for (int x = 0; x < map[0].length; x++) {
+        if (!map[y][x]) {
+          continue;
+        }
+        double[] enterExit = { 0, 1 };
+        if (!clip(startX, dx, x, enterExit) || !clip(startY, dy, y, enterExit)) {
+          continue;
+        }
+        if (enterExit[0] < enterExit[1] || dx == 0 && dy == 0 && enterExit[0] == 0) {
+          if (enterExit[0] < best) {
+            best = enterExit[0];
+            ret = y * map[0].length + x;
+          }
+        }
+      }
+    }
+    return new double[] { ret, best * Math.sqrt(dx * dx + dy * dy) };
+  }
+
+  private static boolean clip(double start, double delta, int cell, double[] enterExit) {
+    if (delta == 0) {
+      return start >= cell && start < cell + 1;
+    }
+    double t0 = (cell - start) / delta;
+    double t1 = (cell + 1 - start) / delta;
+    enterExit[0] = Math.max(enterExit[0], Math.min(t0, t1));
+    enterExit[1] = Math.min(enterExit[1], Math.max(t0, t1));
+    return true;
+  }
+}
@@ -0,0 +1,164 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.zip.CRC32;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import org.junit.jupiter.api.Test;
+
+class RegionStoreTest {
+
+  @Test
+  void storedChunksCanBeLoadedAfterReopening() throws IOException {
+    Path directory = Files.createTempDirectory("regions");
+    BitLattice noise = randomChunk(40, 1);
+    BitLattice solid = new BitLattice(40, 40);
+    solid.fill(LatticeFns.FILLED);
+
+    try (RegionStore store = new RegionStore(directory, 40, true)) {
+      store.save(0, 0, noise);
+      store.save(-1, 33, solid);
+      assertThat(store.contains(0, 0)).isTrue();
+      assertThat(store.contains(1, 0)).isFalse();
+    }
+    try (RegionStore store = new RegionStore(directory, 40, true)) {
+      assertThat(store.load(0, 0).getWords()).isEqualTo(noise.getWords());
+      assertThat(store.load(-1, 33).getWords()).isEqualTo(solid.getWords());
+      assertThat(store.load(1, 0)).isNull();
+    }
+  }
+
+  @Test
+  void savingAgainReplacesChunk() throws IOException {
+    Path directory = Files.createTempDirectory("regions");
+    try (RegionStore store = new RegionStore(directory, 16, false)) {
+      store.save(3, 4, randomChunk(16, 1));
+      BitLattice replacement = randomChunk(16, 2);
+      store.save(3, 4, replacement);
+
+      assertThat(store.load(3, 4).getWords()).isEqualTo(replacement.getWords());
+    }
+  }
+
+  @Test
+  void indexIsOnlyUpdatedOnFlush() throws IOException {
+    Path path = Files.createTempDirectory("regions").resolve("r.0.0.cave");
+    BitLattice first = randomChunk(16, 1);
+    BitLattice second = randomChunk(16, 2);
+    try (RegionFile file = new RegionFile(path, 16, false)) {
+      file.save(1, 2, first);
+      file.flush();
+      file.save(1, 2, second);
+      file.save(3, 4, second);
+      assertThat(file.load(1, 2).getWords()).isEqualTo(second.getWords());
+
+      // a file opened now sees the flushed chunks only, like after a crash
+      try (RegionFile before = new RegionFile(path, 16, false)) {
+        assertThat(before.load(1, 2).getWords()).isEqualTo(first.getWords());
+        assertThat(before.contains(3, 4)).isFalse();
+      }
+    }
+    try (RegionFile after = new RegionFile(path, 16, false)) {
+      assertThat(after.load(1, 2).getWords()).isEqualTo(second.getWords());
+      assertThat(after.load(3, 4).getWords()).isEqualTo(second.getWords());
+    }
+  }
+
+  @Test
+  void runsMustDecodeToExactlyOneChunk() throws IOException {
+    Path path = Files.createTempDirectory("regions").resolve("r.0.0.cave");
+    BitLattice solid = new BitLattice(64, 64);
+    solid.fill(LatticeFns.FILLED);
+    try (RegionFile file = new RegionFile(path, 64, true)) {
+      file.save(0, 0, solid);
+    }
+
+    // the chunk is a single run of 64 words
+    rewriteRunCount(path, 65);
+    try (RegionFile file = new RegionFile(path, 64, true)) {
+      assertThatThrownBy(() -> file.load(0, 0)).isInstanceOf(GdxRuntimeException.class);
+    }
+    rewriteRunCount(path, 63);
+    try (RegionFile file = new RegionFile(path, 64, true)) {
+      assertThatThrownBy(() -> file.load(0, 0)).isInstanceOf(GdxRuntimeException.class);
+    }
+    rewriteRunCount(path, 64);
+    try (RegionFile file = new RegionFile(path, 64, true)) {
+      assertThat(file.load(0, 0).getWords()).isEqualTo(solid.getWords());
+    }
+  }
+
+  @Test
+  void closeClosesAllRegions() throws IOException {
+    Path directory = Files.createTempDirectory("regions");
+    RegionStore store = new RegionStore(directory, 16, false);
+    for (int region = 0; region < 3; region++) {
+      store.save(region * RegionFile.REGION_SIZE, 0, randomChunk(16, region));
+    }
+
+    store.close();
+
+    // the regions were flushed and are opened again
+    assertThat(store.contains(0, 0)).isTrue();
+    assertThat(store.load(2 * RegionFile.REGION_SIZE, 0).getWords()).isEqualTo(randomChunk(16, 2).getWords());
+    store.close();
+  }
+
+  @Test
+  void generatorUsesStoredChunks() throws IOException {
+    Path directory = Files.createTempDirectory("regions");
+    try (RegionStore store = new RegionStore(directory, 16, true)) {
+      ChunkedCaveGenerator generator = ChunkedCaveGenerator.Builder.create()
+          .withChunkSize(16)
+          .withRegionStore(store)
+          .addPhase(5, 2, 2)
+          .build();
+      BitLattice generated = generator.getChunk(2, -3);
+
+      assertThat(store.load(2, -3).getWords()).isEqualTo(generated.getWords());
+    }
+  }
+
+  /**
+   * Replaces the count of the first run of chunk 0, 0 and updates the checksum of its record.
+   */
+  private void rewriteRunCount(Path path, long count) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer entry = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+      channel.read(entry, RegionFile.HEADER_SIZE);
+      long offset = entry.getLong(0) >>> 24;
+      ByteBuffer header = ByteBuffer.allocate(RegionFile.RECORD_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      channel.read(header, offset);
+      ByteBuffer payload = ByteBuffer.allocate(header.getInt(0)).order(ByteOrder.LITTLE_ENDIAN);
+      channel.read(payload, offset + RegionFile.RECORD_HEADER_SIZE);
+      payload.putLong(0, count);
+      CRC32 crc = new CRC32();
+      crc.update(payload.array());
+      header.putInt(4, (int)crc.getValue());
+      header.rewind();
+      payload.rewind();
+      channel.write(header, offset);
+      channel.write(payload, offset + RegionFile.RECORD_HEADER_SIZE);
+    }
+  }
+
+  private BitLattice randomChunk(int size, long seed) {
+    Random random = new Random(seed);
+    BitLattice ret = new BitLattice(size, size);
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        ret.set(x, y, random.nextBoolean());
+      }
+    }
+    return ret;
+  }
+}
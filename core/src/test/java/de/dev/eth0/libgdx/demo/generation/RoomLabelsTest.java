@@ -0,0 +1,75 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+
+class RoomLabelsTest {
+
+  @BeforeEach
+  void setUp() {
+    Gdx.app = mock(Application.class);
+  }
+
+  @Test
+  void uShapedRoomIsMergedIntoOneLabel() {
+    boolean[][] map = {
+        { false, true, false },
+        { false, true, false },
+        { false, false, false },
+        { true, true, true },
+        { true, false, true }
+    };
+    RoomLabels underTest = LatticeFns.getRoomLabels(map, LatticeFns.EMPTY);
+
+    assertThat(underTest.getRoomCount()).isEqualTo(2);
+    assertThat(underTest.getArea(0)).isEqualTo(7);
+    assertThat(underTest.getMinX(0)).isEqualTo(0);
+    assertThat(underTest.getMaxX(0)).isEqualTo(2);
+    assertThat(underTest.getMinY(0)).isEqualTo(0);
+    assertThat(underTest.getMaxY(0)).isEqualTo(2);
+    assertThat(underTest.getArea(1)).isEqualTo(1);
+    assertThat(underTest.getRepresentativeX(1)).isEqualTo(1);
+    assertThat(underTest.getRepresentativeY(1)).isEqualTo(4);
+    assertThat(underTest.getLabel(1, 1)).isEqualTo(RoomLabels.NONE);
+  }
+
+  @Test
+  void matchesGetRooms() {
+    Random random = new Random(42);
+    for (int i = 0; i < 20; i++) {
+      boolean[][] map = new boolean[5 + random.nextInt(30)][5 + random.nextInt(30)];
+      for (boolean[] row : map) {
+        for (int x = 0; x < row.length; x++) {
+          row[x] = random.nextDouble() < 0.45;
+        }
+      }
+      List<Set<Point>> expected = LatticeFns.getRooms(map, LatticeFns.EMPTY);
+      RoomLabels underTest = LatticeFns.getRoomLabels(map, LatticeFns.EMPTY);
+
+      assertThat(underTest.getRoomCount()).isEqualTo(expected.size());
+      for (int room = 0; room < expected.size(); room++) {
+        Set<Point> cells = new LinkedHashSet<>();
+        for (int y = 0; y < map.length; y++) {
+          for (int x = 0; x < map[y].length; x++) {
+            if (underTest.contains(room, x, y)) {
+              cells.add(new Point(x, y));
+            }
+          }
+        }
+        assertThat(cells).isEqualTo(expected.get(room));
+        assertThat(underTest.getArea(room)).isEqualTo(expected.get(room).size());
+        assertThat(new Point(underTest.getRepresentativeX(room), underTest.getRepresentativeY(room)))
+            .isEqualTo(expected.get(room).iterator().next());
+      }
+    }
+  }
+}
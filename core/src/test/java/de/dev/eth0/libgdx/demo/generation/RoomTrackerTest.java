@@ -0,0 +1,82 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RoomTrackerTest {
+
+  @Test
+  void closingTheBridgeSplitsTheRoom() {
+    boolean[][] map = {
+        { true, true, true, true, true },
+        { true, false, false, false, true },
+        { true, true, true, true, true }
+    };
+    RoomTracker underTest = new RoomTracker(map);
+    assertThat(underTest.getRoomCount()).isEqualTo(1);
+
+    map[1][2] = LatticeFns.FILLED;
+    underTest.cellClosed(2, 1);
+    assertThat(underTest.getRoomCount()).isEqualTo(2);
+    assertThat(underTest.isConnected(1, 1, 3, 1)).isFalse();
+    assertThat(underTest.getArea(underTest.getRoom(1, 1))).isEqualTo(1);
+    assertThat(underTest.getArea(underTest.getRoom(3, 1))).isEqualTo(1);
+
+    map[1][2] = LatticeFns.EMPTY;
+    underTest.cellOpened(2, 1);
+    assertThat(underTest.getRoomCount()).isEqualTo(1);
+    assertThat(underTest.isConnected(1, 1, 3, 1)).isTrue();
+    assertThat(underTest.getArea(underTest.getRoom(1, 1))).isEqualTo(3);
+  }
+
+  @Test
+  void matchesRoomLabelsAfterRandomEdits() {
+    Random random = new Random(42);
+    for (int i = 0; i < 10; i++) {
+      boolean[][] map = new boolean[5 + random.nextInt(20)][5 + random.nextInt(20)];
+      for (boolean[] row : map) {
+        for (int x = 0; x < row.length; x++) {
+          row[x] = random.nextDouble() < 0.45;
+        }
+      }
+      RoomTracker underTest = new RoomTracker(map);
+      for (int edit = 0; edit < 300; edit++) {
+        int x = random.nextInt(map[0].length);
+        int y = random.nextInt(map.length);
+        map[y][x] = !map[y][x];
+        if (map[y][x] == LatticeFns.EMPTY) {
+          underTest.cellOpened(x, y);
+        }
+        else {
+          underTest.cellClosed(x, y);
+        }
+        assertSameRooms(map, underTest);
+      }
+    }
+  }
+
+  private void assertSameRooms(boolean[][] map, RoomTracker underTest) {
+    RoomLabels expected = RoomLabels.label(map, LatticeFns.EMPTY);
+    assertThat(underTest.getRoomCount()).isEqualTo(expected.getRoomCount());
+    // every label has to map to exactly one room of the tracker and vice versa
+    Map<Integer, Integer> rooms = new HashMap<>();
+    Map<Integer, Integer> labels = new HashMap<>();
+    for (int y = 0; y < map.length; y++) {
+      for (int x = 0; x < map[y].length; x++) {
+        int label = expected.getLabel(x, y);
+        int room = underTest.getRoom(x, y);
+        if (label == RoomLabels.NONE) {
+          assertThat(room).isEqualTo(RoomLabels.NONE);
+          continue;
+        }
+        assertThat(rooms.computeIfAbsent(label, l -> room)).isEqualTo(room);
+        assertThat(labels.computeIfAbsent(room, r -> label)).isEqualTo(label);
+        assertThat(underTest.getArea(room)).isEqualTo(expected.getArea(label));
+      }
+    }
+  }
+}
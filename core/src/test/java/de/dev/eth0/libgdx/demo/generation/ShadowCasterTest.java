@@ -0,0 +1,75 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ShadowCasterTest {
+
+  @Test
+  void seesOpenCellsWithinRadius() {
+    BitLattice lattice = new BitLattice(100, 20);
+    long[] mask = new long[ShadowCaster.getMaskSize(40)];
+
+    new ShadowCaster().compute(lattice, 50, 10, 40, mask);
+
+    for (int y = 0; y < 20; y++) {
+      for (int x = 0; x < 100; x++) {
+        boolean inside = (x - 50) * (x - 50) + (y - 10) * (y - 10) <= 40 * 40;
+        assertThat(ShadowCaster.isVisible(mask, 50, 10, 40, x, y)).as("%d, %d", x, y).isEqualTo(inside);
+      }
+    }
+  }
+
+  @Test
+  void wallsCastShadows() {
+    BitLattice lattice = new BitLattice(11, 11);
+    lattice.set(5, 3, LatticeFns.FILLED);
+    long[] mask = new long[ShadowCaster.getMaskSize(10)];
+
+    new ShadowCaster().compute(lattice, 5, 5, 10, mask);
+
+    assertThat(ShadowCaster.isVisible(mask, 5, 5, 10, 5, 3)).isTrue();
+    assertThat(ShadowCaster.isVisible(mask, 5, 5, 10, 5, 2)).isFalse();
+    assertThat(ShadowCaster.isVisible(mask, 5, 5, 10, 5, 0)).isFalse();
+    assertThat(ShadowCaster.isVisible(mask, 5, 5, 10, 6, 0)).isFalse();
+    assertThat(ShadowCaster.isVisible(mask, 5, 5, 10, 7, 0)).isTrue();
+    assertThat(ShadowCaster.isVisible(mask, 5, 5, 10, 5, 7)).isTrue();
+  }
+
+  @Test
+  void viewIsSymmetric() {
+    boolean[][] map = TestCaves.generate(120, 80, 4);
+    BitLattice lattice = BitLattice.fromMap(map);
+    ShadowCaster underTest = new ShadowCaster();
+    int radius = 12;
+    long[] mask = new long[ShadowCaster.getMaskSize(radius)];
+    long[] other = new long[ShadowCaster.getMaskSize(radius)];
+    Random random = new Random(3);
+    int visible = 0;
+    for (int i = 0; i < 300; i++) {
+      int x = random.nextInt(lattice.getWidth());
+      int y = random.nextInt(lattice.getHeight());
+      if (lattice.get(x, y)) {
+        continue;
+      }
+      underTest.compute(lattice, x, y, radius, mask);
+      for (int dy = -radius; dy <= radius; dy++) {
+        for (int dx = -radius; dx <= radius; dx++) {
+          int ox = x + dx;
+          int oy = y + dy;
+          if (ox < 0 || oy < 0 || ox >= lattice.getWidth() || oy >= lattice.getHeight() || lattice.get(ox, oy)
+              || !ShadowCaster.isVisible(mask, x, y, radius, ox, oy)) {
+            continue;
+          }
+          visible++;
+          underTest.compute(lattice, ox, oy, radius, other);
+          assertThat(ShadowCaster.isVisible(other, ox, oy, radius, x, y)).as("%d, %d -> %d, %d", x, y, ox, oy)
+              .isTrue();
+        }
+      }
+    }
+    assertThat(visible).isGreaterThan(1000);
+  }
+}
@@ -0,0 +1,81 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+
+class StepKernelTest {
+
+  @BeforeEach
+  void setUp() {
+    Gdx.app = mock(Application.class);
+  }
+
+  @Test
+  void vectorKernelMatchesNeighborCounts() {
+    StepKernel underTest = StepKernel.vector();
+    assumeTrue(underTest != null, "Vector API not available");
+    Random random = new Random(9);
+    int[][] thresholds = { { 5, 2 }, { 5, -1 }, { 4, 6 }, { 0, 21 }, { 10, -1 } };
+    for (int width : new int[] { 3, 5, 18, 19, 40, 67, 131 }) {
+      for (int[] threshold : thresholds) {
+        boolean[][] map = new boolean[9][width];
+        for (boolean[] row : map) {
+          for (int x = 0; x < width; x++) {
+            row[x] = random.nextDouble() < 0.45;
+          }
+        }
+        boolean[][] actual = new boolean[map.length][];
+        for (int y = 0; y < map.length; y++) {
+          actual[y] = map[y].clone();
+        }
+        underTest.step(map, actual, threshold[0], threshold[1], 1, map.length - 1);
+
+        for (int y = 0; y < map.length; y++) {
+          for (int x = 0; x < width; x++) {
+            boolean expected = map[y][x];
+            if (y > 0 && y < map.length - 1 && x > 0 && x < width - 1) {
+              expected = LatticeFns.getNeighborCount(map, y, x) >= threshold[0]
+                  || LatticeFns.getTwoStepNeighborCount(map, y, x) <= threshold[1];
+            }
+            assertThat(actual[y][x]).as("width %d at %d,%d", width, x, y).isEqualTo(expected);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void vectorAndScalarGenerateTheSameMap() {
+    assumeTrue(CaveGenerator.hasVectorKernel(), "Vector API not available");
+    for (int parallelism : new int[] { 1, 3 }) {
+      CaveGenerator scalar = builder(parallelism).withVectorKernel(false).build();
+      CaveGenerator vector = builder(parallelism).withVectorKernel(true).build();
+
+      try {
+        assertThat(vector.generateMap()).as("parallelism %d", parallelism).isEqualTo(scalar.generateMap());
+      }
+      finally {
+        scalar.dispose();
+        vector.dispose();
+      }
+    }
+  }
+
+  private CaveGenerator.Builder builder(int parallelism) {
+    return CaveGenerator.Builder.create()
+        .withSize(150, 70)
+        .withRandomSeed(23)
+        .withParallelism(parallelism)
+        .withTileSet(mock(TextureAtlas.class))
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 3);
+  }
+}
@@ -0,0 +1,38 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.mockito.Mockito.mock;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+
+/**
+ * Caves shared by the tests of the algorithms working on generated maps.
+ */
+public final class TestCaves {
+
+  private TestCaves() {
+  }
+
+  /**
+   * @return the corners of a bit-packed cave with open rooms, {@code (width + 1) x (height + 1)} cells.
+   */
+  public static boolean[][] generate(int width, int height, long seed) {
+    return builder(width, height, seed)
+        .addPhase(5, 2, 4)
+        .addPhase(5, -1, 3)
+        .build()
+        .generateMap();
+  }
+
+  /**
+   * @return a builder of a bit-packed cave without phases.
+   */
+  public static CaveGenerator.Builder builder(int width, int height, long seed) {
+    // the generator logs through Gdx.app
+    Gdx.app = mock(Application.class);
+    return CaveGenerator.Builder.create()
+        .withSize(width, height)
+        .withRandomSeed(seed)
+        .withBitPackedLattice(true);
+  }
+}
@@ -0,0 +1,65 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class VisibilityCacheTest {
+
+  @Test
+  void recomputesLightsNearChangedCells() {
+    BitLattice lattice = new BitLattice(100, 50);
+    VisibilityCache underTest = new VisibilityCache(lattice);
+    int near = underTest.addLight(10, 10, 8);
+    int far = underTest.addLight(80, 40, 8);
+    assertThat(underTest.update()).isEqualTo(2);
+    assertThat(underTest.isVisible(near, 10, 3)).isTrue();
+
+    underTest.setFilled(10, 5, LatticeFns.FILLED);
+
+    assertThat(underTest.isDirty(near)).isTrue();
+    assertThat(underTest.isDirty(far)).isFalse();
+    assertThat(underTest.update()).isEqualTo(1);
+    assertThat(underTest.isVisible(near, 10, 3)).isFalse();
+
+    underTest.moveLight(far, 70, 40);
+    assertThat(underTest.isVisible(far, 63, 40)).isTrue();
+    assertThat(underTest.isDirty(far)).isFalse();
+
+    underTest.removeLight(near);
+    assertThatThrownBy(() -> underTest.moveLight(near, 20, 20)).isInstanceOf(IllegalArgumentException.class);
+    assertThat(underTest.update()).isZero();
+  }
+
+  @Test
+  void parallelUpdateMatchesCaster() {
+    boolean[][] map = TestCaves.generate(200, 120, 8);
+    BitLattice lattice = BitLattice.fromMap(map);
+    VisibilityCache underTest = new VisibilityCache(lattice, 4);
+    Random random = new Random(6);
+    int[] lights = new int[100];
+    for (int i = 0; i < lights.length; i++) {
+      lights[i] = underTest.addLight(random.nextInt(lattice.getWidth()), random.nextInt(lattice.getHeight()),
+          4 + random.nextInt(60));
+    }
+    underTest.update();
+    for (int i = 0; i < 50; i++) {
+      underTest.setFilled(random.nextInt(lattice.getWidth()), random.nextInt(lattice.getHeight()), random.nextBoolean());
+    }
+    underTest.removeLight(lights[0]);
+    underTest.update();
+
+    ShadowCaster caster = new ShadowCaster();
+    for (int i = 1; i < lights.length; i++) {
+      int id = lights[i];
+      assertThat(underTest.isDirty(id)).isFalse();
+      long[] expected = new long[ShadowCaster.getMaskSize(underTest.getRadius(id))];
+      caster.compute(lattice, underTest.getX(id), underTest.getY(id), underTest.getRadius(id), expected);
+      assertThat(Arrays.copyOf(underTest.getMask(id), expected.length)).isEqualTo(expected);
+    }
+    underTest.dispose();
+  }
+}
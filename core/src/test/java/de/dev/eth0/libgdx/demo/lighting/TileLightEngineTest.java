@@ -0,0 +1,143 @@
+package de.dev.eth0.libgdx.demo.lighting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import de.dev.eth0.libgdx.demo.generation.TestCaves;
+
+class TileLightEngineTest {
+
+  @Test
+  void lightFadesAndStopsAtWalls() {
+    boolean[][] walls = new boolean[5][9];
+    for (int y = 0; y < 5; y++) {
+      walls[y][5] = y != 0;
+    }
+    TileLightEngine underTest = TileLightEngine.Builder.create()
+        .withWalls(walls)
+        .withColors(false)
+        .withFalloff(10)
+        .build();
+
+    underTest.addLight(2, 2, 100);
+
+    assertThat(underTest.getLevel(2, 2, 0)).isEqualTo(100);
+    assertThat(underTest.getLevel(4, 2, 0)).isEqualTo(80);
+    assertThat(underTest.getLevel(5, 2, 0)).isEqualTo(0);
+    // around the wall through the gap in the bottom row
+    assertThat(underTest.getLevel(5, 0, 0)).isEqualTo(50);
+    assertThat(underTest.getLevel(6, 2, 0)).isEqualTo(20);
+  }
+
+  @Test
+  void rejectsRemovedLights() {
+    TileLightEngine underTest = TileLightEngine.Builder.create().withSize(10, 10).withFalloff(10).build();
+    int removed = underTest.addLight(2, 2, 100);
+    int other = underTest.addLight(7, 7, 50);
+    underTest.removeLight(removed);
+
+    assertThatThrownBy(() -> underTest.removeLight(removed)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> underTest.moveLight(removed, 3, 3)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> underTest.moveLight(5, 3, 3)).isInstanceOf(IllegalArgumentException.class);
+    // the rejected calls didn't change the lights
+    assertThat(underTest.getLevel(3, 3, 0)).isEqualTo(0);
+    assertThat(underTest.addLight(4, 4, 100)).isEqualTo(removed);
+    assertThat(underTest.addLight(5, 5, 100)).isEqualTo(other + 1);
+  }
+
+  @Test
+  void updatesMatchRecomputedLight() {
+    boolean[][] walls = TestCaves.generate(60, 40, 4);
+    int width = walls[0].length;
+    int height = walls.length;
+    TileLightEngine underTest = TileLightEngine.Builder.create().withWalls(walls).withFalloff(12).build();
+    List<int[]> lights = new ArrayList<>();
+    Random random = new Random(6);
+
+    for (int change = 0; change < 300; change++) {
+      int x = random.nextInt(width);
+      int y = random.nextInt(height);
+      int action = random.nextInt(4);
+      if (action == 0 || lights.isEmpty()) {
+        int[] light = { 0, x, y, random.nextInt(256), random.nextInt(256), random.nextInt(256) };
+        light[0] = underTest.addLight(x, y, light[3], light[4], light[5]);
+        lights.add(light);
+      }
+      else if (action == 1) {
+        int[] light = lights.get(random.nextInt(lights.size()));
+        underTest.moveLight(light[0], x, y);
+        light[1] = x;
+        light[2] = y;
+      }
+      else if (action == 2) {
+        int[] light = lights.remove(random.nextInt(lights.size()));
+        underTest.removeLight(light[0]);
+      }
+      else {
+        walls[y][x] = !walls[y][x];
+        underTest.setWall(x, y, walls[y][x]);
+      }
+
+      for (int c = 0; c < 3; c++) {
+        int[] expected = recompute(walls, lights, c, 12);
+        for (int i = 0; i < expected.length; i++) {
+          assertThat(underTest.getLevel(i % width, i / width, c)).as("change %d at %d", change, i).isEqualTo(expected[i]);
+        }
+      }
+    }
+  }
+
+  @Test
+  void writesRowsFromTop() {
+    TileLightEngine underTest = TileLightEngine.Builder.create().withSize(3, 2).withFalloff(100).build();
+    underTest.setAmbient(10, 20, 30);
+    underTest.addLight(0, 1, 200, 0, 150);
+    ByteBuffer buffer = ByteBuffer.allocate(18);
+
+    assertThat(underTest.isDirty()).isTrue();
+    underTest.writeTo(buffer);
+
+    assertThat(underTest.isDirty()).isFalse();
+    assertThat(buffer.position()).isEqualTo(0);
+    byte[] expected = { (byte)200, 20, (byte)150, 100, 20, 50, 10, 20, 30, 100, 20, 50, 10, 20, 30, 10, 20, 30 };
+    assertThat(buffer.array()).isEqualTo(expected);
+  }
+
+  /**
+   * Spreads the light of all lights until nothing changes.
+   */
+  private static int[] recompute(boolean[][] walls, List<int[]> lights, int channel, int falloff) {
+    int width = walls[0].length;
+    int height = walls.length;
+    int[] ret = new int[width * height];
+    for (int[] light : lights) {
+      int cell = light[2] * width + light[1];
+      ret[cell] = Math.max(ret[cell], light[3 + channel]);
+    }
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          int attenuation = walls[y][x] ? TileLightEngine.MAX_LEVEL : falloff;
+          int[][] neighbours = { { x - 1, y }, { x + 1, y }, { x, y - 1 }, { x, y + 1 } };
+          for (int[] n : neighbours) {
+            if (n[0] >= 0 && n[1] >= 0 && n[0] < width && n[1] < height) {
+              int level = ret[n[1] * width + n[0]] - attenuation;
+              if (level > ret[y * width + x]) {
+                ret[y * width + x] = level;
+                changed = true;
+              }
+            }
+          }
+        }
+      }
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,87 @@
+package de.dev.eth0.libgdx.demo.generation;
+
+import static de.dev.eth0.libgdx.demo.generation.LatticeFns.EMPTY;
+import static de.dev.eth0.libgdx.demo.generation.LatticeFns.FILLED;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link StepKernel} counting the neighbours of as many cells at once as the preferred byte vector has lanes, 16 to
+ * 64 depending on the CPU. Cells are loaded as bytes of 0 and 1, the horizontal sums of a row are the sums of the row
+ * loaded at the offsets -2 to 2 and the counts are the sums of the horizontal sums of the rows around. The first and
+ * last two columns and the end of a row which doesn't fill a vector are counted one cell at a time. A set lane of the
+ * result is a {@link LatticeFns#FILLED filled} cell.
+ * <p>
+ * Compiled for Java 17 with {@code --add-modules jdk.incubator.vector}, see {@link StepKernel#vector()}.
+ * </p>
+ */
+class VectorStepKernel implements StepKernel {
+
+  private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+  VectorStepKernel() {
+    // without at least 128 bit vectors the API falls back to slower code than the scalar one
+    if (SPECIES.length() < 16) {
+      throw new UnsupportedOperationException("Vectors too small: " + SPECIES.length() + " lanes");
+    }
+  }
+
+  @Override
+  public void step(boolean[][] src, boolean[][] dst, int minCount, int maxCount, int fromRow, int toRow) {
+    int height = src.length;
+    int width = src[0].length;
+    int lanes = SPECIES.length();
+    // counts are at most 21, clamping keeps the comparisons exact
+    byte min = (byte)Math.max(-1, Math.min(minCount, 127));
+    byte max = (byte)Math.max(-1, Math.min(maxCount, 127));
+    ByteVector zero = ByteVector.zero(SPECIES);
+
+    for (int y = fromRow; y < toRow; ++y) {
+      int x = 2;
+      for (; x + lanes + 2 <= width; x += lanes) {
+        ByteVector count1 = zero;
+        ByteVector count2 = zero;
+        for (int dy = -2; dy <= 2; ++dy) {
+          int row = y + dy;
+          if (row < 0 || row >= height) {
+            continue;
+          }
+          boolean[] cells = src[row];
+          ByteVector sum3 = ByteVector.fromBooleanArray(SPECIES, cells, x - 1)
+              .add(ByteVector.fromBooleanArray(SPECIES, cells, x))
+              .add(ByteVector.fromBooleanArray(SPECIES, cells, x + 1));
+          if (dy == -2 || dy == 2) {
+            count2 = count2.add(sum3);
+            continue;
+          }
+          count1 = count1.add(sum3);
+          count2 = count2.add(sum3)
+              .add(ByteVector.fromBooleanArray(SPECIES, cells, x - 2))
+              .add(ByteVector.fromBooleanArray(SPECIES, cells, x + 2));
+        }
+        count1.compare(VectorOperators.GE, min)
+            .or(count2.compare(VectorOperators.LE, max))
+            .intoArray(dst[y], x);
+      }
+      stepCell(src, dst, minCount, maxCount, 1, y);
+      for (; x < width - 1; ++x) {
+        stepCell(src, dst, minCount, maxCount, x, y);
+      }
+    }
+  }
+
+  private static void stepCell(boolean[][] src, boolean[][] dst, int minCount, int maxCount, int x, int y) {
+    if (x >= src[y].length - 1) {
+      return;
+    }
+    if (LatticeFns.getNeighborCount(src, y, x) >= minCount
+        || LatticeFns.getTwoStepNeighborCount(src, y, x) <= maxCount) {
+      dst[y][x] = FILLED;
+    }
+    else {
+      dst[y][x] = EMPTY;
+    }
+  }
+}